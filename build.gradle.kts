@@ -53,6 +53,12 @@ subprojects {
             useJUnitPlatform {
                 excludeTags("Benchmark")
             }
+            // run tests with other jvm than gradle itself, for example: -PtestJavaVersion=21
+            if (project.hasProperty("testJavaVersion")) {
+                javaLauncher.set(project.javaToolchains.launcherFor {
+                    languageVersion.set(JavaLanguageVersion.of(project.property("testJavaVersion").toString()))
+                })
+            }
         }
 
         withType<JavaCompile> {
@@ -5,6 +5,10 @@ plugins {
 
 description = "coap-core"
 
+val java21: SourceSet by sourceSets.creating {
+    java.srcDir("src/main/java21")
+}
+
 dependencies {
     api("org.slf4j:slf4j-api:2.0.4")
 
@@ -18,3 +22,44 @@ dependencies {
     testImplementation("nl.jqno.equalsverifier:equalsverifier:3.11.1")
     testImplementation("io.github.artsok:rerunner-jupiter:2.1.6")
 }
+
+tasks {
+    // multi-release jar: classes that are replaced on java 21+ (virtual threads)
+    named<JavaCompile>("compileJava21Java") {
+        javaCompiler.set(project.javaToolchains.compilerFor {
+            languageVersion.set(JavaLanguageVersion.of(21))
+        })
+        options.release.set(21)
+    }
+
+    named<Jar>("jar") {
+        into("META-INF/versions/21") {
+            from(java21.output)
+        }
+        manifest {
+            attributes("Multi-Release" to "true")
+        }
+    }
+
+    // runs tests on java 21 with java 21 variants of classes first on classpath, like multi-release jar does
+    val testJava21 by registering(Test::class) {
+        description = "Runs tests with java 21 variants of multi-release classes."
+        group = "verification"
+        javaLauncher.set(project.javaToolchains.launcherFor {
+            languageVersion.set(JavaLanguageVersion.of(21))
+        })
+        testClassesDirs = sourceSets.test.get().output.classesDirs
+        classpath = java21.output + sourceSets.test.get().runtimeClasspath
+        systemProperty("coap.virtualThreads", "true")
+        filter {
+            includeTestsMatching("com.mbed.coap.utils.ThreadsTest")
+        }
+    }
+
+    named("check") {
+        dependsOn(testJava21)
+    }
+
+    named("pmdJava21").get().enabled = false
+    named("spotbugsJava21").get().enabled = false
+}
@@ -17,10 +17,13 @@
 package com.mbed.coap.client;
 
 import static com.mbed.coap.client.ObservationConsumer.*;
+import static com.mbed.coap.utils.Validations.*;
 import com.mbed.coap.exception.CoapException;
 import com.mbed.coap.packet.CoapRequest;
 import com.mbed.coap.packet.CoapResponse;
 import com.mbed.coap.packet.Opaque;
+import com.mbed.coap.packet.SeparateResponse;
+import com.mbed.coap.server.messaging.MulticastExchanges;
 import com.mbed.coap.transport.TransportContext;
 import com.mbed.coap.utils.Service;
 import java.io.Closeable;
@@ -28,6 +31,7 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -37,11 +41,17 @@ public class CoapClient implements Closeable {
 
     private final InetSocketAddress destination;
     private final Service<CoapRequest, CoapResponse> clientService;
+    private final MulticastExchanges multicastExchanges;
     private final Closeable closeable;
 
     public CoapClient(InetSocketAddress destination, Service<CoapRequest, CoapResponse> clientService, Closeable closeable) {
+        this(destination, clientService, null, closeable);
+    }
+
+    public CoapClient(InetSocketAddress destination, Service<CoapRequest, CoapResponse> clientService, MulticastExchanges multicastExchanges, Closeable closeable) {
         this.destination = destination;
         this.clientService = clientService;
+        this.multicastExchanges = multicastExchanges;
         this.closeable = closeable;
     }
 
@@ -49,6 +59,19 @@ public class CoapClient implements Closeable {
         return clientService.apply(request.address(destination));
     }
 
+    /**
+     * Sends non-confirmable request to multicast group, destination of this client must be a group address. Multicast
+     * has to be enabled with {@link CoapClientBuilder.CoapClientBuilderForUdp#enableMulticast()}.
+     *
+     * @param request request
+     * @param responseConsumer called for every received response, until multicast timeout expires
+     * @return promise, completes with number of received responses when multicast timeout expires
+     */
+    public CompletableFuture<Integer> sendMulticast(CoapRequest request, Consumer<SeparateResponse> responseConsumer) {
+        assume(multicastExchanges != null, "Multicast is not enabled");
+        return multicastExchanges.send(request.address(destination), responseConsumer);
+    }
+
     public CoapResponse sendSync(CoapRequest request) throws CoapException {
         return await(send(request));
     }
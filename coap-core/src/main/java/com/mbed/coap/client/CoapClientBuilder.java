@@ -72,12 +72,12 @@ public abstract class CoapClientBuilder<T extends CoapServerBuilder<?>> {
 
 
     public static CoapClient clientFor(InetSocketAddress target, CoapServer server) {
-        return new CoapClient(target, server.clientService(), server::stop);
+        return new CoapClient(target, server.clientService(), server.multicastExchanges(), server::stop);
     }
 
     public CoapClient build() throws IOException {
-        CoapServer server = coapServerBuilder.build();
-        return new CoapClient(destination, server.start().clientService(), server::stop);
+        CoapServer server = coapServerBuilder.build().start();
+        return new CoapClient(destination, server.clientService(), server.multicastExchanges(), server::stop);
     }
 
     protected final void setTarget(InetSocketAddress destination) {
@@ -155,6 +155,11 @@ public abstract class CoapClientBuilder<T extends CoapServerBuilder<?>> {
             return this;
         }
 
+        public CoapClientBuilderForUdp enableMulticast() {
+            coapServerBuilderForUdp.enableMulticast();
+            return this;
+        }
+
     }
 
 }
@@ -17,9 +17,9 @@
 package com.mbed.coap.packet;
 
 import com.mbed.coap.exception.CoapException;
+import com.mbed.coap.exception.CoapMessageFormatException;
+import com.mbed.coap.transport.BufferPool;
 import com.mbed.coap.transport.TransportContext;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -90,9 +90,11 @@ public class CoapPacket {
      * @throws CoapException if can not parse
      */
     public static CoapPacket read(InetSocketAddress remoteAddress, byte[] rawData, int length) throws CoapException {
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(rawData, 0, length);
         CoapPacket cp = new CoapPacket(remoteAddress);
-        cp.readFrom(EofInputStream.wrap(inputStream));
+        int result = CoapPacketParser.parse(rawData, 0, length, cp);
+        if (result != CoapPacketParser.OK) {
+            throw new CoapMessageFormatException(CoapPacketParser.describe(result));
+        }
         return cp;
     }
 
@@ -174,10 +176,7 @@ public class CoapPacket {
      * @throws CoapException exception if coap packet can not be serialized
      */
     public static byte[] serialize(CoapPacket coapPacket) throws CoapException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-
-        coapPacket.writeTo(outputStream);
-        return outputStream.toByteArray();
+        return coapPacket.toByteArray();
     }
 
     private void readFrom(EofInputStream inputStream) throws CoapException {
@@ -437,23 +436,7 @@ public class CoapPacket {
      */
     public void writeTo(OutputStream outputStream) {
         try {
-            int tempByte;
-
-            tempByte = (0x3 & version) << 6;            //Version
-            tempByte |= (0x3 & messageType.ordinal()) << 4;  //Transaction Message Type
-            tempByte |= token.size() & 0xF;                  //Token length
-
-            outputStream.write(tempByte);
-            writeCode(outputStream, this);
-
-            outputStream.write(0xFF & (messageId >> 8));
-            outputStream.write(0xFF & messageId);
-
-            //token
-            token.writeTo(outputStream);
-
-            // options
-            options.serialize(outputStream);
+            writeHeaderTo(outputStream);
 
             //payload
             if (payload.nonEmpty()) {
@@ -465,6 +448,27 @@ public class CoapPacket {
         }
     }
 
+    // writes everything except payload
+    private void writeHeaderTo(OutputStream outputStream) throws IOException {
+        int tempByte;
+
+        tempByte = (0x3 & version) << 6;            //Version
+        tempByte |= (0x3 & messageType.ordinal()) << 4;  //Transaction Message Type
+        tempByte |= token.size() & 0xF;                  //Token length
+
+        outputStream.write(tempByte);
+        writeCode(outputStream, this);
+
+        outputStream.write(0xFF & (messageId >> 8));
+        outputStream.write(0xFF & messageId);
+
+        //token
+        token.writeTo(outputStream);
+
+        // options
+        options.serialize(outputStream);
+    }
+
     static Code writeCode(OutputStream os, CoapPacket coapPacket) throws IOException {
         Code code = coapPacket.getCode();
         Method method = coapPacket.getMethod();
@@ -484,14 +488,27 @@ public class CoapPacket {
 
     /**
      * Creates a CoAP packet and Returns array of bytes.
+     * Only header and options go through intermediate buffer, payload is copied once, directly to returned array.
      *
      * @return serialized CoAP packet
      * @throws CoapException serialization exception
      */
     public byte[] toByteArray() {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        writeTo(outputStream);
-        return outputStream.toByteArray();
+        try (BufferPool.PooledOutputStream outputStream = BufferPool.DEFAULT.outputStream()) {
+            writeHeaderTo(outputStream);
+            int headerSize = outputStream.size();
+            if (payload.isEmpty()) {
+                return outputStream.toByteArray();
+            }
+
+            byte[] data = new byte[headerSize + 1 + payload.size()];
+            System.arraycopy(outputStream.buffer(), 0, data, 0, headerSize);
+            data[headerSize] = (byte) PAYLOAD_MARKER;
+            payload.copyTo(data, headerSize + 1);
+            return data;
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception.getMessage(), exception);
+        }
     }
 
     /**
@@ -634,6 +651,26 @@ public class CoapPacket {
         return transportContext;
     }
 
+    /**
+     * Creates copy of this packet with different remote address. Header options are duplicated,
+     * payload and token are shared as they are immutable. Transport context is not copied.
+     *
+     * @param newRemoteAddress remote address of a copy
+     * @return packet copy
+     */
+    public CoapPacket duplicate(InetSocketAddress newRemoteAddress) {
+        CoapPacket copy = new CoapPacket(newRemoteAddress);
+        copy.version = this.version;
+        copy.messageType = this.messageType;
+        copy.code = this.code;
+        copy.method = this.method;
+        copy.messageId = this.messageId;
+        copy.token = this.token;
+        copy.options = this.options.duplicate();
+        copy.payload = this.payload;
+        return copy;
+    }
+
     @Override
     public int hashCode() {
         int hash = 7;
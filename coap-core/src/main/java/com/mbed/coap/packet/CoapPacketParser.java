@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.packet;
+
+import com.mbed.coap.transport.BufferPool;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Parser of CoAP (RFC 7252) messages that works directly on byte array range or ByteBuffer. Header is decoded with
+ * index arithmetic, code, method and message type are resolved with lookup tables, and malformed input is reported
+ * with an error code instead of an exception. Only values of parsed packet (token, option values and payload) are
+ * allocated.
+ */
+public final class CoapPacketParser {
+    public static final int OK = 0;
+    public static final int ERR_TOO_SHORT = -1;
+    public static final int ERR_VERSION = -2;
+    public static final int ERR_TOKEN_LENGTH = -3;
+    public static final int ERR_METHOD = -4;
+    public static final int ERR_OPTION_FORMAT = -5;
+    public static final int ERR_OPTION_VALUE = -6;
+
+    private static final int HEADER_SIZE = 4;
+    private static final MessageType[] MESSAGE_TYPES = MessageType.values();
+    private static final Method[] METHODS = new Method[256];
+
+    static {
+        for (Method method : Method.values()) {
+            METHODS[method.getCode()] = method;
+        }
+    }
+
+    private CoapPacketParser() {
+    }
+
+    /**
+     * Parses CoAP message from buffer, between its position and limit. Buffer's position is not changed.
+     *
+     * @param buffer data
+     * @param packet packet that is filled with parsed values
+     * @return OK or one of error codes
+     */
+    public static int parse(ByteBuffer buffer, CoapPacket packet) {
+        if (buffer.hasArray()) {
+            return parse(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), packet);
+        }
+
+        int length = buffer.remaining();
+        byte[] data = BufferPool.DEFAULT.acquire(length);
+        try {
+            buffer.duplicate().get(data, 0, length);
+            return parse(data, 0, length, packet);
+        } finally {
+            BufferPool.DEFAULT.release(data);
+        }
+    }
+
+    /**
+     * Parses CoAP message from byte array range.
+     *
+     * @param data data
+     * @param offset offset of message in data
+     * @param length message length
+     * @param packet packet that is filled with parsed values, its content is undefined if parsing fails
+     * @return OK or one of error codes
+     */
+    public static int parse(byte[] data, int offset, int length, CoapPacket packet) {
+        if (length < HEADER_SIZE) {
+            return ERR_TOO_SHORT;
+        }
+        int end = offset + length;
+        int firstByte = data[offset] & 0xFF;
+        if ((firstByte >> 6) != 1) {
+            return ERR_VERSION;
+        }
+        int tokenLength = firstByte & 0x0F;
+        if (tokenLength > 8) {
+            return ERR_TOKEN_LENGTH;
+        }
+        if (length < HEADER_SIZE + tokenLength) {
+            return ERR_TOO_SHORT;
+        }
+
+        int codeByte = data[offset + 1] & 0xFF;
+        if (codeByte >= 1 && codeByte <= 10) {
+            Method method = METHODS[codeByte];
+            if (method == null) {
+                return ERR_METHOD;
+            }
+            packet.setMethod(method);
+        } else {
+            packet.setCode(Code.valueOf(codeByte));
+        }
+        packet.setMessageType(MESSAGE_TYPES[(firstByte >> 4) & 0x3]);
+        packet.setMessageId(((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF));
+
+        int pos = offset + HEADER_SIZE;
+        packet.setToken(copy(data, pos, tokenLength));
+        pos += tokenLength;
+
+        HeaderOptions options = new HeaderOptions();
+        packet.setHeaderOptions(options);
+        return parseOptionsAndPayload(data, pos, end, options, packet);
+    }
+
+    /**
+     * Parses options and payload (everything that follows token) from buffer, between its position and limit, used
+     * also by CoAP over TCP decoder. Buffer's position is not changed.
+     *
+     * @param buffer data
+     * @param options options that are filled with parsed values and set to packet
+     * @param packet packet that is filled with payload
+     * @return OK or one of error codes
+     */
+    static int parseOptionsAndPayload(ByteBuffer buffer, HeaderOptions options, CoapPacket packet) {
+        packet.setHeaderOptions(options);
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset() + buffer.position();
+            return parseOptionsAndPayload(buffer.array(), offset, offset + buffer.remaining(), options, packet);
+        }
+
+        int length = buffer.remaining();
+        byte[] data = BufferPool.DEFAULT.acquire(length);
+        try {
+            buffer.duplicate().get(data, 0, length);
+            return parseOptionsAndPayload(data, 0, length, options, packet);
+        } finally {
+            BufferPool.DEFAULT.release(data);
+        }
+    }
+
+    private static int parseOptionsAndPayload(byte[] data, int pos, int end, HeaderOptions options, CoapPacket packet) {
+        int optionNumber = 0;
+        while (pos < end) {
+            int optionHeader = data[pos++] & 0xFF;
+            if (optionHeader == CoapPacket.PAYLOAD_MARKER) {
+                packet.setPayload(copy(data, pos, end - pos));
+                return OK;
+            }
+
+            int delta = optionHeader >> 4;
+            int len = optionHeader & 0x0F;
+            if (delta == 15 || len == 15) {
+                return ERR_OPTION_FORMAT;
+            }
+            int extendedSize = extendedSize(delta) + extendedSize(len);
+            if (pos + extendedSize > end) {
+                return ERR_OPTION_FORMAT;
+            }
+            if (delta >= 13) {
+                delta = readExtended(data, pos, delta);
+                pos += extendedSize(optionHeader >> 4);
+            }
+            if (len >= 13) {
+                len = readExtended(data, pos, len);
+                pos += extendedSize(optionHeader & 0x0F);
+            }
+            if (pos + len > end) {
+                return ERR_OPTION_FORMAT;
+            }
+
+            optionNumber += delta;
+            try {
+                options.put(optionNumber, copy(data, pos, len));
+            } catch (IllegalArgumentException ex) {
+                return ERR_OPTION_VALUE;
+            }
+            pos += len;
+        }
+        return OK;
+    }
+
+    private static int extendedSize(int nibble) {
+        return nibble < 13 ? 0 : nibble - 12;
+    }
+
+    private static int readExtended(byte[] data, int pos, int nibble) {
+        if (nibble == 13) {
+            return (data[pos] & 0xFF) + 13;
+        }
+        return (((data[pos] & 0xFF) << 8) | (data[pos + 1] & 0xFF)) + 269;
+    }
+
+    private static Opaque copy(byte[] data, int from, int len) {
+        return len == 0 ? Opaque.EMPTY : Opaque.of(Arrays.copyOfRange(data, from, from + len));
+    }
+
+    public static String describe(int result) {
+        switch (result) {
+            case OK:
+                return "OK";
+            case ERR_TOO_SHORT:
+                return "Message too short";
+            case ERR_VERSION:
+                return "CoAP version not supported";
+            case ERR_TOKEN_LENGTH:
+                return "Wrong TOKEN value, size should be within range 0-8";
+            case ERR_METHOD:
+                return "Wrong method code";
+            case ERR_OPTION_FORMAT:
+                return "Malformed option header";
+            case ERR_OPTION_VALUE:
+                return "Illegal option value";
+            default:
+                return "Unknown error: " + result;
+        }
+    }
+}
@@ -53,9 +53,16 @@ public enum Code {
     C704_RELEASE(7, 04, 500),
     C705_ABORT(7, 05, 500);
 
+    private static final Code[] BY_COAP_CODE = new Code[256];
     private final int coapCode;
     private final int httpStatus;
 
+    static {
+        for (Code code : values()) {
+            BY_COAP_CODE[code.coapCode] = code;
+        }
+    }
+
     Code(int codeClass, int codeDetail, int httpStatus) {
         this.coapCode = (codeClass << 5) + codeDetail;
         this.httpStatus = httpStatus;
@@ -74,12 +81,10 @@ public enum Code {
     }
 
     public static Code valueOf(int code) {
-        for (Code c : Code.values()) {
-            if (c.getCoapCode() == code) {
-                return c;
-            }
+        if (code < 0 || code >= BY_COAP_CODE.length) {
+            return null;
         }
-        return null;
+        return BY_COAP_CODE[code];
     }
 
     public static Code valueOf(int codeClass, int codeDetail) {
@@ -120,6 +120,10 @@ public final class Opaque {
         outputStream.write(data);
     }
 
+    void copyTo(byte[] dest, int destPos) {
+        System.arraycopy(data, 0, dest, destPos, data.length);
+    }
+
     @Override
     public String toString() {
         return toHex();
@@ -19,6 +19,7 @@ package com.mbed.coap.server;
 import static com.mbed.coap.utils.Validations.*;
 import com.mbed.coap.packet.CoapRequest;
 import com.mbed.coap.packet.CoapResponse;
+import com.mbed.coap.server.messaging.MulticastExchanges;
 import com.mbed.coap.transport.CoapReceiver;
 import com.mbed.coap.transport.CoapTransport;
 import com.mbed.coap.utils.Service;
@@ -33,13 +34,28 @@ public class CoapServer {
     private final CoapTransport transport;
     private final CoapReceiver dispatcher;
     private final Service<CoapRequest, CoapResponse> inboundService;
+    private final MulticastExchanges multicastExchanges;
+    private final Runnable startAll;
     private final Runnable stopAll;
 
     public CoapServer(CoapTransport transport, CoapReceiver dispatcher, Service<CoapRequest, CoapResponse> inboundService,
             Runnable stopAll) {
+        this(transport, dispatcher, inboundService, null, stopAll);
+    }
+
+    public CoapServer(CoapTransport transport, CoapReceiver dispatcher, Service<CoapRequest, CoapResponse> inboundService,
+            MulticastExchanges multicastExchanges, Runnable stopAll) {
+        this(transport, dispatcher, inboundService, multicastExchanges, () -> {
+        }, stopAll);
+    }
+
+    public CoapServer(CoapTransport transport, CoapReceiver dispatcher, Service<CoapRequest, CoapResponse> inboundService,
+            MulticastExchanges multicastExchanges, Runnable startAll, Runnable stopAll) {
         this.transport = transport;
         this.dispatcher = dispatcher;
         this.inboundService = inboundService;
+        this.multicastExchanges = multicastExchanges;
+        this.startAll = startAll;
         this.stopAll = stopAll;
     }
 
@@ -56,6 +72,7 @@ public class CoapServer {
      */
     public synchronized CoapServer start() throws IOException, IllegalStateException {
         assume(!isRunning, "CoapServer is running");
+        startAll.run();
         transport.start(dispatcher);
         isRunning = true;
         return this;
@@ -101,6 +118,15 @@ public class CoapServer {
         return inboundService;
     }
 
+    /**
+     * Returns service for sending requests to multicast groups.
+     *
+     * @return multicast exchanges, or null if multicast is not enabled for this server
+     */
+    public MulticastExchanges multicastExchanges() {
+        return multicastExchanges;
+    }
+
     public CoapReceiver getDispatcher() {
         return dispatcher;
     }
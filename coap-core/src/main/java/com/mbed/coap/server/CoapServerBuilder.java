@@ -30,6 +30,7 @@ import com.mbed.coap.server.block.BlockWiseIncomingFilter;
 import com.mbed.coap.server.block.BlockWiseNotificationFilter;
 import com.mbed.coap.server.block.BlockWiseOutgoingFilter;
 import com.mbed.coap.server.filter.CongestionControlFilter;
+import com.mbed.coap.server.filter.MulticastResponseFilter;
 import com.mbed.coap.server.filter.TimeoutFilter;
 import com.mbed.coap.server.messaging.Capabilities;
 import com.mbed.coap.server.messaging.CapabilitiesResolver;
@@ -39,15 +40,21 @@ import com.mbed.coap.server.messaging.DuplicateDetector;
 import com.mbed.coap.server.messaging.ExchangeFilter;
 import com.mbed.coap.server.messaging.MessageIdSupplier;
 import com.mbed.coap.server.messaging.MessageIdSupplierImpl;
+import com.mbed.coap.server.messaging.MulticastExchanges;
 import com.mbed.coap.server.messaging.ObservationMapper;
 import com.mbed.coap.server.messaging.PiggybackedExchangeFilter;
 import com.mbed.coap.server.messaging.RetransmissionFilter;
 import com.mbed.coap.transmission.CoapTimeout;
 import com.mbed.coap.transmission.TransmissionTimeout;
+import com.mbed.coap.transport.CoapReceiver;
 import com.mbed.coap.transport.CoapTransport;
+import com.mbed.coap.transport.DropPolicy;
+import com.mbed.coap.transport.IngressQueueReceiver;
+import com.mbed.coap.transport.StripedCoapReceiver;
 import com.mbed.coap.transport.udp.DatagramSocketTransport;
 import com.mbed.coap.utils.Filter;
 import com.mbed.coap.utils.Service;
+import com.mbed.coap.utils.Threads;
 import com.mbed.coap.utils.Timer;
 import java.net.InetSocketAddress;
 import java.time.Duration;
@@ -117,6 +124,12 @@ public abstract class CoapServerBuilder<T extends CoapServerBuilder<?>> {
         private Duration finalOutboundTimeout = Duration.ofMillis(DELAYED_TRANSACTION_TIMEOUT_MS);
         private DuplicatedCoapMessageCallback duplicatedCoapMessageCallback = DuplicatedCoapMessageCallback.NULL;
         private TransmissionTimeout transmissionTimeout = new CoapTimeout();
+        private int dispatcherWorkers;
+        private int dispatcherQueueSize;
+        private int ingressQueueSize;
+        private DropPolicy ingressDropPolicy;
+        private Duration multicastLeisure = MulticastResponseFilter.DEFAULT_LEISURE;
+        private boolean multicastEnabled;
 
         private CoapServerBuilderForUdp() {
         }
@@ -241,11 +254,63 @@ public abstract class CoapServerBuilder<T extends CoapServerBuilder<?>> {
             return this;
         }
 
+        /**
+         * Processes received packets in a pool of workers instead of transport reading thread.
+         * Packets from the same peer are always processed by the same worker, in order of arrival.
+         *
+         * @param workers number of worker threads
+         * @param queueSize maximum number of waiting packets per worker, when exceeded packets are dropped
+         * @return this instance
+         */
+        public CoapServerBuilderForUdp dispatcherWorkers(int workers, int queueSize) {
+            require(workers > 0 && queueSize > 0);
+            this.dispatcherWorkers = workers;
+            this.dispatcherQueueSize = queueSize;
+            return this;
+        }
+
+        /**
+         * Puts received packets into a bounded queue before processing. When queue is full, drop policy decides
+         * which packets are dropped.
+         *
+         * @param queueSize queue capacity
+         * @param dropPolicy drop policy, also provides counters of dropped packets
+         * @return this instance
+         */
+        public CoapServerBuilderForUdp ingressQueue(int queueSize, DropPolicy dropPolicy) {
+            require(queueSize > 0);
+            this.ingressQueueSize = queueSize;
+            this.ingressDropPolicy = requireNonNull(dropPolicy);
+            return this;
+        }
+
+        /**
+         * Sets leisure period for responses to multicast requests, response is delayed by random time within it.
+         *
+         * @param leisure leisure period, zero to respond without delay
+         * @return this instance
+         */
+        public CoapServerBuilderForUdp multicastLeisure(Duration leisure) {
+            require(!leisure.isNegative());
+            this.multicastLeisure = leisure;
+            return this;
+        }
+
+        /**
+         * Enables sending requests to multicast groups, with {@link CoapServer#multicastExchanges()}.
+         *
+         * @return this instance
+         */
+        public CoapServerBuilderForUdp enableMulticast() {
+            this.multicastEnabled = true;
+            return this;
+        }
+
         @Override
         public CoapServer build() {
             requireNonNull(coapTransport);
             if (scheduledExecutorService == null) {
-                scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+                scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(Threads.defaultFactory());
             }
 
             if (blockSize != null && blockSize.isBert()) {
@@ -290,6 +355,7 @@ public abstract class CoapServerBuilder<T extends CoapServerBuilder<?>> {
             PutOnlyMap<CoapRequestId, CoapPacket> duplicateDetectorCache = getDuplicateDetectorCache();
             DuplicateDetector duplicateDetector = new DuplicateDetector(duplicateDetectorCache, duplicatedCoapMessageCallback);
             Service<CoapPacket, CoapPacket> inboundService = duplicateDetector
+                    .andThen(new MulticastResponseFilter(timer, multicastLeisure))
                     .andThen(new CoapRequestConverter(midSupplier))
                     .andThen(new RescueFilter())
                     .andThen(new CriticalOptionVerifier())
@@ -302,12 +368,35 @@ public abstract class CoapServerBuilder<T extends CoapServerBuilder<?>> {
                     .andThen(new ObservationMapper())
                     .then(obs -> completedFuture(observationHandler.notify(obs, outboundService)));
 
+            // MULTICAST
+            MulticastExchanges multicastExchanges = multicastEnabled ? new MulticastExchanges(sender, midSupplier, timer, transmissionTimeout) : null;
+
             CoapDispatcher dispatcher = new CoapDispatcher(sender, inboundObservation, inboundService,
-                    piggybackedExchangeFilter::handleResponse, exchangeFilter::handleResponse
+                    piggybackedExchangeFilter::handleResponse,
+                    multicastExchanges != null
+                            ? resp -> exchangeFilter.handleResponse(resp) || multicastExchanges.handleResponse(resp)
+                            : exchangeFilter::handleResponse
             );
 
-            return new CoapServer(coapTransport, dispatcher, outboundService, () -> {
+            StripedCoapReceiver stripedReceiver = dispatcherWorkers > 0 ? new StripedCoapReceiver(dispatcher, dispatcherWorkers, dispatcherQueueSize) : null;
+            CoapReceiver receiver = stripedReceiver != null ? stripedReceiver : dispatcher;
+            IngressQueueReceiver ingressReceiver = ingressDropPolicy != null ? new IngressQueueReceiver(receiver, ingressQueueSize, ingressDropPolicy) : null;
+
+            return new CoapServer(coapTransport, ingressReceiver != null ? ingressReceiver : receiver, outboundService, multicastExchanges, () -> {
+                if (ingressReceiver != null) {
+                    ingressReceiver.start();
+                }
+            }, () -> {
+                if (ingressReceiver != null) {
+                    ingressReceiver.stop();
+                }
+                if (stripedReceiver != null) {
+                    stripedReceiver.stop();
+                }
                 piggybackedExchangeFilter.stop();
+                if (multicastExchanges != null) {
+                    multicastExchanges.stop();
+                }
                 duplicateDetectorCache.stop();
             });
 
@@ -28,10 +28,12 @@ import com.mbed.coap.packet.Opaque;
 import com.mbed.coap.packet.SeparateResponse;
 import com.mbed.coap.utils.FutureHelpers;
 import com.mbed.coap.utils.Service;
+import java.net.InetSocketAddress;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,12 +42,35 @@ class ObservationHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ObservationHandler.class.getName());
     private final Map<Opaque, ObservationListenerContainer> observationMap = new ConcurrentHashMap<>();
+    private final BiConsumer<InetSocketAddress, Opaque> terminationListener;
+
+    ObservationHandler() {
+        this((peer, token) -> {
+        });
+    }
+
+    /**
+     * @param terminationListener called with peer address and token when observation is terminated by notification
+     */
+    ObservationHandler(BiConsumer<InetSocketAddress, Opaque> terminationListener) {
+        this.terminationListener = terminationListener;
+    }
 
     private void terminate(SeparateResponse observationResp) {
         ObservationListenerContainer obsListContainer = observationMap.remove(observationResp.getToken());
         if (obsListContainer != null) {
             obsListContainer.complete(observationResp.asResponse());
+            terminationListener.accept(observationResp.getPeerAddress(), observationResp.getToken());
+        }
+    }
+
+    // observer did not provide next promise
+    private boolean terminatedIfNotContinued(SeparateResponse observationResp) {
+        if (observationMap.containsKey(observationResp.getToken())) {
+            return false;
         }
+        terminationListener.accept(observationResp.getPeerAddress(), observationResp.getToken());
+        return true;
     }
 
     public boolean notify(SeparateResponse observationResp, Service<CoapRequest, CoapResponse> clientService) {
@@ -73,6 +98,7 @@ class ObservationHandler {
             if (requestBlock2Res.getSize() != observationResp.getPayload().size()) {
                 LOGGER.warn("Block size does not match payload size {}!={}", requestBlock2Res.getSize(), observationResp.getPayload().size());
                 obsListContainer.cancel();
+                terminatedIfNotContinued(observationResp);
                 return false;
             }
             // retrieve full notification payload
@@ -83,12 +109,13 @@ class ObservationHandler {
                     .apply(fullNotifRequest)
                     .thenCompose(resp -> merge(resp, observationResp))
                     .thenAccept(obsListContainer::complete)
+                    .thenRun(() -> terminatedIfNotContinued(observationResp))
                     .exceptionally(FutureHelpers.log(LOGGER));
             return true;
         } else {
             obsListContainer.complete(observationResp.asResponse());
             // if observer did not provide next promise, terminating observation
-            return observationMap.containsKey(observationResp.getToken());
+            return !terminatedIfNotContinued(observationResp);
         }
     }
 
@@ -105,8 +132,12 @@ class ObservationHandler {
     }
 
     public Supplier<CompletableFuture<CoapResponse>> nextSupplier(Opaque token, String uriPath) {
+        return nextSupplier(null, token, uriPath);
+    }
+
+    public Supplier<CompletableFuture<CoapResponse>> nextSupplier(InetSocketAddress peerAddress, Opaque token, String uriPath) {
         return () -> {
-            ObservationListenerContainer obsRelation = new ObservationListenerContainer(uriPath);
+            ObservationListenerContainer obsRelation = new ObservationListenerContainer(peerAddress, uriPath);
             ObservationListenerContainer prev = observationMap.put(token, obsRelation);
             if (prev != null) {
                 prev.cancel();
@@ -115,15 +146,31 @@ class ObservationHandler {
         };
     }
 
+    /**
+     * Cancels observation, for example when connection that it was established on is closed. Observation with the same
+     * token, but with other peer is not cancelled.
+     */
+    void cancel(InetSocketAddress peerAddress, Opaque token) {
+        ObservationListenerContainer obsListContainer = observationMap.get(token);
+        if (obsListContainer == null || obsListContainer.peerAddress != null && !obsListContainer.peerAddress.equals(peerAddress)) {
+            return;
+        }
+        if (observationMap.remove(token, obsListContainer)) {
+            obsListContainer.cancel();
+        }
+    }
+
     boolean hasObservation(Opaque token) {
         return observationMap.containsKey(token);
     }
 
     private static class ObservationListenerContainer {
+        private final InetSocketAddress peerAddress;
         private final String uriPath;
         private final CompletableFuture<CoapResponse> promise;
 
-        ObservationListenerContainer(String uriPath) {
+        ObservationListenerContainer(InetSocketAddress peerAddress, String uriPath) {
+            this.peerAddress = peerAddress;
             this.uriPath = uriPath;
             this.promise = new CompletableFuture<>();
         }
@@ -49,7 +49,7 @@ class ObserveRequestFilter implements Filter.SimpleFilter<CoapRequest, CoapRespo
         return service.apply(obsReq)
                 .thenApply(resp -> {
                             if (resp.options().getObserve() != null) {
-                                return resp.nextSupplier(observationHandler.nextSupplier(obsReq.getToken(), obsReq.options().getUriPath()));
+                                return resp.nextSupplier(observationHandler.nextSupplier(obsReq.getPeerAddress(), obsReq.getToken(), obsReq.options().getUriPath()));
                             } else {
                                 return resp;
                             }
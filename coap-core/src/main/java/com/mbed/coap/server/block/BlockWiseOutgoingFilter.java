@@ -17,9 +17,12 @@
 package com.mbed.coap.server.block;
 
 import static com.mbed.coap.utils.FutureHelpers.*;
+import static com.mbed.coap.utils.Validations.*;
 import com.mbed.coap.exception.CoapException;
 import com.mbed.coap.packet.CoapRequest;
 import com.mbed.coap.packet.CoapResponse;
+import com.mbed.coap.packet.Opaque;
+import com.mbed.coap.server.messaging.Capabilities;
 import com.mbed.coap.server.messaging.CapabilitiesResolver;
 import com.mbed.coap.utils.Filter;
 import com.mbed.coap.utils.Service;
@@ -28,10 +31,21 @@ import java.util.concurrent.CompletableFuture;
 public class BlockWiseOutgoingFilter implements Filter.SimpleFilter<CoapRequest, CoapResponse> {
     private final CapabilitiesResolver capabilities;
     private final int maxIncomingBlockTransferSize;
+    private final int bertWindowSize;
 
     public BlockWiseOutgoingFilter(CapabilitiesResolver capabilities, int maxIncomingBlockTransferSize) {
+        this(capabilities, maxIncomingBlockTransferSize, 1);
+    }
+
+    /**
+     * @param bertWindowSize maximum number of BERT block messages in flight within single transfer,
+     * 1 means that blocks are exchanged one by one
+     */
+    public BlockWiseOutgoingFilter(CapabilitiesResolver capabilities, int maxIncomingBlockTransferSize, int bertWindowSize) {
+        require(bertWindowSize > 0);
         this.capabilities = capabilities;
         this.maxIncomingBlockTransferSize = maxIncomingBlockTransferSize;
+        this.bertWindowSize = bertWindowSize;
     }
 
 
@@ -39,13 +53,21 @@ public class BlockWiseOutgoingFilter implements Filter.SimpleFilter<CoapRequest,
     public CompletableFuture<CoapResponse> apply(CoapRequest request, Service<CoapRequest, CoapResponse> service) {
 
         try {
+            Capabilities csm = capabilities.getOrDefault(request.getPeerAddress());
+            Opaque requestPayload = request.getPayload();
             BlockWiseCallback blockCallback = new BlockWiseCallback(
                     service,
-                    capabilities.getOrDefault(request.getPeerAddress()),
+                    csm,
                     request,
                     maxIncomingBlockTransferSize
             );
 
+            if (bertWindowSize > 1 && csm.isBERTEnabled()) {
+                PipelinedBlockTransfer pipelined = new PipelinedBlockTransfer(service, csm, blockCallback.request, requestPayload, bertWindowSize, maxIncomingBlockTransferSize);
+                return service.apply(blockCallback.request)
+                        .thenCompose(resp -> pipelined.receive(resp, blockCallback));
+            }
+
             return service.apply(blockCallback.request)
                     .thenCompose(blockCallback::receive);
 
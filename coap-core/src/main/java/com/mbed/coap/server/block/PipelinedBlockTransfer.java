@@ -0,0 +1,404 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.server.block;
+
+import com.mbed.coap.exception.CoapBlockException;
+import com.mbed.coap.exception.CoapBlockTooLargeEntityException;
+import com.mbed.coap.exception.CoapException;
+import com.mbed.coap.packet.BlockOption;
+import com.mbed.coap.packet.CoapRequest;
+import com.mbed.coap.packet.CoapResponse;
+import com.mbed.coap.packet.Code;
+import com.mbed.coap.packet.Opaque;
+import com.mbed.coap.server.messaging.Capabilities;
+import com.mbed.coap.utils.Service;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * BERT block-wise transfer that keeps a window of block messages in flight, instead of waiting for every response.
+ * First message is always exchanged alone, so that remote may still change block size or reject request,
+ * remaining Block1 messages are sent in order and Block2 responses are reassembled in order of block numbers.
+ * Every pipelined message has its own token. Unexpected responses fall back to sequential {@link BlockWiseCallback}.
+ * <p/>
+ * While end of resource is unknown, blocks past it may be requested; an error response (without Block2) is therefore
+ * final only when it answers the lowest outstanding block. Errors of higher blocks are held back and those blocks are
+ * requested again, one at a time, when all lower blocks are received and end of resource is still not reached.
+ */
+class PipelinedBlockTransfer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelinedBlockTransfer.class);
+
+    private final Service<CoapRequest, CoapResponse> sendService;
+    private final Capabilities csm;
+    private final CoapRequest request;
+    private final Opaque requestPayload;
+    private final int windowSize;
+    private final int maxIncomingBlockTransferSize;
+    private final CompletableFuture<CoapResponse> promise = new CompletableFuture<>();
+    private final long tokenBase = ThreadLocalRandom.current().nextLong(1L << 32, 1L << 62);
+    private int tokenSeq;
+    private int inFlight;
+    private final Queue<CoapRequest> sendQueue = new ArrayDeque<>();
+    private boolean sending;
+
+    // upload
+    private final List<BlockOption> uploadBlocks = new ArrayList<>();
+    private int nextUpload;
+
+    // download
+    private CoapRequest downloadRequest;
+    private CoapResponse firstBlock;
+    private int step;
+    private int firstNr;
+    private int nextNr;
+    private int lastNr = Integer.MAX_VALUE;
+    private int receivedSize;
+    private boolean restarted;
+    private final TreeMap<Integer, CoapResponse> blocks = new TreeMap<>();
+    // blocks answered with error while a lower block was outstanding
+    private final TreeSet<Integer> failedNrs = new TreeSet<>();
+
+    /**
+     * @param request first message of transfer, as it was sent
+     * @param requestPayload full payload of request
+     */
+    PipelinedBlockTransfer(Service<CoapRequest, CoapResponse> sendService, Capabilities csm, CoapRequest request, Opaque requestPayload, int windowSize, int maxIncomingBlockTransferSize) {
+        this.sendService = sendService;
+        this.csm = csm;
+        this.request = request;
+        this.requestPayload = requestPayload;
+        this.windowSize = windowSize;
+        this.maxIncomingBlockTransferSize = maxIncomingBlockTransferSize;
+    }
+
+    CompletableFuture<CoapResponse> receive(CoapResponse response, BlockWiseCallback sequential) {
+        synchronized (this) {
+            if (isUploadContinued(response)) {
+                startUpload();
+            } else if (isDownloadable(response)) {
+                startDownload(request, response);
+            } else {
+                return sequential.receive(response);
+            }
+        }
+        sendQueued();
+        return promise;
+    }
+
+    private boolean isUploadContinued(CoapResponse response) {
+        BlockOption reqBlock = request.options().getBlock1Req();
+        BlockOption respBlock = response.options().getBlock1Req();
+        return reqBlock != null && reqBlock.hasMore()
+                && response.getCode() == Code.C231_CONTINUE
+                && respBlock != null && respBlock.getNr() == 0 && respBlock.getBlockSize() == reqBlock.getBlockSize();
+    }
+
+    private static boolean isDownloadable(CoapResponse response) {
+        BlockOption block2 = response.options().getBlock2Res();
+        return block2 != null && block2.hasMore() && block2.getNr() == 0
+                && BlockWiseTransfer.isBlockPacketValid(response.getPayload(), block2);
+    }
+
+    private void startUpload() {
+        int maxPayloadSize = csm.getMaxOutboundPayloadSize();
+        int numberOfBertBlocks = csm.getBlockSize().numberOfBlocksPerMessage(maxPayloadSize);
+        BlockOption block = request.options().getBlock1Req();
+        while (block.hasMore()) {
+            block = BlockWiseCallback.nextBertBlock(block, requestPayload.size(), numberOfBertBlocks, maxPayloadSize);
+            uploadBlocks.add(block);
+        }
+        fillUploadWindow();
+    }
+
+    private void fillUploadWindow() {
+        int maxPayloadSize = csm.getMaxOutboundPayloadSize();
+        while (inFlight < windowSize && nextUpload < uploadBlocks.size()) {
+            BlockOption block = uploadBlocks.get(nextUpload++);
+            CoapRequest blockRequest = newRequest(request, BlockWiseTransfer.createBlockPart(block, requestPayload, maxPayloadSize));
+            blockRequest.options().setBlock1Req(block);
+            // size headers only in first block
+            blockRequest.options().setSize1(null);
+            enqueue(blockRequest);
+        }
+    }
+
+    private void startDownload(CoapRequest template, CoapResponse response) {
+        BlockOption block2 = response.options().getBlock2Res();
+        if (!BlockWiseTransfer.isBlockPacketValid(response.getPayload(), block2)) {
+            promise.completeExceptionally(new CoapBlockException("Intermediate block size mismatch with block option " + block2 + " and payload size " + response.getPayload().size()));
+            return;
+        }
+        downloadRequest = newRequest(template, template.getPayload());
+        downloadRequest.options().setBlock1Req(null);
+        // observation is established with first block only
+        downloadRequest.options().setObserve(null);
+        firstBlock = response;
+        step = response.getPayload().size() / block2.getSize();
+        firstNr = block2.getNr() + step;
+        nextNr = firstNr;
+        receivedSize = response.getPayload().size();
+        if (!isTooLarge()) {
+            fillDownloadWindow();
+        }
+    }
+
+    private void fillDownloadWindow() {
+        // do not go further while it is not known whether failed block is past the end
+        while (inFlight < windowSize && nextNr <= lastNr && failedNrs.isEmpty()) {
+            enqueueBlock2(nextNr);
+            nextNr += step;
+        }
+    }
+
+    private void enqueueBlock2(int nr) {
+        CoapRequest blockRequest = newRequest(downloadRequest, downloadRequest.getPayload());
+        blockRequest.options().setBlock2Res(new BlockOption(nr, firstBlock.options().getBlock2Res().getBlockSize(), false));
+        enqueue(blockRequest);
+    }
+
+    private int lowestOutstandingNr() {
+        int nr = firstNr;
+        while (blocks.containsKey(nr)) {
+            nr += step;
+        }
+        return nr;
+    }
+
+    private CoapRequest newRequest(CoapRequest template, Opaque payload) {
+        Opaque token = Opaque.variableUInt(tokenBase + (++tokenSeq));
+        return new CoapRequest(template.getMethod(), token, template.options().duplicate(), payload, template.getPeerAddress(), template.getTransContext());
+    }
+
+    private void enqueue(CoapRequest blockRequest) {
+        inFlight++;
+        sendQueue.add(blockRequest);
+    }
+
+    // Sends queued requests in order, by one thread at a time. Responses may complete synchronously
+    // and enqueue further requests, those are picked up by the loop instead of being sent out of order.
+    private void sendQueued() {
+        synchronized (this) {
+            if (sending) {
+                return;
+            }
+            sending = true;
+        }
+        while (true) {
+            CoapRequest blockRequest;
+            synchronized (this) {
+                if (promise.isDone() || restarted) {
+                    sendQueue.clear();
+                }
+                blockRequest = sendQueue.poll();
+                if (blockRequest == null) {
+                    sending = false;
+                    return;
+                }
+            }
+            LOGGER.trace("Pipelined block request: {}", blockRequest);
+            sendService.apply(blockRequest).whenComplete((resp, ex) -> {
+                if (ex != null) {
+                    promise.completeExceptionally(ex);
+                } else if (blockRequest.options().getBlock1Req() != null) {
+                    receiveBlock1(blockRequest, resp);
+                } else {
+                    receiveBlock2(blockRequest, resp);
+                }
+            });
+        }
+    }
+
+    private void receiveBlock1(CoapRequest blockRequest, CoapResponse response) {
+        synchronized (this) {
+            inFlight--;
+            if (promise.isDone()) {
+                return;
+            }
+
+            if (blockRequest.options().getBlock1Req().hasMore()) {
+                if (response.getCode() != Code.C231_CONTINUE) {
+                    // abort transfer, see https://tools.ietf.org/html/rfc7959#section-2.9
+                    LOGGER.warn("Error in block transfer: response=" + response);
+                    promise.complete(response);
+                    return;
+                }
+                fillUploadWindow();
+            } else {
+                BlockOption block2 = response.options().getBlock2Res();
+                if (block2 == null || !block2.hasMore()) {
+                    promise.complete(response);
+                    return;
+                }
+                startDownload(blockRequest, response);
+            }
+        }
+        sendQueued();
+    }
+
+    private void receiveBlock2(CoapRequest blockRequest, CoapResponse response) {
+        boolean restart = false;
+        synchronized (this) {
+            inFlight--;
+            if (promise.isDone() || restarted) {
+                return;
+            }
+            BlockOption block2 = response.options().getBlock2Res();
+            if (block2 == null) {
+                receiveBlock2Error(blockRequest.options().getBlock2Res().getNr(), response);
+            } else {
+                restart = receiveBlock2Response(blockRequest, block2, response);
+            }
+        }
+        if (restart) {
+            restartSequentially();
+        } else {
+            sendQueued();
+        }
+    }
+
+    private void receiveBlock2Error(int nr, CoapResponse response) {
+        if (nr > lastNr) {
+            // past the end of resource
+            return;
+        }
+        if (nr == lowestOutstandingNr()) {
+            promise.complete(response);
+            return;
+        }
+        LOGGER.trace("Error response for block {}, lower block is outstanding: {}", nr, response);
+        failedNrs.add(nr);
+    }
+
+    // returns true when transfer has to be restarted
+    private boolean receiveBlock2Response(CoapRequest blockRequest, BlockOption block2, CoapResponse response) {
+        String errMsg = verifyBlockResponse(blockRequest.options().getBlock2Res(), block2, response.getPayload());
+        if (errMsg != null) {
+            promise.completeExceptionally(new CoapBlockException(errMsg));
+            return false;
+        }
+        if (hasResourceChanged(block2, response)) {
+            LOGGER.trace("CoAP resource representation has changed while getting pipelined blocks");
+            restarted = true;
+            return true;
+        }
+        receiveDownloadedBlock(block2, response);
+        return false;
+    }
+
+    private void receiveDownloadedBlock(BlockOption block2, CoapResponse response) {
+        if (block2.getNr() <= lastNr) {
+            blocks.put(block2.getNr(), response);
+            receivedSize += response.getPayload().size();
+            if (!block2.hasMore()) {
+                lastNr = block2.getNr();
+                // blocks past the end of resource
+                while (blocks.lastKey() > lastNr) {
+                    receivedSize -= blocks.pollLastEntry().getValue().getPayload().size();
+                }
+                failedNrs.tailSet(lastNr, false).clear();
+            }
+        }
+        if (isTooLarge()) {
+            return;
+        }
+        if (lastNr != Integer.MAX_VALUE && blocks.size() == (lastNr - firstNr) / step + 1) {
+            promise.complete(reassemble());
+            return;
+        }
+        if (!failedNrs.isEmpty() && failedNrs.first() == lowestOutstandingNr()) {
+            // all lower blocks received and end is not reached, so it is not past the end
+            enqueueBlock2(failedNrs.pollFirst());
+            return;
+        }
+        fillDownloadWindow();
+    }
+
+    private static String verifyBlockResponse(BlockOption requestBlock, BlockOption responseBlock, Opaque payload) {
+        if (requestBlock.getNr() != responseBlock.getNr()) {
+            return "Requested and received block number mismatch: req=" + requestBlock + ", resp=" + responseBlock + ", stopping transaction";
+        }
+        if (!BlockWiseTransfer.isBlockPacketValid(payload, responseBlock)) {
+            return "Intermediate block size mismatch with block option " + responseBlock + " and payload size " + payload.size();
+        }
+        if (!BlockWiseTransfer.isLastBlockPacketValid(payload, responseBlock)) {
+            return "Last block size mismatch with block option " + responseBlock + " and payload size " + payload.size();
+        }
+        return null;
+    }
+
+    private boolean hasResourceChanged(BlockOption block2, CoapResponse response) {
+        // intermediate blocks are expected to have same size as first one, otherwise window would have gaps
+        return !Objects.equals(firstBlock.options().getEtag(), response.options().getEtag())
+                || block2.getBlockSize() != firstBlock.options().getBlock2Res().getBlockSize()
+                || (block2.hasMore() && response.getPayload().size() != firstBlock.getPayload().size());
+    }
+
+    private boolean isTooLarge() {
+        if (receivedSize > maxIncomingBlockTransferSize) {
+            promise.completeExceptionally(new CoapBlockTooLargeEntityException("Received too large entity for request, max allowed " + maxIncomingBlockTransferSize + ", received " + receivedSize));
+            return true;
+        }
+        return false;
+    }
+
+    private void restartSequentially() {
+        CoapRequest restartRequest = newRequest(downloadRequest, downloadRequest.getPayload());
+        restartRequest.options().setBlock2Res(new BlockOption(0, firstBlock.options().getBlock2Res().getBlockSize(), false));
+        try {
+            BlockWiseCallback blockCallback = new BlockWiseCallback(sendService, csm, restartRequest, maxIncomingBlockTransferSize);
+            sendService.apply(blockCallback.request)
+                    .thenCompose(blockCallback::receive)
+                    .whenComplete((resp, ex) -> {
+                        if (ex != null) {
+                            promise.completeExceptionally(ex);
+                        } else {
+                            promise.complete(resp);
+                        }
+                    });
+        } catch (CoapException e) {
+            promise.completeExceptionally(e);
+        }
+    }
+
+    private CoapResponse reassemble() {
+        byte[] payload = new byte[receivedSize];
+        int pos = append(payload, 0, firstBlock.getPayload());
+        CoapResponse lastBlock = firstBlock;
+        for (CoapResponse block : blocks.values()) {
+            pos = append(payload, pos, block.getPayload());
+            lastBlock = block;
+        }
+
+        CoapResponse response = new CoapResponse(lastBlock.getCode(), new Opaque(payload), firstBlock.options().duplicate());
+        response.options().setBlock2Res(lastBlock.options().getBlock2Res());
+        return response;
+    }
+
+    private static int append(byte[] dest, int pos, Opaque part) {
+        System.arraycopy(part.getBytes(), 0, dest, pos, part.size());
+        return pos + part.size();
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.server.filter;
+
+import static com.mbed.coap.transport.udp.MulticastDatagramTransport.*;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.server.messaging.CoapDispatcher;
+import com.mbed.coap.utils.Filter;
+import com.mbed.coap.utils.Service;
+import com.mbed.coap.utils.Timer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Handles responses for requests received from multicast group (RFC 7252, section 8.2):
+ * error responses are suppressed and other responses are delayed by random time within leisure period.
+ * Suppressed response is replaced with {@link CoapDispatcher#NO_RESPONSE}, so that it is not sent and duplicated
+ * request is not answered either.
+ */
+public class MulticastResponseFilter implements Filter.SimpleFilter<CoapPacket, CoapPacket> {
+    public static final Duration DEFAULT_LEISURE = Duration.ofSeconds(5);
+
+    private final Timer timer;
+    private final long leisureMillis;
+
+    public MulticastResponseFilter(Timer timer, Duration leisure) {
+        this.timer = timer;
+        this.leisureMillis = leisure.toMillis();
+    }
+
+    @Override
+    public CompletableFuture<CoapPacket> apply(CoapPacket request, Service<CoapPacket, CoapPacket> service) {
+        if (!isMulticast(request.getTransportContext())) {
+            return service.apply(request);
+        }
+
+        return service.apply(request).thenCompose(resp -> {
+            if (resp.getCode() != null && resp.getCode().getHttpCode() >= 400) {
+                return CompletableFuture.completedFuture(CoapDispatcher.NO_RESPONSE);
+            }
+            if (leisureMillis <= 0) {
+                return CompletableFuture.completedFuture(resp);
+            }
+
+            CompletableFuture<CoapPacket> promise = new CompletableFuture<>();
+            timer.schedule(Duration.ofMillis(ThreadLocalRandom.current().nextLong(leisureMillis)), () -> promise.complete(resp));
+            return promise;
+        });
+    }
+}
@@ -30,6 +30,13 @@ import org.slf4j.LoggerFactory;
 public final class CoapDispatcher implements CoapReceiver {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CoapDispatcher.class);
+
+    /**
+     * Response of inbound service which means that nothing should be sent back, for example when error response to
+     * a multicast request is suppressed.
+     */
+    public static final CoapPacket NO_RESPONSE = new CoapPacket(null);
+
     private final Service<CoapPacket, Boolean> sender;
 
     private final Service<CoapPacket, CoapPacket> observationHandler;
@@ -97,7 +104,11 @@ public final class CoapDispatcher implements CoapReceiver {
 
     private void handleRequest(CoapPacket packet) {
         inboundService.apply(packet)
-                .thenAccept(sender::apply)
+                .thenAccept(resp -> {
+                    if (resp != NO_RESPONSE) {
+                        sender.apply(resp);
+                    }
+                })
                 .exceptionally(logError(LOGGER));
     }
 
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.server.messaging;
+
+import static com.mbed.coap.utils.FutureHelpers.failedFuture;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.packet.CoapRequest;
+import com.mbed.coap.packet.MessageType;
+import com.mbed.coap.packet.Opaque;
+import com.mbed.coap.packet.SeparateResponse;
+import com.mbed.coap.transmission.TransmissionTimeout;
+import com.mbed.coap.utils.Service;
+import com.mbed.coap.utils.Timer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Group communication (RFC 7252, section 8): sends non-confirmable request to a multicast group and collects
+ * all responses until multicast timeout expires. Members respond from their unicast addresses, so a response is matched
+ * to the group request by token and by coming from the port and address family of the group.
+ */
+public class MulticastExchanges {
+
+    private final ConcurrentMap<Opaque, Exchange> exchanges = new ConcurrentHashMap<>();
+    private final Service<CoapPacket, Boolean> sender;
+    private final MessageIdSupplier midSupplier;
+    private final Timer timer;
+    private final TransmissionTimeout transmissionTimeout;
+
+    public MulticastExchanges(Service<CoapPacket, Boolean> sender, MessageIdSupplier midSupplier, Timer timer, TransmissionTimeout transmissionTimeout) {
+        this.sender = sender;
+        this.midSupplier = midSupplier;
+        this.timer = timer;
+        this.transmissionTimeout = transmissionTimeout;
+    }
+
+    /**
+     * Sends request to multicast group.
+     *
+     * @param request request with group address as peer address, if token is empty then random one is generated
+     * @param responseConsumer consumer of responses, called for every received response
+     * @return promise, completes with number of received responses when multicast timeout expires
+     */
+    public CompletableFuture<Integer> send(CoapRequest request, Consumer<SeparateResponse> responseConsumer) {
+        CoapPacket packet = CoapPacket.from(request);
+        packet.setMessageType(MessageType.NonConfirmable);
+        if (packet.getToken().isEmpty()) {
+            packet.setToken(Opaque.variableUInt(ThreadLocalRandom.current().nextLong()));
+        }
+        midSupplier.update(packet);
+
+        Opaque token = packet.getToken();
+        Exchange exchange = new Exchange(packet.getRemoteAddress(), responseConsumer);
+        if (exchanges.putIfAbsent(token, exchange) != null) {
+            return failedFuture(new IllegalStateException("Multicast request with token " + token.toHex() + " is in progress"));
+        }
+
+        sender.apply(packet).whenComplete((__, err) -> {
+            if (err != null) {
+                exchanges.remove(token, exchange);
+                exchange.promise.completeExceptionally(err);
+            } else {
+                timer.schedule(Duration.ofMillis(transmissionTimeout.getMulticastTimeout(1)), () -> {
+                    exchanges.remove(token, exchange);
+                    exchange.promise.complete(exchange.responses.get());
+                });
+            }
+        });
+        return exchange.promise;
+    }
+
+    public boolean handleResponse(SeparateResponse resp) {
+        Exchange exchange = exchanges.get(resp.getToken());
+        if (exchange == null || !exchange.isFromGroupMember(resp.getPeerAddress())) {
+            return false;
+        }
+        exchange.responses.incrementAndGet();
+        exchange.responseConsumer.accept(resp);
+        return true;
+    }
+
+    public void stop() {
+        exchanges.forEach((__, exchange) -> exchange.promise.completeExceptionally(new IOException("Stopped")));
+        exchanges.clear();
+    }
+
+    int exchanges() {
+        return exchanges.size();
+    }
+
+    private static class Exchange {
+        private final InetSocketAddress group;
+        private final Consumer<SeparateResponse> responseConsumer;
+        private final AtomicInteger responses = new AtomicInteger();
+        private final CompletableFuture<Integer> promise = new CompletableFuture<>();
+
+        Exchange(InetSocketAddress group, Consumer<SeparateResponse> responseConsumer) {
+            this.group = group;
+            this.responseConsumer = responseConsumer;
+        }
+
+        boolean isFromGroupMember(InetSocketAddress peer) {
+            return peer.getPort() == group.getPort() && peer.getAddress() != null && group.getAddress() != null
+                    && peer.getAddress().getClass() == group.getAddress().getClass()
+                    && !peer.getAddress().isMulticastAddress();
+        }
+    }
+}
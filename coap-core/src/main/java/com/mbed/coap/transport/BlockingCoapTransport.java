@@ -20,14 +20,22 @@ import com.mbed.coap.packet.CoapPacket;
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 
+/**
+ * Transport that sends packets synchronously on caller thread.
+ * <p>
+ * {@link #sendPacket(CoapPacket)} calls {@link #sendPacket0(CoapPacket)} and then {@link #flush()}, so subclasses
+ * that buffer in {@code sendPacket0} must write data out in {@code flush()}. It is not final, subclasses that
+ * override it are responsible for calling {@code flush()} themselves.
+ */
 public abstract class BlockingCoapTransport implements CoapTransport {
 
     @Override
-    public final CompletableFuture<Boolean> sendPacket(CoapPacket coapPacket) {
+    public CompletableFuture<Boolean> sendPacket(CoapPacket coapPacket) {
         CompletableFuture<Boolean> objectCompletableFuture = new CompletableFuture<>();
 
         try {
             sendPacket0(coapPacket);
+            flush();
             objectCompletableFuture.complete(true);
         } catch (Exception ex) {
             objectCompletableFuture.completeExceptionally(ex);
@@ -36,6 +44,19 @@ public abstract class BlockingCoapTransport implements CoapTransport {
         return objectCompletableFuture;
     }
 
+    /**
+     * Writes packet. Implementation may keep it in a buffer until {@link #flush()} is called.
+     */
     public abstract void sendPacket0(CoapPacket coapPacket) throws CoapException, IOException;
 
+    /**
+     * Writes out buffered packets. Called after every {@link #sendPacket(CoapPacket)}, and by {@link QueuedCoapTransport}
+     * writer only once after a whole burst of packets.
+     *
+     * @throws IOException if flushing failed
+     */
+    protected void flush() throws IOException {
+        // nothing to flush by default
+    }
+
 }
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport;
+
+import static com.mbed.coap.utils.Validations.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool of byte arrays used by transports for transient receive and transmit buffers.
+ * Buffers are grouped in power-of-two size classes, the largest class fits maximum message size.
+ * Arrays bigger than largest class are allocated on demand and are not pooled.
+ * <p>
+ * Each size class is an {@link ArrayBlockingQueue}, so {@link #acquire(int)} and {@link #release(byte[])} take
+ * a short lock per size class. All transports share {@link #DEFAULT}, under heavy concurrent traffic threads may
+ * contend on it; use a dedicated instance in that case.
+ */
+public final class BufferPool {
+    public static final BufferPool DEFAULT = new BufferPool(2048, 64);
+    private static final int MIN_BUFFER_SIZE = 64;
+
+    private final int maxBufferSize;
+    private final List<BlockingQueue<byte[]>> sizeClasses = new ArrayList<>();
+
+    /**
+     * Creates buffer pool.
+     *
+     * @param maxMessageSize maximum message size, largest size class is the smallest power of two that fits it
+     * @param buffersPerSizeClass maximum number of buffers kept in each size class
+     */
+    public BufferPool(int maxMessageSize, int buffersPerSizeClass) {
+        require(maxMessageSize > 0 && buffersPerSizeClass > 0);
+
+        int size = MIN_BUFFER_SIZE;
+        sizeClasses.add(new ArrayBlockingQueue<>(buffersPerSizeClass));
+        while (size < maxMessageSize) {
+            size = size << 1;
+            sizeClasses.add(new ArrayBlockingQueue<>(buffersPerSizeClass));
+        }
+        this.maxBufferSize = size;
+    }
+
+    /**
+     * Returns array that is at least of given size. Should be given back with {@link #release(byte[])}.
+     *
+     * @param minSize minimum size
+     * @return byte array
+     */
+    public byte[] acquire(int minSize) {
+        if (minSize > maxBufferSize) {
+            return new byte[minSize];
+        }
+
+        int sizeClass = sizeClassOf(minSize);
+        byte[] buffer = sizeClasses.get(sizeClass).poll();
+        if (buffer == null) {
+            buffer = new byte[MIN_BUFFER_SIZE << sizeClass];
+        }
+        return buffer;
+    }
+
+    /**
+     * Gives back array to the pool. Array must not be used by caller after that.
+     *
+     * @param buffer byte array, previously acquired from this pool
+     */
+    public void release(byte[] buffer) {
+        if (buffer == null || buffer.length > maxBufferSize || Integer.bitCount(buffer.length) != 1 || buffer.length < MIN_BUFFER_SIZE) {
+            return;
+        }
+        sizeClasses.get(sizeClassOf(buffer.length)).offer(buffer);
+    }
+
+    public int maxBufferSize() {
+        return maxBufferSize;
+    }
+
+    /**
+     * Creates output stream that writes into pooled buffer, it must be closed in order to release buffer.
+     * Stream starts with buffer from the largest size class, so messages up to maximum message size are written
+     * without growing.
+     *
+     * @return output stream
+     */
+    public PooledOutputStream outputStream() {
+        return new PooledOutputStream(this, maxBufferSize);
+    }
+
+    private static int sizeClassOf(int size) {
+        if (size <= MIN_BUFFER_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    }
+
+    public static final class PooledOutputStream extends OutputStream {
+        private final BufferPool pool;
+        private byte[] buf;
+        private int count;
+
+        PooledOutputStream(BufferPool pool, int initialSize) {
+            this.pool = pool;
+            this.buf = pool.acquire(initialSize);
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+
+        private void ensureCapacity(int minCapacity) {
+            if (minCapacity > buf.length) {
+                byte[] newBuf = pool.acquire(Math.max(minCapacity, buf.length << 1));
+                System.arraycopy(buf, 0, newBuf, 0, count);
+                pool.release(buf);
+                buf = newBuf;
+            }
+        }
+
+        /**
+         * Returns underlying buffer, valid data is from 0 to {@link #size()}. Valid only until stream is closed.
+         *
+         * @return underlying buffer
+         */
+        public byte[] buffer() {
+            return buf;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public void writeTo(OutputStream outputStream) throws IOException {
+            outputStream.write(buf, 0, count);
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buf, count);
+        }
+
+        @Override
+        public void close() {
+            if (buf != null) {
+                pool.release(buf);
+                buf = null;
+            }
+        }
+    }
+}
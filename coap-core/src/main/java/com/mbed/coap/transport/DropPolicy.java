@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport;
+
+import static com.mbed.coap.utils.Validations.*;
+import com.mbed.coap.packet.CoapPacket;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which packets are dropped by {@link IngressQueueReceiver} when it is overloaded.
+ */
+public abstract class DropPolicy {
+    protected final LongAdder droppedPackets = new LongAdder();
+
+    /**
+     * Decides if incoming packet can be added to the queue. Implementation may remove other packets from the queue
+     * to make room. Called while holding queue lock.
+     *
+     * @param queue queue with waiting packets
+     * @param packet incoming packet
+     * @return true if packet should be added to the queue, false if it is dropped
+     */
+    protected abstract boolean admit(IngressQueue queue, CoapPacket packet);
+
+    /**
+     * Returns number of all dropped packets, including removed from the queue.
+     *
+     * @return number of dropped packets
+     */
+    public long droppedPackets() {
+        return droppedPackets.sum();
+    }
+
+    /**
+     * Drops incoming packets when queue is full.
+     *
+     * @return drop policy
+     */
+    public static DropPolicy tailDrop() {
+        return new TailDrop();
+    }
+
+    /**
+     * When queue is full, non-confirmable packets are dropped first: incoming NON packet is dropped,
+     * otherwise the oldest waiting NON packet is removed from the queue.
+     *
+     * @return drop policy
+     */
+    public static DropNonConfirmableFirst dropNonConfirmableFirst() {
+        return new DropNonConfirmableFirst();
+    }
+
+    /**
+     * When queue is filled above 3/4 of its capacity, only packets from already known peers are admitted.
+     *
+     * @param maxKnownPeers maximum number of remembered peers
+     * @return drop policy
+     */
+    public static DropNewPeersFirst dropNewPeersFirst(int maxKnownPeers) {
+        return new DropNewPeersFirst(maxKnownPeers);
+    }
+
+    static class TailDrop extends DropPolicy {
+        @Override
+        protected boolean admit(IngressQueue queue, CoapPacket packet) {
+            if (queue.size() < queue.capacity()) {
+                return true;
+            }
+            droppedPackets.increment();
+            return false;
+        }
+    }
+
+    public static class DropNonConfirmableFirst extends DropPolicy {
+        private final LongAdder droppedNonConfirmable = new LongAdder();
+
+        @Override
+        protected boolean admit(IngressQueue queue, CoapPacket packet) {
+            if (queue.size() < queue.capacity()) {
+                return true;
+            }
+
+            boolean isNonConfirmable = IngressQueue.isNonConfirmable(packet);
+            if (!isNonConfirmable && queue.removeOldestNonConfirmable() != null) {
+                droppedNonConfirmable.increment();
+                droppedPackets.increment();
+                return true;
+            }
+
+            if (isNonConfirmable) {
+                droppedNonConfirmable.increment();
+            }
+            droppedPackets.increment();
+            return false;
+        }
+
+        public long droppedNonConfirmablePackets() {
+            return droppedNonConfirmable.sum();
+        }
+    }
+
+    public static class DropNewPeersFirst extends DropPolicy {
+        private final LongAdder droppedFromNewPeers = new LongAdder();
+        private final Map<InetSocketAddress, Boolean> knownPeers;
+
+        DropNewPeersFirst(int maxKnownPeers) {
+            require(maxKnownPeers > 0);
+            // LRU, accessed only under queue lock
+            this.knownPeers = new LinkedHashMap<InetSocketAddress, Boolean>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<InetSocketAddress, Boolean> eldest) {
+                    return size() > maxKnownPeers;
+                }
+            };
+        }
+
+        @Override
+        protected boolean admit(IngressQueue queue, CoapPacket packet) {
+            int capacity = queue.capacity();
+            int highWatermark = capacity - capacity / 4;
+            if (queue.size() < highWatermark) {
+                knownPeers.put(packet.getRemoteAddress(), Boolean.TRUE);
+                return true;
+            }
+
+            boolean isKnown = knownPeers.get(packet.getRemoteAddress()) != null;
+            if (isKnown && queue.size() < capacity) {
+                return true;
+            }
+
+            if (!isKnown) {
+                droppedFromNewPeers.increment();
+            }
+            droppedPackets.increment();
+            return false;
+        }
+
+        public long droppedNewPeersPackets() {
+            return droppedFromNewPeers.sum();
+        }
+    }
+}
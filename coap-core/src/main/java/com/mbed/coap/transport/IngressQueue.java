@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport;
+
+import static com.mbed.coap.utils.Validations.*;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.packet.MessageType;
+
+/**
+ * Bounded FIFO queue of received packets used by {@link IngressQueueReceiver}. Non-confirmable packets are kept
+ * apart from others, so that the oldest one can be removed in constant time. Arrival order is kept with sequence
+ * numbers. Not thread safe, accessed under lock of the receiver.
+ */
+public final class IngressQueue {
+    private final int capacity;
+    private final Ring nonConfirmable;
+    private final Ring others;
+    private long nextSeq;
+
+    IngressQueue(int capacity) {
+        require(capacity > 0);
+        this.capacity = capacity;
+        this.nonConfirmable = new Ring(capacity);
+        this.others = new Ring(capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return nonConfirmable.size + others.size;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Adds packet at the end of queue, caller must make sure that queue is not full.
+     */
+    void add(CoapPacket packet) {
+        if (size() >= capacity) {
+            throw new IllegalStateException("Ingress queue is full");
+        }
+        (isNonConfirmable(packet) ? nonConfirmable : others).add(packet, nextSeq++);
+    }
+
+    CoapPacket poll() {
+        if (nonConfirmable.size == 0) {
+            return others.poll();
+        }
+        if (others.size == 0 || nonConfirmable.headSeq() < others.headSeq()) {
+            return nonConfirmable.poll();
+        }
+        return others.poll();
+    }
+
+    /**
+     * Removes the oldest waiting non-confirmable packet.
+     *
+     * @return removed packet, or null if there is no non-confirmable packet in the queue
+     */
+    public CoapPacket removeOldestNonConfirmable() {
+        return nonConfirmable.poll();
+    }
+
+    static boolean isNonConfirmable(CoapPacket packet) {
+        return packet.getMessageType() == MessageType.NonConfirmable;
+    }
+
+    private static class Ring {
+        private final CoapPacket[] packets;
+        private final long[] seqs;
+        private int head;
+        private int size;
+
+        Ring(int capacity) {
+            packets = new CoapPacket[capacity];
+            seqs = new long[capacity];
+        }
+
+        void add(CoapPacket packet, long seq) {
+            int tail = (head + size) % packets.length;
+            packets[tail] = packet;
+            seqs[tail] = seq;
+            size++;
+        }
+
+        long headSeq() {
+            return seqs[head];
+        }
+
+        CoapPacket poll() {
+            if (size == 0) {
+                return null;
+            }
+            CoapPacket packet = packets[head];
+            packets[head] = null;
+            head = (head + 1) % packets.length;
+            size--;
+            return packet;
+        }
+    }
+}
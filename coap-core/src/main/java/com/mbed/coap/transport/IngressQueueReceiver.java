@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport;
+
+import static java.util.Objects.*;
+import com.mbed.coap.packet.CoapPacket;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admission stage in front of a receiver. Received packets are put into a bounded queue and processed by a worker,
+ * when queue is full {@link DropPolicy} decides which packets are dropped. Worker is started with {@link #start()}.
+ */
+public class IngressQueueReceiver implements CoapReceiver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IngressQueueReceiver.class);
+    private static final long POLL_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private final CoapReceiver receiver;
+    private final DropPolicy dropPolicy;
+    private final IngressQueue queue;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Executor worker;
+    private final LongAdder admittedPackets = new LongAdder();
+    private volatile boolean isRunning;
+
+    public IngressQueueReceiver(CoapReceiver receiver, int capacity, DropPolicy dropPolicy) {
+        this(receiver, capacity, dropPolicy, TransportExecutors.newWorker("coap-ingress"));
+    }
+
+    IngressQueueReceiver(CoapReceiver receiver, int capacity, DropPolicy dropPolicy, Executor worker) {
+        this.receiver = requireNonNull(receiver);
+        this.dropPolicy = requireNonNull(dropPolicy);
+        this.queue = new IngressQueue(capacity);
+        this.worker = worker;
+    }
+
+    public void start() {
+        isRunning = true;
+        TransportExecutors.loop(worker, this::processNext);
+    }
+
+    @Override
+    public void handle(CoapPacket packet) {
+        lock.lock();
+        try {
+            if (!dropPolicy.admit(queue, packet)) {
+                LOGGER.debug("[{}] Dropped received packet, ingress queue is full", packet.getRemoteAddrString());
+                return;
+            }
+            queue.add(packet);
+            admittedPackets.increment();
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean processNext() {
+        CoapPacket packet;
+        lock.lock();
+        try {
+            if (queue.isEmpty()) {
+                notEmpty.awaitNanos(POLL_TIMEOUT_NANOS);
+            }
+            packet = queue.poll();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+
+        if (packet != null) {
+            try {
+                receiver.handle(packet);
+            } catch (Exception ex) {
+                LOGGER.error(ex.toString(), ex);
+            }
+        }
+        return isRunning;
+    }
+
+    public int queueSize() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long admittedPackets() {
+        return admittedPackets.sum();
+    }
+
+    public DropPolicy dropPolicy() {
+        return dropPolicy;
+    }
+
+    public void stop() {
+        isRunning = false;
+        TransportExecutors.shutdown(worker);
+    }
+}
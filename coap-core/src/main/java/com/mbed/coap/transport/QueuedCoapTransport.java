@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport;
+
+import static com.mbed.coap.utils.FutureHelpers.failedFuture;
+import static com.mbed.coap.utils.Validations.*;
+import com.mbed.coap.packet.CoapPacket;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorates {@link BlockingCoapTransport} with bounded outbound queue. Packets are sent by a dedicated writer
+ * in bursts, so that callers are not blocked by socket latency.
+ * <p>
+ * Packets are serialized by the wrapped transport in {@link BlockingCoapTransport#sendPacket0(CoapPacket)}, this
+ * class does not serialize on its own. Only transports that buffer writes, like stream based ones, benefit from
+ * a single {@link BlockingCoapTransport#flush()} per burst; datagram transports still make one system call per packet.
+ */
+public class QueuedCoapTransport implements CoapTransport {
+    private static final int MAX_BURST_SIZE = 64;
+    private static final long POLL_TIMEOUT_MILLIS = 200;
+
+    private final BlockingCoapTransport transport;
+    private final BlockingQueue<OutboundPacket> queue;
+    private final Executor writingWorker;
+    private final List<OutboundPacket> burst = new ArrayList<>(MAX_BURST_SIZE);
+    private volatile boolean isRunning;
+
+    public QueuedCoapTransport(BlockingCoapTransport transport, int maxQueueSize) {
+        this(transport, maxQueueSize, TransportExecutors.newWorker("transport-writer"));
+    }
+
+    public QueuedCoapTransport(BlockingCoapTransport transport, int maxQueueSize, Executor writingWorker) {
+        require(maxQueueSize > 0);
+        this.transport = transport;
+        this.queue = new ArrayBlockingQueue<>(maxQueueSize);
+        this.writingWorker = writingWorker;
+    }
+
+    @Override
+    public void start(CoapReceiver coapReceiver) throws IOException {
+        transport.start(coapReceiver);
+        isRunning = true;
+
+        TransportExecutors.loop(writingWorker, this::writingLoop);
+    }
+
+    @Override
+    public void stop() {
+        isRunning = false;
+        transport.stop();
+        TransportExecutors.shutdown(writingWorker);
+
+        OutboundPacket outboundPacket;
+        while ((outboundPacket = queue.poll()) != null) {
+            outboundPacket.promise.completeExceptionally(new IOException("Transport stopped"));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sendPacket(CoapPacket coapPacket) {
+        if (!isRunning) {
+            return failedFuture(new IllegalStateException("Transport is not running"));
+        }
+
+        OutboundPacket outboundPacket = new OutboundPacket(coapPacket);
+        if (!queue.offer(outboundPacket)) {
+            return failedFuture(new IOException("Outbound queue is full"));
+        }
+        if (!isRunning && queue.remove(outboundPacket)) {
+            // stopped while offering, queue may have been already drained
+            outboundPacket.promise.completeExceptionally(new IOException("Transport stopped"));
+        }
+        return outboundPacket.promise;
+    }
+
+    boolean writingLoop() {
+        try {
+            OutboundPacket first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            if (first != null) {
+                burst.add(first);
+                queue.drainTo(burst, MAX_BURST_SIZE - 1);
+                writeBurst();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            burst.clear();
+        }
+        return isRunning;
+    }
+
+    private void writeBurst() {
+        for (int i = 0; i < burst.size(); i++) {
+            OutboundPacket outboundPacket = burst.get(i);
+            try {
+                transport.sendPacket0(outboundPacket.packet);
+            } catch (Exception ex) {
+                outboundPacket.promise.completeExceptionally(ex);
+            }
+        }
+
+        try {
+            transport.flush();
+            for (int i = 0; i < burst.size(); i++) {
+                burst.get(i).promise.complete(true);
+            }
+        } catch (Exception ex) {
+            for (int i = 0; i < burst.size(); i++) {
+                burst.get(i).promise.completeExceptionally(ex);
+            }
+        }
+    }
+
+    @Override
+    public InetSocketAddress getLocalSocketAddress() {
+        return transport.getLocalSocketAddress();
+    }
+
+    public int queueSize() {
+        return queue.size();
+    }
+
+    private static class OutboundPacket {
+        private final CoapPacket packet;
+        private final CompletableFuture<Boolean> promise = new CompletableFuture<>();
+
+        OutboundPacket(CoapPacket packet) {
+            this.packet = packet;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport;
+
+import static com.mbed.coap.utils.Validations.*;
+import static java.util.Objects.*;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.utils.Threads;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands received packets over to a fixed pool of single threaded workers, so that transport reader is not blocked
+ * by packet processing. Worker is chosen by peer address hash, that keeps packets from the same peer in order.
+ */
+public class StripedCoapReceiver implements CoapReceiver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StripedCoapReceiver.class);
+
+    private final CoapReceiver receiver;
+    private final ExecutorService[] workers;
+    private final LongAdder droppedPackets = new LongAdder();
+
+    /**
+     * Creates receiver with worker pool.
+     *
+     * @param receiver receiver that processes packets, typically CoapDispatcher
+     * @param workersCount number of workers (threads)
+     * @param queueSize maximum number of packets waiting for processing in each worker
+     */
+    public StripedCoapReceiver(CoapReceiver receiver, int workersCount, int queueSize) {
+        require(workersCount > 0 && queueSize > 0);
+        this.receiver = requireNonNull(receiver);
+        this.workers = new ExecutorService[workersCount];
+        for (int i = 0; i < workersCount; i++) {
+            workers[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueSize), Threads.factory("coap-dispatcher-" + i));
+        }
+    }
+
+    @Override
+    public void handle(CoapPacket packet) {
+        int stripe = Math.floorMod(packet.getRemoteAddress().hashCode(), workers.length);
+        try {
+            workers[stripe].execute(() -> receiver.handle(packet));
+        } catch (RejectedExecutionException ex) {
+            droppedPackets.increment();
+            LOGGER.warn("[{}] Dropped received packet, dispatcher queue is full", packet.getRemoteAddrString());
+        }
+    }
+
+    public long droppedPackets() {
+        return droppedPackets.sum();
+    }
+
+    public void stop() {
+        for (ExecutorService worker : workers) {
+            worker.shutdownNow();
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.mbed.coap.transport;
 
+import com.mbed.coap.utils.Threads;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -26,13 +27,14 @@ import org.slf4j.LoggerFactory;
 
 /*
     Helper class for running blocking operation for transport reading.
+    On java 21+ workers can run on virtual threads, see Threads.
  */
 public class TransportExecutors {
     private static final Logger LOGGER = LoggerFactory.getLogger(TransportExecutors.class);
     private static final AtomicInteger POOL_NUMBER = new AtomicInteger(0);
 
     public static Executor newWorker(String name) {
-        return Executors.newSingleThreadExecutor(r -> new Thread(r, name + "-" + POOL_NUMBER.incrementAndGet()));
+        return Executors.newSingleThreadExecutor(Threads.factory(name + "-" + POOL_NUMBER.incrementAndGet()));
     }
 
     public static void loop(Executor executor, Supplier<Boolean> task) {
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.loopback;
+
+import static java.util.Objects.*;
+import com.mbed.coap.exception.CoapException;
+import com.mbed.coap.packet.CoapPacket;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-process network that connects {@link LoopbackTransport} instances within one JVM, without sockets.
+ * Each network has its own virtual address space, addresses are allocated from 10.0.0.0/8.
+ * <p>
+ * By default packets are handed over by reference (as a shallow copy with source address), optionally they can be
+ * serialized and parsed in order to exercise codec.
+ * <p>
+ * By default packets are delivered in sender thread, but through a queue: a packet sent while handling another
+ * one is delivered after that handler returns, so that long exchanges (block transfers, observations) do not
+ * recurse on one stack.
+ */
+public final class LoopbackNetwork {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoopbackNetwork.class);
+    private static final int DEFAULT_PORT = 5683;
+    private static final int MAX_HOSTS = 0xFFFFFE;
+
+    private final ConcurrentMap<InetSocketAddress, LoopbackTransport> transports = new ConcurrentHashMap<>();
+    private final AtomicInteger lastHost = new AtomicInteger();
+    private final LongAdder droppedPackets = new LongAdder();
+    private final Executor deliveryExecutor;
+    private final boolean serialize;
+
+    public LoopbackNetwork() {
+        this(new QueuedDeliveryExecutor(), false);
+    }
+
+    /**
+     * Creates network.
+     *
+     * @param deliveryExecutor executor on which receivers handle packets, {@code Runnable::run} delivers synchronously
+     * (recursively) in sender thread
+     * @param serialize if true, packets are serialized and parsed when passed to receiver
+     */
+    public LoopbackNetwork(Executor deliveryExecutor, boolean serialize) {
+        this.deliveryExecutor = requireNonNull(deliveryExecutor);
+        this.serialize = serialize;
+    }
+
+    /**
+     * Creates transport with next free virtual address.
+     *
+     * @return transport
+     */
+    public LoopbackTransport transport() {
+        return new LoopbackTransport(this, nextAddress());
+    }
+
+    /**
+     * Creates transport with given address, if port is 0 then next free virtual address is used.
+     *
+     * @param bindAddress address
+     * @return transport
+     */
+    public LoopbackTransport transport(InetSocketAddress bindAddress) {
+        if (bindAddress.getPort() == 0) {
+            return transport();
+        }
+        return new LoopbackTransport(this, bindAddress);
+    }
+
+    /**
+     * Allocates next virtual address.
+     *
+     * @return virtual address
+     */
+    public InetSocketAddress nextAddress() {
+        while (true) {
+            int host = lastHost.incrementAndGet();
+            if (host > MAX_HOSTS) {
+                throw new IllegalStateException("Virtual address space exhausted");
+            }
+            InetSocketAddress address = new InetSocketAddress(toInetAddress(host), DEFAULT_PORT);
+            if (!transports.containsKey(address)) {
+                return address;
+            }
+        }
+    }
+
+    private static InetAddress toInetAddress(int host) {
+        try {
+            return InetAddress.getByAddress(new byte[]{10, (byte) (host >> 16), (byte) (host >> 8), (byte) host});
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int boundTransports() {
+        return transports.size();
+    }
+
+    /**
+     * Returns number of packets that were dropped because there was no transport bound to destination address.
+     *
+     * @return number of dropped packets
+     */
+    public long droppedPackets() {
+        return droppedPackets.sum();
+    }
+
+    void bind(InetSocketAddress address, LoopbackTransport transport) throws IOException {
+        if (transports.putIfAbsent(address, transport) != null) {
+            throw new IOException("Address already in use: " + address);
+        }
+    }
+
+    void unbind(InetSocketAddress address, LoopbackTransport transport) {
+        transports.remove(address, transport);
+    }
+
+    void deliver(InetSocketAddress source, CoapPacket packet) {
+        LoopbackTransport destination = transports.get(packet.getRemoteAddress());
+        if (destination == null) {
+            droppedPackets.increment();
+            return;
+        }
+
+        CoapPacket receivedPacket;
+        try {
+            receivedPacket = serialize ? CoapPacket.read(source, packet.toByteArray()) : packet.duplicate(source);
+        } catch (CoapException e) {
+            LOGGER.warn(e.getMessage());
+            droppedPackets.increment();
+            return;
+        }
+        deliveryExecutor.execute(() -> destination.receive(receivedPacket));
+    }
+
+    /**
+     * Runs tasks in calling thread, tasks submitted from within a running task are queued and run after it.
+     */
+    static final class QueuedDeliveryExecutor implements Executor {
+        private final ThreadLocal<ArrayDeque<Runnable>> pending = new ThreadLocal<>();
+
+        @Override
+        public void execute(Runnable task) {
+            ArrayDeque<Runnable> queue = pending.get();
+            if (queue != null) {
+                queue.addLast(task);
+                return;
+            }
+
+            queue = new ArrayDeque<>();
+            pending.set(queue);
+            try {
+                Runnable next = task;
+                while (next != null) {
+                    try {
+                        next.run();
+                    } catch (Exception ex) {
+                        LOGGER.error(ex.toString(), ex);
+                    }
+                    next = queue.pollFirst();
+                }
+            } finally {
+                pending.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.loopback;
+
+import static com.mbed.coap.utils.FutureHelpers.failedFuture;
+import static java.util.concurrent.CompletableFuture.*;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.transport.CoapReceiver;
+import com.mbed.coap.transport.CoapTransport;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transport that is attached to {@link LoopbackNetwork}. Like with UDP, packets sent to an address that has no
+ * bound transport are silently dropped.
+ */
+public class LoopbackTransport implements CoapTransport {
+    private final LoopbackNetwork network;
+    private final InetSocketAddress localAddress;
+    private volatile CoapReceiver coapReceiver;
+
+    LoopbackTransport(LoopbackNetwork network, InetSocketAddress localAddress) {
+        this.network = network;
+        this.localAddress = localAddress;
+    }
+
+    @Override
+    public void start(CoapReceiver coapReceiver) throws IOException {
+        this.coapReceiver = coapReceiver;
+        try {
+            network.bind(localAddress, this);
+        } catch (IOException ex) {
+            this.coapReceiver = null;
+            throw ex;
+        }
+    }
+
+    @Override
+    public void stop() {
+        coapReceiver = null;
+        network.unbind(localAddress, this);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sendPacket(CoapPacket coapPacket) {
+        if (coapReceiver == null) {
+            return failedFuture(new IllegalStateException("Transport is not running"));
+        }
+        network.deliver(localAddress, coapPacket);
+        return completedFuture(true);
+    }
+
+    void receive(CoapPacket packet) {
+        CoapReceiver receiver = coapReceiver;
+        if (receiver != null) {
+            receiver.handle(packet);
+        }
+    }
+
+    @Override
+    public InetSocketAddress getLocalSocketAddress() {
+        return localAddress;
+    }
+}
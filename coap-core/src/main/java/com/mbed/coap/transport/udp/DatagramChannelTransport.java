@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.udp;
+
+import static com.mbed.coap.utils.FutureHelpers.failedFuture;
+import static java.util.concurrent.CompletableFuture.*;
+import com.mbed.coap.exception.CoapException;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.transport.BufferPool;
+import com.mbed.coap.transport.CoapReceiver;
+import com.mbed.coap.transport.CoapTransport;
+import com.mbed.coap.transport.TransportExecutors;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Datagram transport based on non-blocking DatagramChannel and Selector.
+ * Incoming datagrams are read into a single reusable direct buffer, so reading does not allocate per packet.
+ */
+public class DatagramChannelTransport implements CoapTransport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatagramChannelTransport.class);
+    private static final int DEFAULT_MAX_PACKET_SIZE = 2048;
+    private static final long SELECT_TIMEOUT_MILLIS = 200;
+
+    private final InetSocketAddress bindAddress;
+    private final Executor readingWorker;
+    private final ByteBuffer readBuffer;
+    private final byte[] readArray;
+    private volatile DatagramChannel channel;
+    private Selector selector;
+
+    public DatagramChannelTransport(int localPort) {
+        this(new InetSocketAddress(localPort));
+    }
+
+    public DatagramChannelTransport(InetSocketAddress bindAddress) {
+        this(bindAddress, null);
+    }
+
+    public DatagramChannelTransport(InetSocketAddress bindAddress, Executor readingWorker) {
+        this(bindAddress, readingWorker, DEFAULT_MAX_PACKET_SIZE);
+    }
+
+    public DatagramChannelTransport(InetSocketAddress bindAddress, Executor readingWorker, int maxPacketSize) {
+        this.bindAddress = bindAddress;
+        if (readingWorker != null) {
+            this.readingWorker = readingWorker;
+        } else {
+            this.readingWorker = TransportExecutors.newWorker("udp-channel-reader");
+        }
+        this.readBuffer = ByteBuffer.allocateDirect(maxPacketSize);
+        this.readArray = new byte[maxPacketSize];
+    }
+
+    @Override
+    public void start(CoapReceiver coapReceiver) throws IOException {
+        DatagramChannel datagramChannel = openChannel(bindAddress);
+
+        selector = Selector.open();
+        datagramChannel.register(selector, SelectionKey.OP_READ);
+        channel = datagramChannel;
+
+        TransportExecutors.loop(readingWorker, () -> readingLoop(coapReceiver));
+    }
+
+    protected DatagramChannel openChannel(InetSocketAddress address) throws IOException {
+        DatagramChannel datagramChannel = DatagramChannel.open();
+        datagramChannel.configureBlocking(false);
+        datagramChannel.bind(address);
+        return datagramChannel;
+    }
+
+    boolean readingLoop(CoapReceiver coapReceiver) {
+        try {
+            if (selector.select(SELECT_TIMEOUT_MILLIS) > 0) {
+                selector.selectedKeys().clear();
+                readAll(coapReceiver);
+            }
+            return true;
+        } catch (ClosedSelectorException | ClosedChannelException ex) {
+            return false;
+        } catch (IOException ex) {
+            LOGGER.warn(ex.getMessage(), ex);
+        } catch (Exception ex) {
+            LOGGER.warn(ex.getMessage());
+        }
+        return channel.isOpen();
+    }
+
+    private void readAll(CoapReceiver coapReceiver) throws IOException {
+        while (true) {
+            readBuffer.clear();
+            InetSocketAddress sourceAddress = (InetSocketAddress) channel.receive(readBuffer);
+            if (sourceAddress == null) {
+                return;
+            }
+            readBuffer.flip();
+            int length = readBuffer.remaining();
+            readBuffer.get(readArray, 0, length);
+
+            receive(coapReceiver, sourceAddress, length);
+        }
+    }
+
+    private void receive(CoapReceiver coapReceiver, InetSocketAddress sourceAddress, int length) {
+        try {
+            coapReceiver.handle(CoapPacket.read(sourceAddress, readArray, length));
+        } catch (CoapException e) {
+            LOGGER.warn(e.getMessage());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sendPacket(CoapPacket coapPacket) {
+        if (channel == null) {
+            return failedFuture(new IllegalStateException());
+        }
+
+        try (BufferPool.PooledOutputStream outputStream = BufferPool.DEFAULT.outputStream()) {
+            coapPacket.writeTo(outputStream);
+            ByteBuffer data = ByteBuffer.wrap(outputStream.buffer(), 0, outputStream.size());
+            if (channel.send(data, coapPacket.getRemoteAddress()) == 0) {
+                return failedFuture(new IOException("Socket send buffer is full"));
+            }
+            return completedFuture(true);
+        } catch (IOException ex) {
+            return failedFuture(ex);
+        }
+    }
+
+    @Override
+    public void stop() {
+        try {
+            if (selector != null) {
+                selector.close();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+        TransportExecutors.shutdown(readingWorker);
+    }
+
+    @Override
+    public InetSocketAddress getLocalSocketAddress() {
+        try {
+            return (InetSocketAddress) channel.getLocalAddress();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -19,6 +19,7 @@ package com.mbed.coap.transport.udp;
 import com.mbed.coap.exception.CoapException;
 import com.mbed.coap.packet.CoapPacket;
 import com.mbed.coap.transport.BlockingCoapTransport;
+import com.mbed.coap.transport.BufferPool;
 import com.mbed.coap.transport.CoapReceiver;
 import com.mbed.coap.transport.TransportExecutors;
 import java.io.IOException;
@@ -32,10 +33,15 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Datagram transport based on DatagramSocket. Not thread-save.
+ * <p>
+ * Every datagram is sent immediately in {@link #sendPacket0(CoapPacket)}, DatagramSocket has no way to send several
+ * datagrams at once, so there is nothing to {@link #flush()}.
  */
 public class DatagramSocketTransport extends BlockingCoapTransport {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DatagramSocketTransport.class.getName());
+    private static final int READ_BUFFER_SIZE = 2048;
+    private final BufferPool bufferPool = BufferPool.DEFAULT;
     private final InetSocketAddress bindAddress;
     protected BlockingSocket socket;
     private final Executor readingWorker;
@@ -76,10 +82,10 @@ public class DatagramSocketTransport extends BlockingCoapTransport {
     }
 
     protected boolean readingLoop(CoapReceiver coapReceiver) {
-        byte[] readBuffer = new byte[2048];
+        byte[] readBuffer = bufferPool.acquire(READ_BUFFER_SIZE);
 
         try {
-            DatagramPacket datagramPacket = new DatagramPacket(readBuffer, readBuffer.length);
+            DatagramPacket datagramPacket = new DatagramPacket(readBuffer, READ_BUFFER_SIZE);
             socket.receive(datagramPacket);
 
             receive(coapReceiver, datagramPacket);
@@ -92,6 +98,9 @@ public class DatagramSocketTransport extends BlockingCoapTransport {
             }
         } catch (Exception ex) {
             LOGGER.warn(ex.getMessage());
+        } finally {
+            // packet is already parsed and data copied
+            bufferPool.release(readBuffer);
         }
         return false;
     }
@@ -126,11 +135,12 @@ public class DatagramSocketTransport extends BlockingCoapTransport {
         if (!socketCreated()) {
             throw new IllegalStateException();
         }
-        byte[] data = coapPacket.toByteArray();
+        try (BufferPool.PooledOutputStream outputStream = bufferPool.outputStream()) {
+            coapPacket.writeTo(outputStream);
 
-        DatagramPacket datagramPacket = new DatagramPacket(data, data.length, coapPacket.getRemoteAddress());
-
-        socket.send(datagramPacket);
+            DatagramPacket datagramPacket = new DatagramPacket(outputStream.buffer(), outputStream.size(), coapPacket.getRemoteAddress());
+            socket.send(datagramPacket);
+        }
     }
 
     protected boolean socketCreated() {
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.udp;
+
+import static java.util.Objects.*;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.transport.CoapReceiver;
+import com.mbed.coap.transport.CoapTransport;
+import com.mbed.coap.transport.TransportContext;
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.ProtocolFamily;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * UDP transport that, in addition to unicast socket, joins IP multicast group (RFC 7252, section 8).
+ * Packets received from the group are marked in transport context with {@link #MULTICAST} key.
+ * <p>
+ * Group socket is bound to group address, so that it receives only datagrams sent to the group.
+ * Unicast socket should be bound to a different port or to a specific interface address, otherwise some platforms
+ * deliver group datagrams to both sockets.
+ * All packets, including responses to group requests, are sent from unicast socket.
+ */
+public class MulticastDatagramTransport implements CoapTransport {
+    public static final String MULTICAST = "coap.multicast";
+
+    private final DatagramChannelTransport unicastTransport;
+    private final DatagramChannelTransport groupTransport;
+
+    public MulticastDatagramTransport(InetSocketAddress bindAddress, InetSocketAddress groupAddress, NetworkInterface networkInterface) {
+        requireNonNull(groupAddress);
+        if (!groupAddress.getAddress().isMulticastAddress()) {
+            throw new IllegalArgumentException("Not a multicast address: " + groupAddress);
+        }
+        requireNonNull(networkInterface);
+
+        this.unicastTransport = new DatagramChannelTransport(bindAddress) {
+            @Override
+            protected DatagramChannel openChannel(InetSocketAddress address) throws IOException {
+                DatagramChannel channel = DatagramChannel.open(protocolFamily(groupAddress.getAddress()));
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+                channel.bind(address);
+                return channel;
+            }
+        };
+        this.groupTransport = new DatagramChannelTransport(groupAddress) {
+            @Override
+            protected DatagramChannel openChannel(InetSocketAddress address) throws IOException {
+                DatagramChannel channel = DatagramChannel.open(protocolFamily(groupAddress.getAddress()));
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+                channel.bind(address);
+                channel.join(address.getAddress(), networkInterface);
+                return channel;
+            }
+        };
+    }
+
+    private static ProtocolFamily protocolFamily(InetAddress address) {
+        return (address instanceof Inet6Address) ? StandardProtocolFamily.INET6 : StandardProtocolFamily.INET;
+    }
+
+    public static boolean isMulticast(TransportContext transportContext) {
+        return transportContext.get(MULTICAST) != null;
+    }
+
+    @Override
+    public void start(CoapReceiver coapReceiver) throws IOException {
+        unicastTransport.start(coapReceiver);
+        try {
+            groupTransport.start(packet -> coapReceiver.handle(markMulticast(packet)));
+        } catch (IOException | RuntimeException ex) {
+            unicastTransport.stop();
+            throw ex;
+        }
+    }
+
+    private static CoapPacket markMulticast(CoapPacket packet) {
+        packet.setTransportContext(packet.getTransportContext().add(MULTICAST, true));
+        return packet;
+    }
+
+    @Override
+    public void stop() {
+        groupTransport.stop();
+        unicastTransport.stop();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sendPacket(CoapPacket coapPacket) {
+        return unicastTransport.sendPacket(coapPacket);
+    }
+
+    @Override
+    public InetSocketAddress getLocalSocketAddress() {
+        return unicastTransport.getLocalSocketAddress();
+    }
+
+    public InetSocketAddress getGroupSocketAddress() {
+        return groupTransport.getLocalSocketAddress();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.udp;
+
+import static com.mbed.coap.utils.FutureHelpers.failedFuture;
+import static com.mbed.coap.utils.Validations.*;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.transport.CoapReceiver;
+import com.mbed.coap.transport.CoapTransport;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * UDP transport that binds several sockets to the same port with SO_REUSEPORT (Linux) and reads each of them
+ * with own reader thread, so that receiving scales with number of cores.
+ * Outgoing packets for a given peer are always sent through the same socket.
+ */
+public class ReusePortDatagramTransport implements CoapTransport {
+
+    private static final SocketOption<Boolean> SO_REUSEPORT = findReusePortOption();
+
+    private final InetSocketAddress bindAddress;
+    private final int socketsCount;
+    private volatile DatagramChannelTransport[] sockets = new DatagramChannelTransport[0];
+
+    public ReusePortDatagramTransport(int port) {
+        this(new InetSocketAddress(port), Runtime.getRuntime().availableProcessors());
+    }
+
+    public ReusePortDatagramTransport(InetSocketAddress bindAddress, int socketsCount) {
+        require(socketsCount > 0);
+        this.bindAddress = bindAddress;
+        this.socketsCount = socketsCount;
+    }
+
+    /**
+     * Informs if running JVM and operating system support SO_REUSEPORT option for datagram channels.
+     *
+     * @return true if supported
+     */
+    public static boolean isSupported() {
+        if (SO_REUSEPORT == null) {
+            return false;
+        }
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            return channel.supportedOptions().contains(SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> findReusePortOption() {
+        // available from java 9
+        try {
+            return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void start(CoapReceiver coapReceiver) throws IOException {
+        assume(isSupported(), "SO_REUSEPORT is not supported");
+
+        DatagramChannelTransport[] newSockets = new DatagramChannelTransport[socketsCount];
+        InetSocketAddress address = bindAddress;
+        try {
+            for (int i = 0; i < socketsCount; i++) {
+                newSockets[i] = new ReusePortChannelTransport(address);
+                newSockets[i].start(coapReceiver);
+                if (i == 0) {
+                    // when binding to port 0, all other sockets must use the port assigned to the first one
+                    address = newSockets[0].getLocalSocketAddress();
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            stop(newSockets);
+            throw ex;
+        }
+        sockets = newSockets;
+    }
+
+    @Override
+    public void stop() {
+        stop(sockets);
+    }
+
+    private static void stop(DatagramChannelTransport[] transports) {
+        for (DatagramChannelTransport transport : transports) {
+            if (transport != null) {
+                transport.stop();
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sendPacket(CoapPacket coapPacket) {
+        DatagramChannelTransport[] currentSockets = sockets;
+        if (currentSockets.length == 0) {
+            return failedFuture(new IllegalStateException());
+        }
+        int index = Math.floorMod(coapPacket.getRemoteAddress().hashCode(), currentSockets.length);
+
+        return currentSockets[index].sendPacket(coapPacket);
+    }
+
+    @Override
+    public InetSocketAddress getLocalSocketAddress() {
+        return sockets[0].getLocalSocketAddress();
+    }
+
+    private static class ReusePortChannelTransport extends DatagramChannelTransport {
+        ReusePortChannelTransport(InetSocketAddress bindAddress) {
+            super(bindAddress);
+        }
+
+        @Override
+        protected DatagramChannel openChannel(InetSocketAddress address) throws IOException {
+            DatagramChannel datagramChannel = DatagramChannel.open();
+            datagramChannel.setOption(SO_REUSEPORT, true);
+            datagramChannel.configureBlocking(false);
+            datagramChannel.bind(address);
+            return datagramChannel;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.utils;
+
+import static java.util.Objects.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Adapts blocking handler into {@link Service}. Handler is executed with given executor, by default
+ * {@link Threads#blockingExecutor()} which on java 21+ can run every call in own virtual thread.
+ */
+public final class BlockingService<REQ, RES> implements Service<REQ, RES> {
+    private final Handler<REQ, RES> handler;
+    private final Executor executor;
+
+    public BlockingService(Handler<REQ, RES> handler) {
+        this(handler, Threads.blockingExecutor());
+    }
+
+    public BlockingService(Handler<REQ, RES> handler, Executor executor) {
+        this.handler = requireNonNull(handler);
+        this.executor = requireNonNull(executor);
+    }
+
+    @Override
+    public CompletableFuture<RES> apply(REQ request) {
+        CompletableFuture<RES> promise = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    promise.complete(handler.handle(request));
+                } catch (Exception ex) {
+                    promise.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            promise.completeExceptionally(ex);
+        }
+        return promise;
+    }
+
+    @FunctionalInterface
+    public interface Handler<REQ, RES> {
+        RES handle(REQ request) throws Exception;
+    }
+}
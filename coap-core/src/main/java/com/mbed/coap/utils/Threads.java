@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.utils;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    Creates threads for transport workers, schedulers and blocking handlers.
+    Multi-release jar replaces this class on java 21+ with implementation that can use virtual threads (src/main/java21).
+ */
+public final class Threads {
+    private static final Executor BLOCKING_EXECUTOR = Executors.newCachedThreadPool(daemonFactory("coap-blocking"));
+
+    private Threads() {
+    }
+
+    public static boolean isVirtual() {
+        return false;
+    }
+
+    public static ThreadFactory factory(String name) {
+        return r -> new Thread(r, name);
+    }
+
+    public static ThreadFactory defaultFactory() {
+        return Executors.defaultThreadFactory();
+    }
+
+    public static Executor blockingExecutor() {
+        return BLOCKING_EXECUTOR;
+    }
+
+    private static ThreadFactory daemonFactory(String name) {
+        AtomicInteger counter = new AtomicInteger(0);
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.packet;
+
+import static com.mbed.coap.packet.CoapPacketParser.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import com.mbed.coap.exception.CoapMessageFormatException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+class CoapPacketParserTest {
+    private final InetSocketAddress address = new InetSocketAddress("127.0.0.1", 5683);
+
+    @Test
+    void shouldParseFromArrayRange() {
+        CoapPacket packet = newPacket();
+        byte[] raw = packet.toByteArray();
+        byte[] data = new byte[raw.length + 10];
+        System.arraycopy(raw, 0, data, 7, raw.length);
+
+        CoapPacket parsed = new CoapPacket(address);
+        assertEquals(OK, parse(data, 7, raw.length, parsed));
+
+        assertEquals(packet, parsed);
+    }
+
+    @Test
+    void shouldParseFromHeapAndDirectByteBuffer() {
+        CoapPacket packet = newPacket();
+        byte[] raw = packet.toByteArray();
+
+        CoapPacket parsed = new CoapPacket(address);
+        ByteBuffer heapBuffer = ByteBuffer.wrap(new byte[raw.length + 3], 3, raw.length).slice();
+        heapBuffer.put(raw).flip();
+        assertEquals(OK, parse(heapBuffer, parsed));
+        assertEquals(packet, parsed);
+
+        ByteBuffer directBuffer = ByteBuffer.allocateDirect(raw.length);
+        directBuffer.put(raw).flip();
+        parsed = new CoapPacket(address);
+        assertEquals(OK, parse(directBuffer, parsed));
+        assertEquals(packet, parsed);
+        assertEquals(0, directBuffer.position());
+    }
+
+    @Test
+    void shouldParseEmptyMessage() {
+        CoapPacket parsed = new CoapPacket(address);
+
+        assertEquals(OK, parse(new byte[]{0x60, 0x00, 0x12, 0x34}, 0, 4, parsed));
+
+        assertEquals(MessageType.Acknowledgement, parsed.getMessageType());
+        assertEquals(0x1234, parsed.getMessageId());
+        assertNull(parsed.getCode());
+        assertNull(parsed.getMethod());
+        assertEquals(Opaque.EMPTY, parsed.getPayload());
+    }
+
+    @Test
+    void shouldReturnErrorCode_whenMalformed() {
+        assertEquals(ERR_TOO_SHORT, parseBytes("400100"));
+        assertEquals(ERR_VERSION, parseBytes("80010001"));
+        assertEquals(ERR_TOKEN_LENGTH, parseBytes("4901000101020304050607080900"));
+        assertEquals(ERR_TOO_SHORT, parseBytes("4401000101"));
+        assertEquals(ERR_METHOD, parseBytes("40050001"));
+        // delta 15
+        assertEquals(ERR_OPTION_FORMAT, parseBytes("40010001f3"));
+        // option value longer than message
+        assertEquals(ERR_OPTION_FORMAT, parseBytes("40010001b4616263"));
+        // missing extended length
+        assertEquals(ERR_OPTION_FORMAT, parseBytes("40010001bd"));
+        // observe longer than 3 bytes
+        assertEquals(ERR_OPTION_VALUE, parseBytes("400100016401020304"));
+    }
+
+    @Test
+    void shouldDescribeErrors() {
+        assertEquals("OK", describe(OK));
+        assertEquals("Malformed option header", describe(ERR_OPTION_FORMAT));
+        assertThat(describe(-100)).startsWith("Unknown error");
+    }
+
+    @Test
+    void readShouldThrowException_whenMalformed() {
+        assertThrows(CoapMessageFormatException.class, () ->
+                CoapPacket.read(address, Opaque.decodeHex("40010001f3").getBytes())
+        );
+    }
+
+    private int parseBytes(String hex) {
+        byte[] data = Opaque.decodeHex(hex).getBytes();
+        return CoapPacketParser.parse(data, 0, data.length, new CoapPacket(address));
+    }
+
+    private CoapPacket newPacket() {
+        CoapPacket packet = new CoapPacket(Method.PUT, MessageType.NonConfirmable, "/test/path", address);
+        packet.setMessageId(4321);
+        packet.setToken(Opaque.variableUInt(0x010203));
+        packet.headers().setUriQuery("p1=1&p2=" + new String(new char[300]).replace('\0', 'x'));
+        packet.headers().setContentFormat(MediaTypes.CT_APPLICATION_JSON);
+        packet.headers().setBlock1Req(new BlockOption(3, BlockSize.S_256, true));
+        packet.setPayload("{\"a\":1}");
+        return packet;
+    }
+}
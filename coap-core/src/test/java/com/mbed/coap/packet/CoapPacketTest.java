@@ -25,6 +25,7 @@ import com.mbed.coap.exception.CoapException;
 import com.mbed.coap.linkformat.LinkFormat;
 import com.mbed.coap.linkformat.LinkFormatBuilder;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -320,6 +321,21 @@ public class CoapPacketTest {
         );
     }
 
+    @Test
+    public void toByteArrayShouldBeSameAsWriteTo() throws Exception {
+        CoapPacket packet = new CoapPacket(Code.C205_CONTENT, MessageType.NonConfirmable, null);
+        packet.setMessageId(4321);
+        packet.setToken(Opaque.decodeHex("0a0b"));
+        packet.headers().setObserve(12);
+        packet.setPayload(Opaque.of(new byte[3000]).concat(Opaque.of("end")));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        packet.writeTo(outputStream);
+
+        assertArrayEquals(outputStream.toByteArray(), packet.toByteArray());
+        assertEquals(packet, CoapPacket.read(null, packet.toByteArray()));
+    }
+
     @Test
     public void failWhenIOExceptionWhenWriting() throws Exception {
         OutputStream outputStream = mock(OutputStream.class);
@@ -19,6 +19,7 @@ package com.mbed.coap.server;
 import static com.mbed.coap.server.CoapServerBuilder.*;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
+import com.mbed.coap.transport.DropPolicy;
 import java.time.Duration;
 import java.util.concurrent.ScheduledExecutorService;
 import org.junit.jupiter.api.Test;
@@ -78,6 +79,26 @@ public class CoapServerBuilderTest {
         );
     }
 
+    @Test
+    public void shouldFail_when_illegal_dispatcherWorkers() throws Exception {
+        assertThrows(IllegalArgumentException.class, () ->
+                newBuilder().dispatcherWorkers(0, 100)
+        );
+        assertThrows(IllegalArgumentException.class, () ->
+                newBuilder().dispatcherWorkers(4, 0)
+        );
+    }
+
+    @Test
+    public void shouldFail_when_illegal_ingressQueue() throws Exception {
+        assertThrows(IllegalArgumentException.class, () ->
+                newBuilder().ingressQueue(0, DropPolicy.tailDrop())
+        );
+        assertThrows(NullPointerException.class, () ->
+                newBuilder().ingressQueue(100, null)
+        );
+    }
+
     @Test
     public void shouldFail_whenIllegalTimeoutValue() throws Exception {
         assertThrows(IllegalArgumentException.class, () ->
@@ -22,9 +22,13 @@ import static com.mbed.coap.packet.Opaque.of;
 import static java.util.concurrent.CompletableFuture.*;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.BDDMockito.*;
+import static protocolTests.utils.CoapPacketBuilder.*;
 import com.mbed.coap.packet.CoapRequest;
 import com.mbed.coap.packet.CoapResponse;
+import com.mbed.coap.packet.Opaque;
 import com.mbed.coap.utils.Service;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
@@ -63,6 +67,45 @@ class ObservationHandlerTest {
         assertEquals(notFound(), promise.join());
     }
 
+    @Test
+    void shouldReportTermination() {
+        // given
+        List<Opaque> terminated = new ArrayList<>();
+        ObservationHandler obs = new ObservationHandler((peer, token) -> {
+            assertEquals(LOCAL_5683, peer);
+            terminated.add(token);
+        });
+        obs.nextSupplier(LOCAL_5683, of("100"), "/obs").get();
+        obs.nextSupplier(LOCAL_5683, of("200"), "/obs").get();
+
+        // when
+        obs.notify(notFound().toSeparate(of("100"), LOCAL_5683), null);
+        obs.notify(ok("123").observe(2).toSeparate(of("200"), LOCAL_5683), null);
+
+        // then
+        assertEquals(2, terminated.size());
+        assertEquals(of("100"), terminated.get(0));
+        assertEquals(of("200"), terminated.get(1));
+    }
+
+    @Test
+    void shouldNotCancelObservationOfOtherPeer() {
+        // given
+        CompletableFuture<CoapResponse> promise = obs.nextSupplier(LOCAL_5683, of("100"), "/obs").get();
+
+        // when
+        obs.cancel(LOCAL_1_5683, of("100"));
+
+        // then
+        assertTrue(obs.hasObservation(of("100")));
+        assertFalse(promise.isDone());
+
+        // and
+        obs.cancel(LOCAL_5683, of("100"));
+        assertFalse(obs.hasObservation(of("100")));
+        assertTrue(promise.isCancelled());
+    }
+
     @Test
     void shouldTerminateWhenMissingObsOption() {
         // given
@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.server.block;
+
+import static com.mbed.coap.packet.BlockSize.*;
+import static com.mbed.coap.packet.CoapRequest.*;
+import static com.mbed.coap.packet.CoapResponse.of;
+import static com.mbed.coap.utils.Bytes.*;
+import static org.assertj.core.api.Assertions.*;
+import static protocolTests.utils.CoapPacketBuilder.*;
+import com.mbed.coap.exception.CoapBlockTooLargeEntityException;
+import com.mbed.coap.packet.BlockOption;
+import com.mbed.coap.packet.CoapRequest;
+import com.mbed.coap.packet.CoapResponse;
+import com.mbed.coap.packet.Code;
+import com.mbed.coap.packet.Opaque;
+import com.mbed.coap.server.messaging.Capabilities;
+import com.mbed.coap.utils.Service;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class PipelinedBlockTransferTest {
+
+    // BERT with 2 blocks (2048 bytes) per message
+    private final Capabilities capability = new Capabilities(3100, true);
+    private final Map<Integer, Exchange> inFlight = new LinkedHashMap<>();
+    private Service<CoapRequest, CoapResponse> service = new BlockWiseOutgoingFilter(__ -> capability, 100_000, 3).then(this::newPromise);
+
+    private CompletableFuture<CoapResponse> newPromise(CoapRequest req) {
+        CompletableFuture<CoapResponse> promise = new CompletableFuture<>();
+        BlockOption block = req.options().getBlock1Req() != null ? req.options().getBlock1Req() : req.options().getBlock2Res();
+        inFlight.put(block == null ? 0 : block.getNr(), new Exchange(req, promise));
+        return promise;
+    }
+
+    @Test
+    void shouldPipelineDownload() throws Exception {
+        Opaque resource = opaqueOfRandom(2048 * 3 + 100);
+        CompletableFuture<CoapResponse> resp = service.apply(get(LOCAL_5683, "/test"));
+
+        receive(0, block2(resource, 0, true));
+
+        // whole window is requested at once
+        assertThat(inFlight).containsOnlyKeys(2, 4, 6);
+        assertThat(inFlight.get(2).req.getToken()).isNotEqualTo(inFlight.get(4).req.getToken());
+        assertThat(inFlight.get(6).req.options().getBlock2Res()).isEqualTo(new BlockOption(6, S_1024_BERT, false));
+
+        // out of order
+        receive(6, block2(resource, 6, false));
+        receive(4, block2(resource, 4, true));
+        assertThat(resp).isNotDone();
+        receive(2, block2(resource, 2, true));
+
+        assertThat(inFlight).isEmpty();
+        assertThat(resp.get().getCode()).isEqualTo(Code.C205_CONTENT);
+        assertThat(resp.get().getPayload()).isEqualTo(resource);
+    }
+
+    @Test
+    void shouldSlideDownloadWindow() throws Exception {
+        Opaque resource = opaqueOfRandom(2048 * 5 + 10);
+        CompletableFuture<CoapResponse> resp = service.apply(get(LOCAL_5683, "/test"));
+
+        receive(0, block2(resource, 0, true));
+        assertThat(inFlight).containsOnlyKeys(2, 4, 6);
+
+        receive(2, block2(resource, 2, true));
+        assertThat(inFlight).containsOnlyKeys(4, 6, 8);
+
+        receive(4, block2(resource, 4, true));
+        receive(6, block2(resource, 6, true));
+        receive(8, block2(resource, 8, true));
+        // past the end of resource
+        receive(12, block2(resource, 12, false));
+        receive(10, block2(resource, 10, false));
+        receive(14, block2(resource, 14, false));
+
+        assertThat(resp.get().getPayload()).isEqualTo(resource);
+    }
+
+    @Test
+    void shouldIgnoreErrors_whenRequestedPastEnd() throws Exception {
+        Opaque resource = opaqueOfRandom(2048 * 2 + 100);
+        CompletableFuture<CoapResponse> resp = service.apply(get(LOCAL_5683, "/test"));
+
+        receive(0, block2(resource, 0, true));
+        assertThat(inFlight).containsOnlyKeys(2, 4, 6);
+
+        // server rejects block past the end, before end is known
+        receive(6, of(Code.C402_BAD_OPTION));
+        assertThat(resp).isNotDone();
+        receive(4, block2(resource, 4, false));
+        receive(2, block2(resource, 2, true));
+
+        assertThat(inFlight).isEmpty();
+        assertThat(resp.get().getCode()).isEqualTo(Code.C205_CONTENT);
+        assertThat(resp.get().getPayload()).isEqualTo(resource);
+    }
+
+    @Test
+    void shouldRetryFailedBlock_whenLowerBlocksReceived() throws Exception {
+        Opaque resource = opaqueOfRandom(2048 * 3 + 100);
+        CompletableFuture<CoapResponse> resp = service.apply(get(LOCAL_5683, "/test"));
+
+        receive(0, block2(resource, 0, true));
+        receive(4, of(Code.C408_REQUEST_ENTITY_INCOMPLETE));
+        receive(6, of(Code.C402_BAD_OPTION));
+        // stops pipelining while failed block may be past the end
+        receive(2, block2(resource, 2, true));
+        assertThat(inFlight).containsOnlyKeys(4);
+
+        receive(4, block2(resource, 4, true));
+        assertThat(inFlight).containsOnlyKeys(6);
+        receive(6, block2(resource, 6, false));
+
+        assertThat(resp.get().getPayload()).isEqualTo(resource);
+    }
+
+    @Test
+    void shouldFail_whenErrorForLowestOutstandingBlock() throws Exception {
+        Opaque resource = opaqueOfRandom(2048 * 3 + 100);
+        CompletableFuture<CoapResponse> resp = service.apply(get(LOCAL_5683, "/test"));
+
+        receive(0, block2(resource, 0, true));
+        receive(4, of(Code.C402_BAD_OPTION));
+        assertThat(resp).isNotDone();
+        receive(2, of(Code.C503_SERVICE_UNAVAILABLE));
+
+        assertThat(resp.get().getCode()).isEqualTo(Code.C503_SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void shouldPipelineUpload() throws Exception {
+        Opaque payload = opaqueOfRandom(7000);
+        CompletableFuture<CoapResponse> resp = service.apply(put(LOCAL_5683, "/test").payload(payload));
+
+        assertThat(inFlight.get(0).req.getPayload()).isEqualTo(payload.slice(0, 2048));
+        receive(0, of(Code.C231_CONTINUE).block1Req(0, S_1024_BERT, true));
+
+        assertThat(inFlight).containsOnlyKeys(2, 4, 6);
+        assertThat(inFlight.get(2).req.getPayload()).isEqualTo(payload.slice(2048, 2048));
+        assertThat(inFlight.get(6).req.getPayload()).isEqualTo(payload.slice(6144, 856));
+        assertThat(inFlight.get(6).req.options().getBlock1Req()).isEqualTo(new BlockOption(6, S_1024_BERT, false));
+        assertThat(inFlight.get(6).req.options().getSize1()).isNull();
+
+        receive(2, of(Code.C231_CONTINUE).block1Req(2, S_1024_BERT, true));
+        receive(4, of(Code.C231_CONTINUE).block1Req(4, S_1024_BERT, true));
+        receive(6, of(Code.C204_CHANGED).block1Req(6, S_1024_BERT, false));
+
+        assertThat(resp.get().getCode()).isEqualTo(Code.C204_CHANGED);
+    }
+
+    @Test
+    void shouldSendBlocksInOrder_whenResponsesCompleteImmediately() throws Exception {
+        List<Integer> sentBlocks = new ArrayList<>();
+        service = new BlockWiseOutgoingFilter(__ -> capability, 100_000, 3).then(req -> {
+            BlockOption block1 = req.options().getBlock1Req();
+            sentBlocks.add(block1.getNr());
+            return CompletableFuture.completedFuture(block1.hasMore() ? of(Code.C231_CONTINUE).block1Req(block1.getNr(), S_1024_BERT, true) : of(Code.C204_CHANGED));
+        });
+
+        CompletableFuture<CoapResponse> resp = service.apply(put(LOCAL_5683, "/test").payload(opaqueOfSize(20_000)));
+
+        assertThat(resp.get().getCode()).isEqualTo(Code.C204_CHANGED);
+        assertThat(sentBlocks).containsExactly(0, 2, 4, 6, 8, 10, 12, 14, 16, 18);
+    }
+
+    @Test
+    void shouldAbortUpload_whenErrorResponse() throws Exception {
+        CompletableFuture<CoapResponse> resp = service.apply(put(LOCAL_5683, "/test").payload(opaqueOfSize(7000)));
+        receive(0, of(Code.C231_CONTINUE).block1Req(0, S_1024_BERT, true));
+
+        receive(2, of(Code.C400_BAD_REQUEST));
+        receive(4, of(Code.C231_CONTINUE).block1Req(4, S_1024_BERT, true));
+
+        assertThat(resp.get().getCode()).isEqualTo(Code.C400_BAD_REQUEST);
+    }
+
+    @Test
+    void shouldRestartSequentially_whenResourceChanged() throws Exception {
+        Opaque resource = opaqueOfRandom(2048 * 2 + 100);
+        Opaque changed = opaqueOfRandom(2048 + 100);
+        CompletableFuture<CoapResponse> resp = service.apply(get(LOCAL_5683, "/test"));
+
+        receive(0, block2(resource, 0, true).etag(Opaque.of("1")));
+        receive(2, block2(resource, 2, true).etag(Opaque.of("2")));
+
+        // starts from beginning, one block at a time
+        receive(0, block2(changed, 0, true).etag(Opaque.of("2")));
+        // late responses of pipelined requests are ignored
+        receive(4, block2(resource, 4, false).etag(Opaque.of("1")));
+        assertThat(inFlight).containsOnlyKeys(2, 6);
+        receive(2, block2(changed, 2, false).etag(Opaque.of("2")));
+
+        assertThat(resp.get().getPayload()).isEqualTo(changed);
+    }
+
+    @Test
+    void shouldFail_whenTooLargeEntity() {
+        service = new BlockWiseOutgoingFilter(__ -> capability, 5000, 3).then(this::newPromise);
+        Opaque resource = opaqueOfSize(10_000);
+        CompletableFuture<CoapResponse> resp = service.apply(get(LOCAL_5683, "/test"));
+
+        receive(0, block2(resource, 0, true));
+        receive(2, block2(resource, 2, true));
+        receive(4, block2(resource, 4, true));
+
+        assertThatThrownBy(resp::get).hasCauseExactlyInstanceOf(CoapBlockTooLargeEntityException.class);
+    }
+
+    @Test
+    void shouldNotPipeline_whenWindowIsOne() {
+        service = new BlockWiseOutgoingFilter(__ -> capability, 100_000, 1).then(this::newPromise);
+        service.apply(get(LOCAL_5683, "/test"));
+
+        receive(0, block2(opaqueOfSize(10_000), 0, true));
+
+        assertThat(inFlight).containsOnlyKeys(2);
+    }
+
+    private void receive(int blockNr, CoapResponse response) {
+        Exchange exchange = inFlight.remove(blockNr);
+        assertThat(exchange).as("request for block " + blockNr).isNotNull();
+        exchange.promise.complete(response);
+    }
+
+    private static CoapResponse block2(Opaque resource, int nr, boolean more) {
+        return of(Code.C205_CONTENT, resource.slice(nr * 1024, 2048)).block2Res(nr, S_1024_BERT, more);
+    }
+
+    private static class Exchange {
+        final CoapRequest req;
+        final CompletableFuture<CoapResponse> promise;
+
+        Exchange(CoapRequest req, CompletableFuture<CoapResponse> promise) {
+            this.req = req;
+            this.promise = promise;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.server.filter;
+
+import static java.util.concurrent.CompletableFuture.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static protocolTests.utils.CoapPacketBuilder.*;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.packet.Code;
+import com.mbed.coap.server.messaging.CoapDispatcher;
+import com.mbed.coap.transport.TransportContext;
+import com.mbed.coap.transport.udp.MulticastDatagramTransport;
+import com.mbed.coap.utils.MockTimer;
+import com.mbed.coap.utils.Service;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class MulticastResponseFilterTest {
+
+    private final MockTimer timer = new MockTimer();
+    private final MulticastResponseFilter filter = new MulticastResponseFilter(timer, Duration.ofSeconds(5));
+    private final CoapPacket multicastRequest = newCoapPacket(LOCAL_5683).mid(1).non().get().uriPath("/test")
+            .context(TransportContext.EMPTY.add(MulticastDatagramTransport.MULTICAST, true)).build();
+    private final CoapPacket ok = newCoapPacket(LOCAL_5683).mid(1).non(Code.C205_CONTENT).payload("ok").build();
+    private final CoapPacket notFound = newCoapPacket(LOCAL_5683).mid(1).non(Code.C404_NOT_FOUND).build();
+
+    @Test
+    void shouldNotChangeUnicastResponse() {
+        CompletableFuture<CoapPacket> resp = filter.apply(newCoapPacket(LOCAL_5683).mid(1).non().get().uriPath("/test").build(), respondWith(notFound));
+
+        assertEquals(notFound, resp.join());
+        assertTrue(timer.isEmpty());
+    }
+
+    @Test
+    void shouldDelayMulticastResponse() {
+        CompletableFuture<CoapPacket> resp = filter.apply(multicastRequest, respondWith(ok));
+
+        assertFalse(resp.isDone());
+
+        // when, leisure period ends
+        timer.runAll();
+
+        assertEquals(ok, resp.join());
+    }
+
+    @Test
+    void shouldSuppressMulticastErrorResponse() {
+        CompletableFuture<CoapPacket> resp = filter.apply(multicastRequest, respondWith(notFound));
+
+        assertSame(CoapDispatcher.NO_RESPONSE, resp.join());
+        assertTrue(timer.isEmpty());
+    }
+
+    @Test
+    void shouldNotDelay_whenLeisureIsZero() {
+        MulticastResponseFilter noLeisureFilter = new MulticastResponseFilter(timer, Duration.ZERO);
+
+        CompletableFuture<CoapPacket> resp = noLeisureFilter.apply(multicastRequest, respondWith(ok));
+
+        assertEquals(ok, resp.join());
+    }
+
+    private static Service<CoapPacket, CoapPacket> respondWith(CoapPacket response) {
+        return __ -> completedFuture(response);
+    }
+}
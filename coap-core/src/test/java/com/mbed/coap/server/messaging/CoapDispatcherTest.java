@@ -94,6 +94,15 @@ public class CoapDispatcherTest {
         assertSent(resp);
     }
 
+    @Test
+    void shouldNotSendAnything_whenInboundServiceRespondsWithNoResponse() {
+        given(inboundService.apply(any())).willReturn(completedFuture(CoapDispatcher.NO_RESPONSE));
+
+        udpMessaging.handle(newCoapPacket(LOCAL_1_5683).mid(1).non().get().uriPath("/19").build());
+
+        verify(sender, never()).apply(any());
+    }
+
     @Test
     public void receiveObservation() throws Exception {
         handle(newCoapPacket(LOCAL_5683).mid(3001).obs(2).con(Code.C203_VALID).token(33).payload("A"));
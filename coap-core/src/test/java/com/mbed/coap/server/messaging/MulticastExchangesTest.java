@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.server.messaging;
+
+import static com.mbed.coap.utils.FutureHelpers.failedFuture;
+import static java.util.concurrent.CompletableFuture.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.packet.CoapRequest;
+import com.mbed.coap.packet.CoapResponse;
+import com.mbed.coap.packet.MessageType;
+import com.mbed.coap.packet.Opaque;
+import com.mbed.coap.packet.SeparateResponse;
+import com.mbed.coap.transmission.SingleTimeout;
+import com.mbed.coap.utils.MockTimer;
+import com.mbed.coap.utils.Service;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+class MulticastExchangesTest {
+    private static final InetSocketAddress GROUP = new InetSocketAddress("224.0.1.187", 5683);
+    private static final InetSocketAddress PEER_1 = new InetSocketAddress("10.0.0.1", 5683);
+    private static final InetSocketAddress PEER_2 = new InetSocketAddress("10.0.0.2", 5683);
+
+    private final Service<CoapPacket, Boolean> sender = Mockito.mock(Service.class);
+    private final MockTimer timer = new MockTimer();
+    private final MulticastExchanges multicastExchanges = new MulticastExchanges(sender, new MessageIdSupplierImpl(), timer, new SingleTimeout(1000, 2000));
+    private final List<SeparateResponse> responses = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        given(sender.apply(any())).willReturn(completedFuture(true));
+    }
+
+    @Test
+    void shouldCollectResponsesUntilTimeout() {
+        CompletableFuture<Integer> resp = multicastExchanges.send(CoapRequest.get(GROUP, "/test").token(13), responses::add);
+
+        // then, request is sent as NON
+        ArgumentCaptor<CoapPacket> packet = ArgumentCaptor.forClass(CoapPacket.class);
+        verify(sender).apply(packet.capture());
+        assertEquals(MessageType.NonConfirmable, packet.getValue().getMessageType());
+        assertEquals(GROUP, packet.getValue().getRemoteAddress());
+
+        // when
+        assertTrue(multicastExchanges.handleResponse(CoapResponse.ok("1").toSeparate(Opaque.variableUInt(13), PEER_1)));
+        assertTrue(multicastExchanges.handleResponse(CoapResponse.ok("2").toSeparate(Opaque.variableUInt(13), PEER_2)));
+        assertFalse(multicastExchanges.handleResponse(CoapResponse.ok("3").toSeparate(Opaque.variableUInt(14), PEER_2)));
+
+        // then
+        assertEquals(2, responses.size());
+        assertEquals(PEER_1, responses.get(0).getPeerAddress());
+        assertFalse(resp.isDone());
+
+        // and, multicast timeout expires
+        timer.runAll();
+        assertEquals(2, resp.join());
+        assertEquals(0, multicastExchanges.exchanges());
+        assertFalse(multicastExchanges.handleResponse(CoapResponse.ok("1").toSeparate(Opaque.variableUInt(13), PEER_1)));
+    }
+
+    @Test
+    void shouldNotMatchResponse_whenNotFromGroupPort() {
+        multicastExchanges.send(CoapRequest.get(GROUP, "/test").token(13), responses::add);
+
+        assertFalse(multicastExchanges.handleResponse(CoapResponse.ok("1").toSeparate(Opaque.variableUInt(13), new InetSocketAddress("10.0.0.1", 61616))));
+        assertFalse(multicastExchanges.handleResponse(CoapResponse.ok("1").toSeparate(Opaque.variableUInt(13), new InetSocketAddress("::1", 5683))));
+
+        assertEquals(0, responses.size());
+    }
+
+    @Test
+    void shouldGenerateToken_whenMissing() {
+        multicastExchanges.send(CoapRequest.get(GROUP, "/test"), responses::add);
+
+        ArgumentCaptor<CoapPacket> packet = ArgumentCaptor.forClass(CoapPacket.class);
+        verify(sender).apply(packet.capture());
+        assertTrue(packet.getValue().getToken().nonEmpty());
+    }
+
+    @Test
+    void shouldFail_whenSendingFails() {
+        given(sender.apply(any())).willReturn(failedFuture(new IOException()));
+
+        CompletableFuture<Integer> resp = multicastExchanges.send(CoapRequest.get(GROUP, "/test").token(13), responses::add);
+
+        assertThatThrownBy(resp::join).hasCauseExactlyInstanceOf(IOException.class);
+        assertEquals(0, multicastExchanges.exchanges());
+        assertTrue(timer.isEmpty());
+    }
+
+    @Test
+    void shouldFailPendingExchanges_whenStopped() {
+        CompletableFuture<Integer> resp = multicastExchanges.send(CoapRequest.get(GROUP, "/test").token(13), responses::add);
+
+        multicastExchanges.stop();
+
+        assertThatThrownBy(resp::join).hasCauseExactlyInstanceOf(IOException.class);
+    }
+}
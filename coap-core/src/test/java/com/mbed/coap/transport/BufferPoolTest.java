@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.mbed.coap.utils.Bytes;
+import java.io.ByteArrayOutputStream;
+import org.junit.jupiter.api.Test;
+
+class BufferPoolTest {
+
+    private final BufferPool pool = new BufferPool(1152, 2);
+
+    @Test
+    void shouldCreateSizeClassesUpToMaxMessageSize() {
+        assertEquals(2048, pool.maxBufferSize());
+
+        assertEquals(64, pool.acquire(1).length);
+        assertEquals(64, pool.acquire(64).length);
+        assertEquals(128, pool.acquire(65).length);
+        assertEquals(2048, pool.acquire(1152).length);
+        assertEquals(3000, pool.acquire(3000).length);
+    }
+
+    @Test
+    void shouldReuseReleasedBuffers() {
+        byte[] buf = pool.acquire(100);
+        pool.release(buf);
+
+        assertSame(buf, pool.acquire(100));
+        assertNotSame(buf, pool.acquire(100));
+    }
+
+    @Test
+    void shouldNotPoolForeignBuffers() {
+        byte[] buf = new byte[100];
+        pool.release(buf);
+        pool.release(null);
+
+        assertNotSame(buf, pool.acquire(100));
+    }
+
+    @Test
+    void shouldKeepLimitedNumberOfBuffers() {
+        byte[] buf1 = pool.acquire(100);
+        byte[] buf2 = pool.acquire(100);
+        byte[] buf3 = pool.acquire(100);
+        pool.release(buf1);
+        pool.release(buf2);
+        pool.release(buf3);
+
+        assertSame(buf1, pool.acquire(100));
+        assertSame(buf2, pool.acquire(100));
+        assertNotSame(buf3, pool.acquire(100));
+    }
+
+    @Test
+    void shouldWriteToOutputStreamWithoutGrowing() throws Exception {
+        byte[] data = Bytes.opaqueOfSize(1000).getBytes();
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        try (BufferPool.PooledOutputStream outputStream = pool.outputStream()) {
+            byte[] initialBuffer = outputStream.buffer();
+            outputStream.write(0x01);
+            outputStream.write(data, 0, data.length);
+
+            assertEquals(1001, outputStream.size());
+            assertSame(initialBuffer, outputStream.buffer());
+            assertEquals(2048, outputStream.buffer().length);
+            outputStream.writeTo(target);
+            assertArrayEquals(target.toByteArray(), outputStream.toByteArray());
+        }
+        assertEquals(1, target.toByteArray()[0]);
+    }
+
+    @Test
+    void shouldGrowOutputStreamBeyondMaxMessageSize() {
+        byte[] data = Bytes.opaqueOfSize(3000).getBytes();
+
+        try (BufferPool.PooledOutputStream outputStream = pool.outputStream()) {
+            outputStream.write(data, 0, data.length);
+
+            assertEquals(3000, outputStream.size());
+            assertArrayEquals(data, outputStream.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static protocolTests.utils.CoapPacketBuilder.*;
+import com.mbed.coap.packet.CoapPacket;
+import java.net.InetSocketAddress;
+import org.junit.jupiter.api.Test;
+
+class DropPolicyTest {
+
+    @Test
+    void tailDrop() {
+        DropPolicy dropPolicy = DropPolicy.tailDrop();
+        IngressQueue queue = new IngressQueue(2);
+        queue.add(con(1));
+
+        assertTrue(dropPolicy.admit(queue, con(2)));
+        queue.add(con(2));
+
+        assertFalse(dropPolicy.admit(queue, con(3)));
+        assertEquals(1, dropPolicy.droppedPackets());
+    }
+
+    @Test
+    void dropNonConfirmableFirst_shouldRemoveOldestNonFromQueue() {
+        DropPolicy.DropNonConfirmableFirst dropPolicy = DropPolicy.dropNonConfirmableFirst();
+        IngressQueue queue = new IngressQueue(3);
+        queue.add(con(1));
+        queue.add(non(2));
+        queue.add(non(3));
+
+        assertTrue(dropPolicy.admit(queue, con(4)));
+
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.poll().getMessageId());
+        assertEquals(3, queue.poll().getMessageId());
+        assertEquals(1, dropPolicy.droppedPackets());
+        assertEquals(1, dropPolicy.droppedNonConfirmablePackets());
+    }
+
+    @Test
+    void dropNonConfirmableFirst_shouldDropIncomingNon() {
+        DropPolicy.DropNonConfirmableFirst dropPolicy = DropPolicy.dropNonConfirmableFirst();
+        IngressQueue queue = new IngressQueue(2);
+        queue.add(con(1));
+        queue.add(non(2));
+
+        assertFalse(dropPolicy.admit(queue, non(3)));
+
+        assertEquals(2, queue.size());
+        assertEquals(1, dropPolicy.droppedNonConfirmablePackets());
+    }
+
+    @Test
+    void dropNonConfirmableFirst_shouldDropIncomingCon_whenNoNonInQueue() {
+        DropPolicy.DropNonConfirmableFirst dropPolicy = DropPolicy.dropNonConfirmableFirst();
+        IngressQueue queue = new IngressQueue(1);
+        queue.add(con(1));
+
+        assertFalse(dropPolicy.admit(queue, con(2)));
+
+        assertEquals(1, dropPolicy.droppedPackets());
+        assertEquals(0, dropPolicy.droppedNonConfirmablePackets());
+    }
+
+    @Test
+    void dropNewPeersFirst() {
+        DropPolicy.DropNewPeersFirst dropPolicy = DropPolicy.dropNewPeersFirst(100);
+        IngressQueue queue = new IngressQueue(4);
+        InetSocketAddress knownPeer = new InetSocketAddress("localhost", 10001);
+        InetSocketAddress newPeer = new InetSocketAddress("localhost", 10002);
+
+        // below high watermark
+        for (int i = 0; i < 3; i++) {
+            assertTrue(dropPolicy.admit(queue, newCoapPacket(knownPeer).mid(i).con().get().build()));
+            queue.add(newCoapPacket(knownPeer).mid(i).con().get().build());
+        }
+
+        // above high watermark
+        assertFalse(dropPolicy.admit(queue, newCoapPacket(newPeer).mid(10).con().get().build()));
+        assertTrue(dropPolicy.admit(queue, newCoapPacket(knownPeer).mid(11).con().get().build()));
+        queue.add(newCoapPacket(knownPeer).mid(11).con().get().build());
+
+        // full
+        assertFalse(dropPolicy.admit(queue, newCoapPacket(knownPeer).mid(12).con().get().build()));
+
+        assertEquals(2, dropPolicy.droppedPackets());
+        assertEquals(1, dropPolicy.droppedNewPeersPackets());
+    }
+
+    @Test
+    void ingressQueue_shouldKeepArrivalOrder() {
+        IngressQueue queue = new IngressQueue(5);
+        queue.add(non(1));
+        queue.add(con(2));
+        queue.add(non(3));
+        queue.add(con(4));
+        queue.add(non(5));
+
+        assertThrows(IllegalStateException.class, () -> queue.add(con(6)));
+        assertEquals(1, queue.removeOldestNonConfirmable().getMessageId());
+        assertEquals(4, queue.size());
+
+        assertEquals(3, queue.removeOldestNonConfirmable().getMessageId());
+        assertEquals(2, queue.poll().getMessageId());
+        queue.add(non(7));
+        assertEquals(4, queue.poll().getMessageId());
+        assertEquals(5, queue.poll().getMessageId());
+        assertEquals(7, queue.poll().getMessageId());
+        assertNull(queue.poll());
+        assertNull(queue.removeOldestNonConfirmable());
+    }
+
+    private static CoapPacket con(int mid) {
+        return newCoapPacket(LOCAL_5683).mid(mid).con().get().build();
+    }
+
+    private static CoapPacket non(int mid) {
+        return newCoapPacket(LOCAL_5683).mid(mid).non().get().build();
+    }
+}
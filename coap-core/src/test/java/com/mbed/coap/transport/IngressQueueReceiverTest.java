@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static protocolTests.utils.CoapPacketBuilder.*;
+import com.mbed.coap.packet.CoapPacket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class IngressQueueReceiverTest {
+
+    private IngressQueueReceiver ingressReceiver;
+
+    @AfterEach
+    void tearDown() {
+        ingressReceiver.stop();
+    }
+
+    @Test
+    void shouldHandlePacketsInOrder() throws InterruptedException {
+        List<Integer> handledMids = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(50);
+        ingressReceiver = new IngressQueueReceiver(packet -> {
+            handledMids.add(packet.getMessageId());
+            latch.countDown();
+        }, 100, DropPolicy.tailDrop());
+        ingressReceiver.start();
+
+        for (int mid = 0; mid < 50; mid++) {
+            ingressReceiver.handle(newCoapPacket(LOCAL_5683).mid(mid).con().get().build());
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, handledMids.get(i));
+        }
+        assertEquals(50, ingressReceiver.admittedPackets());
+    }
+
+    @Test
+    void shouldApplyDropPolicy_whenQueueIsFull() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        List<CoapPacket> handled = Collections.synchronizedList(new ArrayList<>());
+        DropPolicy.DropNonConfirmableFirst dropPolicy = DropPolicy.dropNonConfirmableFirst();
+        ingressReceiver = new IngressQueueReceiver(packet -> {
+            started.countDown();
+            await(blocked);
+            handled.add(packet);
+        }, 2, dropPolicy);
+        ingressReceiver.start();
+
+        // first packet blocks worker
+        ingressReceiver.handle(newCoapPacket(LOCAL_5683).mid(1).con().get().build());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        ingressReceiver.handle(newCoapPacket(LOCAL_5683).mid(2).non().get().build());
+        ingressReceiver.handle(newCoapPacket(LOCAL_5683).mid(3).con().get().build());
+        ingressReceiver.handle(newCoapPacket(LOCAL_5683).mid(4).con().get().build());
+        ingressReceiver.handle(newCoapPacket(LOCAL_5683).mid(5).non().get().build());
+
+        assertEquals(2, ingressReceiver.queueSize());
+        assertEquals(2, dropPolicy.droppedNonConfirmablePackets());
+        assertEquals(2, dropPolicy.droppedPackets());
+
+        blocked.countDown();
+        while (handled.size() < 3) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, handled.get(1).getMessageId());
+        assertEquals(4, handled.get(2).getMessageId());
+    }
+
+    @Test
+    void shouldNotHandlePackets_untilStarted() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        ingressReceiver = new IngressQueueReceiver(packet -> latch.countDown(), 10, DropPolicy.tailDrop());
+
+        ingressReceiver.handle(newCoapPacket(LOCAL_5683).mid(1).con().get().build());
+        assertFalse(latch.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, ingressReceiver.queueSize());
+
+        ingressReceiver.start();
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static protocolTests.utils.CoapPacketBuilder.*;
+import com.mbed.coap.packet.CoapPacket;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+class QueuedCoapTransportTest {
+
+    private final BlockingCoapTransport transport = mock(BlockingCoapTransport.class);
+    private QueuedCoapTransport queuedTransport;
+    private final CoapPacket packet1 = newCoapPacket(LOCAL_5683).mid(1).get().uriPath("/1").build();
+    private final CoapPacket packet2 = newCoapPacket(LOCAL_5683).mid(2).get().uriPath("/2").build();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        queuedTransport = new QueuedCoapTransport(transport, 2, mock(Executor.class));
+        queuedTransport.start(mock(CoapReceiver.class));
+    }
+
+    @Test
+    void shouldSendQueuedPacketsInBurst() throws Exception {
+        CompletableFuture<Boolean> resp1 = queuedTransport.sendPacket(packet1);
+        CompletableFuture<Boolean> resp2 = queuedTransport.sendPacket(packet2);
+        assertFalse(resp1.isDone());
+        verify(transport, never()).sendPacket0(any());
+
+        // when
+        assertTrue(queuedTransport.writingLoop());
+
+        // then
+        InOrder inOrder = inOrder(transport);
+        inOrder.verify(transport).sendPacket0(packet1);
+        inOrder.verify(transport).sendPacket0(packet2);
+        inOrder.verify(transport).flush();
+        assertTrue(resp1.join());
+        assertTrue(resp2.join());
+        assertEquals(0, queuedTransport.queueSize());
+    }
+
+    @Test
+    void shouldFailWhenQueueIsFull() {
+        queuedTransport.sendPacket(packet1);
+        queuedTransport.sendPacket(packet1);
+
+        assertThatThrownBy(queuedTransport.sendPacket(packet2)::join).hasCauseExactlyInstanceOf(IOException.class);
+    }
+
+    @Test
+    void shouldFailOnlyPacketThatCouldNotBeSent() throws Exception {
+        doThrow(new IOException()).when(transport).sendPacket0(packet1);
+        CompletableFuture<Boolean> resp1 = queuedTransport.sendPacket(packet1);
+        CompletableFuture<Boolean> resp2 = queuedTransport.sendPacket(packet2);
+
+        queuedTransport.writingLoop();
+
+        assertThatThrownBy(resp1::join).hasCauseExactlyInstanceOf(IOException.class);
+        assertTrue(resp2.join());
+    }
+
+    @Test
+    void shouldFailQueuedPacketsWhenStopped() {
+        CompletableFuture<Boolean> resp1 = queuedTransport.sendPacket(packet1);
+
+        queuedTransport.stop();
+
+        assertThatThrownBy(resp1::join).hasCauseExactlyInstanceOf(IOException.class);
+        assertFalse(queuedTransport.writingLoop());
+        assertTrue(queuedTransport.sendPacket(packet2).isCompletedExceptionally());
+        verify(transport).stop();
+    }
+
+    @Test
+    void blockingTransportShouldFlushAfterEveryPacketWhenNotQueued() throws Exception {
+        when(transport.sendPacket(any())).thenCallRealMethod();
+
+        assertTrue(transport.sendPacket(packet1).join());
+
+        InOrder inOrder = inOrder(transport);
+        inOrder.verify(transport).sendPacket0(packet1);
+        inOrder.verify(transport).flush();
+    }
+}
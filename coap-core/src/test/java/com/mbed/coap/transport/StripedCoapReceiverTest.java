@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static protocolTests.utils.CoapPacketBuilder.*;
+import com.mbed.coap.packet.CoapPacket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class StripedCoapReceiverTest {
+
+    private StripedCoapReceiver stripedReceiver;
+
+    @AfterEach
+    void tearDown() {
+        stripedReceiver.stop();
+    }
+
+    @Test
+    void shouldHandlePacketsFromSamePeerInOrder() throws InterruptedException {
+        List<Integer> handledMids = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(100);
+        stripedReceiver = new StripedCoapReceiver(packet -> {
+            handledMids.add(packet.getMessageId());
+            latch.countDown();
+        }, 4, 100);
+
+        // when
+        for (int mid = 0; mid < 100; mid++) {
+            stripedReceiver.handle(newCoapPacket(LOCAL_5683).mid(mid).get().build());
+        }
+
+        // then
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, handledMids.get(i));
+        }
+    }
+
+    @Test
+    void shouldNotHandleInReaderThread() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        Thread readerThread = Thread.currentThread();
+        stripedReceiver = new StripedCoapReceiver(packet -> {
+            assertNotSame(readerThread, Thread.currentThread());
+            latch.countDown();
+        }, 1, 1);
+
+        stripedReceiver.handle(newCoapPacket(LOCAL_5683).mid(1).get().build());
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldDropWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CoapReceiver receiver = mock(CoapReceiver.class);
+        doAnswer(__ -> {
+            blocked.await();
+            return null;
+        }).when(receiver).handle(any());
+        stripedReceiver = new StripedCoapReceiver(receiver, 1, 1);
+        CoapPacket packet = newCoapPacket(LOCAL_5683).mid(1).get().build();
+
+        // when
+        stripedReceiver.handle(packet); // processing
+        verify(receiver, timeout(1000)).handle(any());
+        stripedReceiver.handle(packet); // queued
+        stripedReceiver.handle(packet); // dropped
+
+        // then
+        assertEquals(1, stripedReceiver.droppedPackets());
+        blocked.countDown();
+        verify(receiver, timeout(1000).times(2)).handle(any());
+    }
+}
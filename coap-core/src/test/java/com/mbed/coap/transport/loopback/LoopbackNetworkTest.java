@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.loopback;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static protocolTests.utils.CoapPacketBuilder.*;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.transport.TransportContext;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LoopbackNetworkTest {
+
+    private final LoopbackNetwork network = new LoopbackNetwork();
+    private final List<CoapPacket> received = new ArrayList<>();
+
+    @Test
+    void shouldDeliverPacketCopyWithSourceAddress() throws IOException {
+        LoopbackTransport sender = network.transport();
+        LoopbackTransport receiver = network.transport();
+        sender.start(packet -> {
+        });
+        receiver.start(received::add);
+
+        CoapPacket packet = newCoapPacket(receiver.getLocalSocketAddress()).mid(13).token(1001).get().uriPath("/test").build();
+        packet.setTransportContext(TransportContext.NON_CONFIRMABLE);
+
+        // when
+        assertTrue(sender.sendPacket(packet).join());
+
+        // then
+        assertEquals(1, received.size());
+        CoapPacket receivedPacket = received.get(0);
+        assertNotSame(packet, receivedPacket);
+        assertEquals(newCoapPacket(sender.getLocalSocketAddress()).mid(13).token(1001).get().uriPath("/test").build(), receivedPacket);
+        assertNotSame(packet.headers(), receivedPacket.headers());
+        assertEquals(TransportContext.EMPTY, receivedPacket.getTransportContext());
+    }
+
+    @Test
+    void shouldDeliverSerializedPacket() throws IOException {
+        LoopbackNetwork serializingNetwork = new LoopbackNetwork(Runnable::run, true);
+        LoopbackTransport sender = serializingNetwork.transport();
+        LoopbackTransport receiver = serializingNetwork.transport();
+        sender.start(packet -> {
+        });
+        receiver.start(received::add);
+
+        sender.sendPacket(newCoapPacket(receiver.getLocalSocketAddress()).mid(13).get().uriPath("/test").build()).join();
+
+        assertEquals(newCoapPacket(sender.getLocalSocketAddress()).mid(13).get().uriPath("/test").build(), received.get(0));
+    }
+
+    @Test
+    void shouldDropPacket_whenNoDestination() throws IOException {
+        LoopbackTransport sender = network.transport();
+        sender.start(received::add);
+
+        assertTrue(sender.sendPacket(newCoapPacket(network.nextAddress()).mid(13).get().build()).join());
+
+        assertEquals(1, network.droppedPackets());
+    }
+
+    @Test
+    void shouldAllocateVirtualAddresses() {
+        InetSocketAddress addr1 = network.nextAddress();
+        InetSocketAddress addr2 = network.nextAddress();
+
+        assertEquals("10.0.0.1", addr1.getAddress().getHostAddress());
+        assertEquals("10.0.0.2", addr2.getAddress().getHostAddress());
+        assertEquals(5683, addr1.getPort());
+    }
+
+    @Test
+    void shouldFailToBind_whenAddressInUse() throws IOException {
+        InetSocketAddress address = new InetSocketAddress("10.1.0.1", 5683);
+        network.transport(address).start(received::add);
+
+        assertThatThrownBy(() -> network.transport(address).start(received::add)).isInstanceOf(IOException.class);
+        assertEquals(1, network.boundTransports());
+    }
+
+    @Test
+    void shouldUnbind_whenStopped() throws IOException {
+        LoopbackTransport transport = network.transport();
+        transport.start(received::add);
+
+        transport.stop();
+
+        assertEquals(0, network.boundTransports());
+        assertTrue(transport.sendPacket(newCoapPacket(LOCAL_5683).get().build()).isCompletedExceptionally());
+    }
+
+    @Test
+    void shouldNotRecurse_whenReplyingFromReceiver() throws IOException {
+        LoopbackTransport ping = network.transport();
+        LoopbackTransport pong = network.transport();
+        List<Integer> stackDepths = new ArrayList<>();
+        ping.start(packet -> {
+            stackDepths.add(Thread.currentThread().getStackTrace().length);
+            if (packet.getMessageId() > 0) {
+                ping.sendPacket(newCoapPacket(pong.getLocalSocketAddress()).mid(packet.getMessageId() - 1).get().build());
+            }
+        });
+        pong.start(packet -> pong.sendPacket(newCoapPacket(ping.getLocalSocketAddress()).mid(packet.getMessageId()).ack(null).build()));
+
+        ping.sendPacket(newCoapPacket(pong.getLocalSocketAddress()).mid(10000).get().build());
+
+        assertEquals(10001, stackDepths.size());
+        assertEquals(stackDepths.get(0), stackDepths.get(10000));
+    }
+}
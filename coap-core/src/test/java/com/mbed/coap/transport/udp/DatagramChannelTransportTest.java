@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.udp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static protocolTests.utils.CoapPacketBuilder.*;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.transport.CoapReceiver;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+import org.junit.jupiter.api.Test;
+import protocolTests.utils.CoapPacketBuilder;
+
+class DatagramChannelTransportTest {
+
+    private final CoapReceiver receiver = mock(CoapReceiver.class);
+
+    @Test
+    void shouldFailToSendWhenNotStarted() {
+        DatagramChannelTransport trans = new DatagramChannelTransport(0);
+
+        assertTrue(trans.sendPacket(newCoapPacket(LOCAL_5683).get().uriPath("/test").mid(1).build()).isCompletedExceptionally());
+    }
+
+    @Test
+    void shouldReceiveAndSendPackets() throws Exception {
+        DatagramChannelTransport trans = new DatagramChannelTransport(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), mock(Executor.class));
+        trans.start(receiver);
+
+        try (DatagramSocket peer = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            InetSocketAddress peerAddress = (InetSocketAddress) peer.getLocalSocketAddress();
+            CoapPacket packet = CoapPacketBuilder.newCoapPacket(peerAddress).get().uriPath("/test").mid(1).build();
+
+            // receive
+            byte[] data = packet.toByteArray();
+            peer.send(new DatagramPacket(data, data.length, trans.getLocalSocketAddress()));
+            assertTrue(trans.readingLoop(receiver));
+            verify(receiver, timeout(1000)).handle(eq(packet));
+
+            // send
+            assertTrue(trans.sendPacket(packet).get());
+            DatagramPacket received = new DatagramPacket(new byte[2048], 2048);
+            peer.receive(received);
+            assertEquals(packet, CoapPacket.read(peerAddress, received.getData(), received.getLength()));
+        } finally {
+            trans.stop();
+        }
+    }
+
+    @Test
+    void shouldStopReadingWhenStopped() throws IOException {
+        DatagramChannelTransport trans = new DatagramChannelTransport(new InetSocketAddress(0), mock(Executor.class));
+        trans.start(receiver);
+        assertTrue(trans.readingLoop(receiver));
+
+        trans.stop();
+
+        assertFalse(trans.readingLoop(receiver));
+        verifyNoInteractions(receiver);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.udp;
+
+import static com.mbed.coap.packet.CoapRequest.*;
+import static java.util.concurrent.CompletableFuture.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+import com.mbed.coap.client.CoapClient;
+import com.mbed.coap.client.CoapClientBuilder;
+import com.mbed.coap.packet.CoapResponse;
+import com.mbed.coap.server.CoapServer;
+import com.mbed.coap.server.RouterService;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReusePortDatagramTransportTest {
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(ReusePortDatagramTransport.isSupported());
+    }
+
+    @Test
+    void shouldFailToSendWhenNotStarted() {
+        ReusePortDatagramTransport trans = new ReusePortDatagramTransport(0);
+
+        assertTrue(trans.sendPacket(null).isCompletedExceptionally());
+    }
+
+    @Test
+    void shouldServeRequestsFromMultipleClients() throws Exception {
+        CoapServer server = CoapServer.builder()
+                .transport(new ReusePortDatagramTransport(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4))
+                .route(RouterService.builder()
+                        .get("/test", __ -> completedFuture(CoapResponse.ok("OK")))
+                )
+                .build().start();
+        InetSocketAddress serverAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalSocketAddress().getPort());
+
+        for (int i = 0; i < 10; i++) {
+            CoapClient client = CoapClientBuilder.newBuilder(serverAddress).build();
+            assertEquals(CoapResponse.ok("OK"), client.sendSync(get("/test")));
+            client.close();
+        }
+
+        server.stop();
+    }
+}
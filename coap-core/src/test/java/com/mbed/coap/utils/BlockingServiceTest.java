@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.utils;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.Test;
+
+class BlockingServiceTest {
+
+    @Test
+    void shouldRunBlockingHandlerWithExecutor() {
+        BlockingService<String, String> service = new BlockingService<>(req -> req + "-" + Thread.currentThread().getName(), r -> new Thread(r, "handler").start());
+
+        assertEquals("ping-handler", service.apply("ping").join());
+    }
+
+    @Test
+    void shouldRunWithDefaultExecutor() {
+        BlockingService<String, String> service = new BlockingService<>(String::toUpperCase);
+
+        assertEquals("PING", service.apply("ping").join());
+    }
+
+    @Test
+    void shouldFailWhenHandlerThrowsException() {
+        BlockingService<String, String> service = new BlockingService<>(req -> {
+            throw new IOException("failed");
+        }, Runnable::run);
+
+        assertThatThrownBy(service.apply("ping")::join).hasCauseExactlyInstanceOf(IOException.class);
+    }
+
+    @Test
+    void shouldFailWhenExecutorRejects() {
+        BlockingService<String, String> service = new BlockingService<>(req -> req, r -> {
+            throw new RejectedExecutionException();
+        });
+
+        CompletableFuture<String> resp = service.apply("ping");
+
+        assertThatThrownBy(resp::join).hasCauseExactlyInstanceOf(RejectedExecutionException.class);
+    }
+}
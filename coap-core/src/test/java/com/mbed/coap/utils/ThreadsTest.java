@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.utils;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import org.junit.jupiter.api.Test;
+
+/*
+    Also executed by 'testJava21' task, with java 21 variant of Threads (src/main/java21) first on classpath
+    and virtual threads enabled.
+ */
+class ThreadsTest {
+    private static final String THREADS_CLASS = "com/mbed/coap/utils/Threads.class";
+
+    @Test
+    void shouldCreateNamedThreads() {
+        ThreadFactory factory = Threads.factory("test-worker");
+
+        Thread thread = factory.newThread(() -> {
+        });
+
+        assertThat(thread.getName()).isEqualTo("test-worker");
+        // virtual threads are always daemon
+        assertThat(thread.isDaemon()).isEqualTo(Threads.isVirtual());
+    }
+
+    @Test
+    void shouldUseVirtualThreads_whenEnabledOnJava21() {
+        assumeTrue(Boolean.getBoolean("coap.virtualThreads") && javaVersion() >= 21);
+
+        assertThat(Threads.isVirtual()).isTrue();
+        assertThat(Threads.defaultFactory().newThread(() -> {
+        }).isDaemon()).isTrue();
+    }
+
+    @Test
+    void shouldRunBlockingTasks() {
+        assertThat(CompletableFuture.supplyAsync(() -> Thread.currentThread().isDaemon(), Threads.blockingExecutor()).join()).isTrue();
+    }
+
+    @Test
+    void variantsShouldHaveSamePublicMethods() throws IOException {
+        List<URL> variants = Collections.list(Threads.class.getClassLoader().getResources(THREADS_CLASS));
+        assumeTrue(variants.size() > 1, "only one variant of Threads on classpath");
+
+        Set<String> expected = publicMethods(variants.get(0));
+        for (URL variant : variants.subList(1, variants.size())) {
+            assertThat(publicMethods(variant)).as(variant.toString()).isEqualTo(expected);
+        }
+    }
+
+    private static Set<String> publicMethods(URL classFile) throws IOException {
+        byte[] bytes = readAll(classFile);
+        Class<?> threadsClass = new ClassLoader(ThreadsTest.class.getClassLoader()) {
+            Class<?> define() {
+                return defineClass(null, bytes, 0, bytes.length);
+            }
+        }.define();
+
+        Set<String> methods = new TreeSet<>();
+        for (Method method : threadsClass.getDeclaredMethods()) {
+            if (Modifier.isPublic(method.getModifiers())) {
+                methods.add(method.getReturnType().getName() + " " + method.getName() + Arrays.toString(method.getParameterTypes()));
+            }
+        }
+        return methods;
+    }
+
+    private static byte[] readAll(URL url) throws IOException {
+        try (InputStream in = url.openStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int read;
+            while ((read = in.read(buf)) > 0) {
+                out.write(buf, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version");
+        return version.startsWith("1.") ? Integer.parseInt(version.substring(2)) : Integer.parseInt(version);
+    }
+}
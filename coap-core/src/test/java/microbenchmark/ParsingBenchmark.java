@@ -22,12 +22,14 @@ import com.mbed.coap.exception.CoapException;
 import com.mbed.coap.packet.BlockOption;
 import com.mbed.coap.packet.BlockSize;
 import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.packet.CoapPacketParser;
 import com.mbed.coap.packet.MediaTypes;
 import com.mbed.coap.packet.MessageType;
 import com.mbed.coap.packet.Method;
 import com.mbed.coap.packet.Opaque;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
@@ -83,6 +85,38 @@ public class ParsingBenchmark {
         endTime = System.currentTimeMillis();
     }
 
+    @Test
+    public void deserializeFromStream_1000k() throws CoapException {
+        byte[] raw = packet.toByteArray();
+        stTime = System.currentTimeMillis();
+        for (int i = 0; i < 1000000; i++) {
+            CoapPacket.deserialize(null, new ByteArrayInputStream(raw));
+        }
+        endTime = System.currentTimeMillis();
+    }
+
+    @Test
+    public void parseFromArray_1000k() {
+        byte[] raw = packet.toByteArray();
+        stTime = System.currentTimeMillis();
+        for (int i = 0; i < 1000000; i++) {
+            CoapPacketParser.parse(raw, 0, raw.length, new CoapPacket(null));
+        }
+        endTime = System.currentTimeMillis();
+    }
+
+    @Test
+    public void parseFromDirectByteBuffer_1000k() {
+        byte[] raw = packet.toByteArray();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(raw.length);
+        buffer.put(raw).flip();
+        stTime = System.currentTimeMillis();
+        for (int i = 0; i < 1000000; i++) {
+            CoapPacketParser.parse(buffer, new CoapPacket(null));
+        }
+        endTime = System.currentTimeMillis();
+    }
+
     //  MICRO-BENCHMARK RESULTS
     //----------------------------------
     //CPU:                Intel Core i5
@@ -91,4 +125,8 @@ public class ParsingBenchmark {
     //ByteOutputStream:         2717 ms
     //ByteArrayOutputStream:    3205 ms
     //----------------------------------
+    //Iterations:             1 000 000
+    //deserialize from stream:  2470 ms
+    //CoapPacketParser:         1520 ms
+    //----------------------------------
 }
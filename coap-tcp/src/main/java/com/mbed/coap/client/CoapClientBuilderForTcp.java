@@ -66,4 +66,9 @@ public class CoapClientBuilderForTcp extends CoapClientBuilder<CoapServerBuilder
         return this;
     }
 
+    public CoapClientBuilderForTcp bertWindowSize(int windowSize) {
+        coapServerBuilderForTcp.bertWindowSize(windowSize);
+        return this;
+    }
+
 }
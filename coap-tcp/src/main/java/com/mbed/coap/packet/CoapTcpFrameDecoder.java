@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.packet;
+
+import com.mbed.coap.exception.CoapException;
+import com.mbed.coap.exception.CoapMessageFormatException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Stateful, resumable decoder of CoAP over TCP frames (RFC 8323). Consumes ByteBuffer chunks as they arrive and keeps
+ * partial frame state between calls, so data is never parsed twice. When a whole frame body is available in a chunk,
+ * it is parsed directly from that chunk, otherwise it is accumulated in a buffer of exact frame size.
+ * <p/>
+ * Instance is bound to a single connection and is not thread safe.
+ */
+public final class CoapTcpFrameDecoder {
+    private static final int MAX_HEADER_SIZE = 1 + 4 + 1 + 8;
+
+    private final InetSocketAddress remoteAddress;
+    private final int maxFrameSize;
+    private final byte[] header = new byte[MAX_HEADER_SIZE];
+    private int headerSize;
+    private int headerPos;
+    private CoapPacket packet;
+    private int bodyLength;
+    private byte[] body;
+    private int bodyPos;
+
+    public CoapTcpFrameDecoder(InetSocketAddress remoteAddress, int maxFrameSize) {
+        this.remoteAddress = remoteAddress;
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Consumes bytes from buffer until one frame is complete.
+     *
+     * @param buffer data, position is moved by consumed bytes
+     * @return decoded packet, or null when buffer is consumed and more data is needed
+     * @throws CoapException - when frame is malformed or exceeds maximum size
+     */
+    public CoapPacket decode(ByteBuffer buffer) throws CoapException {
+        if (packet == null && !decodeHeader(buffer)) {
+            return null;
+        }
+
+        if (body == null) {
+            if (bodyLength == 0) {
+                return complete();
+            }
+            if (buffer.remaining() >= bodyLength) {
+                int limit = buffer.limit();
+                buffer.limit(buffer.position() + bodyLength);
+                try {
+                    decodeBody(buffer);
+                } finally {
+                    buffer.limit(limit);
+                }
+                return complete();
+            }
+            body = new byte[bodyLength];
+        }
+
+        int len = Math.min(buffer.remaining(), bodyLength - bodyPos);
+        buffer.get(body, bodyPos, len);
+        bodyPos += len;
+        if (bodyPos < bodyLength) {
+            return null;
+        }
+        decodeBody(ByteBuffer.wrap(body));
+        return complete();
+    }
+
+    /**
+     * @return true if decoder holds part of a frame
+     */
+    public boolean hasPartialFrame() {
+        return headerPos > 0;
+    }
+
+    private boolean decodeHeader(ByteBuffer buffer) throws CoapException {
+        if (!buffer.hasRemaining()) {
+            return false;
+        }
+        if (headerPos == 0) {
+            int len1AndTKL = buffer.get() & 0xFF;
+            int tokenLength = len1AndTKL & 0x0F;
+            if (tokenLength > 8) {
+                throw new CoapMessageFormatException("Token length invalid, should be in range 0..8");
+            }
+            header[headerPos++] = (byte) len1AndTKL;
+            headerSize = 1 + CoapTcpPacketSerializer.extendedLengthSize(len1AndTKL >> 4) + 1 + tokenLength;
+        }
+
+        int len = Math.min(buffer.remaining(), headerSize - headerPos);
+        buffer.get(header, headerPos, len);
+        headerPos += len;
+        if (headerPos < headerSize) {
+            return false;
+        }
+
+        parseHeader();
+        return true;
+    }
+
+    private void parseHeader() throws CoapException {
+        int len1 = (header[0] >> 4) & 0x0F;
+        int extSize = CoapTcpPacketSerializer.extendedLengthSize(len1);
+        long length = CoapTcpPacketSerializer.readPacketLen(len1, header, 1);
+        if (length > maxFrameSize) {
+            throw new CoapMessageFormatException("Frame size " + length + " exceeds maximum (" + maxFrameSize + ")");
+        }
+        bodyLength = (int) length;
+
+        CoapPacket coapPacket = new CoapPacket(remoteAddress);
+        CoapTcpPacketSerializer.parseAndSetCodeOrMethod(coapPacket, header[1 + extSize] & 0xFF);
+        coapPacket.setMessageType(null);
+        int tokenOffset = 2 + extSize;
+        coapPacket.setToken(tokenOffset == headerSize ? Opaque.EMPTY : Opaque.of(Arrays.copyOfRange(header, tokenOffset, headerSize)));
+        packet = coapPacket;
+    }
+
+    private void decodeBody(ByteBuffer data) throws CoapException {
+        HeaderOptions options;
+        if (packet.getCode() != null && packet.getCode().isSignaling()) {
+            options = new SignallingHeaderOptions();
+        } else {
+            options = new HeaderOptions();
+        }
+        int result = CoapPacketParser.parseOptionsAndPayload(data, options, packet);
+        if (result != CoapPacketParser.OK) {
+            throw new CoapMessageFormatException(CoapPacketParser.describe(result));
+        }
+        data.position(data.limit());
+    }
+
+    private CoapPacket complete() {
+        CoapPacket coapPacket = packet;
+        packet = null;
+        body = null;
+        bodyPos = 0;
+        headerPos = 0;
+        return coapPacket;
+    }
+}
@@ -29,6 +29,7 @@ public class CoapTcpPacketConverter {
             packet.setHeaderOptions(request.options());
             packet.setPayload(request.getPayload());
         }
+        packet.setTransportContext(request.getTransContext());
 
         return packet;
     }
@@ -40,6 +41,7 @@ public class CoapTcpPacketConverter {
         packet.setToken(resp.getToken());
         packet.setHeaderOptions(resp.options().duplicate());
         packet.setPayload(resp.getPayload());
+        packet.setTransportContext(resp.getTransContext());
         return packet;
     }
 
@@ -19,12 +19,14 @@ package com.mbed.coap.packet;
 import static com.mbed.coap.packet.PacketUtils.*;
 import static com.mbed.coap.utils.Validations.*;
 import com.mbed.coap.exception.CoapException;
+import com.mbed.coap.transport.BufferPool;
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.Optional;
 
 /**
@@ -106,7 +108,7 @@ public final class CoapTcpPacketSerializer {
         return new CoapPacketParsingContext(coapPacket, len);
     }
 
-    private static void parseAndSetCodeOrMethod(CoapPacket coapPacket, int codeOrMethod) throws CoapException {
+    static void parseAndSetCodeOrMethod(CoapPacket coapPacket, int codeOrMethod) throws CoapException {
         if (codeOrMethod >= 1 && codeOrMethod <= 10) {
             //method code
             coapPacket.setMethod(Method.valueOf(codeOrMethod));
@@ -129,6 +131,27 @@ public final class CoapTcpPacketSerializer {
         }
     }
 
+    /**
+     * Reads packet length from byte array, extended length bytes start at given offset.
+     */
+    static long readPacketLen(int len1, byte[] data, int offset) {
+        long extended = 0;
+        for (int i = 0; i < extendedLengthSize(len1); i++) {
+            extended = (extended << 8) | (data[offset + i] & 0xFF);
+        }
+        switch (len1) {
+            case 15:
+                return extended + 65805;
+            case 14:
+                return extended + 269;
+            case 13:
+                return extended + 13;
+
+            default:
+                return len1;
+        }
+    }
+
     private static Opaque readToken(EofInputStream is, int tokenLength) throws IOException {
         assume(tokenLength <= 8, "Token length invalid, should be in range 0..8");
         return Opaque.read(is, tokenLength);
@@ -217,8 +240,88 @@ public final class CoapTcpPacketSerializer {
         // we have to serialize options to byteArray to claculate their size
         // because options size included into packet length field together with
         // payload marker and payload size
-        ByteArrayOutputStream headerOptionsStream = new ByteArrayOutputStream();
-        coapPacket.headers().serialize(headerOptionsStream);
+        try (BufferPool.PooledOutputStream headerOptionsStream = BufferPool.DEFAULT.outputStream()) {
+            coapPacket.headers().serialize(headerOptionsStream);
+            writeTo(os, coapPacket, headerOptionsStream);
+        }
+    }
+
+    /**
+     * Writes serialized CoAP packet straight into given buffer (typically a direct buffer), starting at its position.
+     * Nothing is written if frame does not fit in buffer's remaining space.
+     *
+     * @param buffer target buffer
+     * @param coapPacket CoAP packet object
+     * @return true if frame was written, false if there is not enough space in buffer
+     * @throws CoapException serialization exception
+     */
+    public static boolean writeTo(ByteBuffer buffer, CoapPacket coapPacket) throws CoapException, IOException {
+        try (BufferPool.PooledOutputStream headerOptionsStream = BufferPool.DEFAULT.outputStream()) {
+            coapPacket.headers().serialize(headerOptionsStream);
+
+            int tokenLen = coapPacket.getToken().size();
+            assume(tokenLen <= 8, "Token length should not exceed 8 bytes");
+
+            int optionsLength = headerOptionsStream.size();
+            int payloadLen = coapPacket.getPayload().size();
+            int packetLength = optionsLength + (payloadLen > 0 ? 1 : 0) + payloadLen;
+            int packetLen1Code = packetLenCode(packetLength);
+            int frameSize = 1 + extendedLengthSize(packetLen1Code) + 1 + tokenLen + packetLength;
+            if (buffer.remaining() < frameSize) {
+                return false;
+            }
+
+            buffer.put((byte) ((packetLen1Code << 4) | tokenLen));
+            switch (packetLen1Code) {
+                case 13:
+                    buffer.put((byte) (packetLength - 13));
+                    break;
+                case 14:
+                    buffer.putShort((short) (packetLength - 269));
+                    break;
+                case 15:
+                    buffer.putInt(packetLength - 65805);
+                    break;
+                default:
+                    break;
+            }
+            buffer.put((byte) codeOf(coapPacket));
+            buffer.put(coapPacket.getToken().getBytes());
+            buffer.put(headerOptionsStream.buffer(), 0, optionsLength);
+            if (payloadLen > 0) {
+                buffer.put((byte) CoapPacket.PAYLOAD_MARKER);
+                buffer.put(coapPacket.getPayload().getBytes());
+            }
+            return true;
+        }
+    }
+
+    static int extendedLengthSize(int packetLenCode) {
+        switch (packetLenCode) {
+            case 15:
+                return 4;
+            case 14:
+                return 2;
+            case 13:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    private static int codeOf(CoapPacket coapPacket) {
+        if (coapPacket.getCode() != null && coapPacket.getMethod() != null) {
+            throw new IllegalStateException("Forbidden operation: 'code' and 'method' use at a same time");
+        }
+        if (coapPacket.getCode() != null) {
+            return coapPacket.getCode().getCoapCode();
+        } else if (coapPacket.getMethod() != null) {
+            return coapPacket.getMethod().getCode();
+        }
+        return 0;
+    }
+
+    private static void writeTo(OutputStream os, CoapPacket coapPacket, BufferPool.PooledOutputStream headerOptionsStream) throws CoapException, IOException {
 
         // token length
         int tokenLen = coapPacket.getToken().size();
@@ -247,7 +350,7 @@ public final class CoapTcpPacketSerializer {
         coapPacket.getToken().writeTo(os);
 
         //Options
-        os.write(headerOptionsStream.toByteArray());
+        headerOptionsStream.writeTo(os);
 
         //Payload
         if (coapPacket.getPayload().size() > 0) {
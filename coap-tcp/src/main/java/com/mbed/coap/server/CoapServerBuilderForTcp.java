@@ -17,6 +17,7 @@
 package com.mbed.coap.server;
 
 import static com.mbed.coap.transport.CoapTransport.*;
+import static com.mbed.coap.utils.Validations.*;
 import com.mbed.coap.packet.CoapPacket;
 import com.mbed.coap.packet.CoapRequest;
 import com.mbed.coap.packet.CoapResponse;
@@ -28,8 +29,8 @@ import com.mbed.coap.server.block.BlockWiseOutgoingFilter;
 import com.mbed.coap.server.filter.CongestionControlFilter;
 import com.mbed.coap.server.messaging.Capabilities;
 import com.mbed.coap.server.messaging.CapabilitiesStorage;
-import com.mbed.coap.server.messaging.CapabilitiesStorageImpl;
 import com.mbed.coap.server.messaging.CoapTcpDispatcher;
+import com.mbed.coap.server.messaging.ConnectionStates;
 import com.mbed.coap.server.messaging.PayloadSizeVerifier;
 import com.mbed.coap.server.messaging.TcpExchangeFilter;
 import com.mbed.coap.utils.Service;
@@ -41,9 +42,10 @@ public class CoapServerBuilderForTcp extends CoapServerBuilder<CoapServerBuilder
     }
 
     protected CapabilitiesStorage csmStorage;
+    private int bertWindowSize = 1;
 
     private CoapServerBuilderForTcp() {
-        csmStorage = new CapabilitiesStorageImpl();
+        csmStorage = new ConnectionStates();
     }
 
     public static CoapServerBuilderForTcp create() {
@@ -75,14 +77,30 @@ public class CoapServerBuilderForTcp extends CoapServerBuilder<CoapServerBuilder
         return this;
     }
 
+    /**
+     * Sets maximum number of BERT block messages that are in flight within single outgoing block transfer.
+     * Default is 1, blocks are exchanged one by one.
+     *
+     * @param windowSize window size
+     * @return this builder
+     */
+    public CoapServerBuilderForTcp bertWindowSize(int windowSize) {
+        require(windowSize > 0);
+        this.bertWindowSize = windowSize;
+        return this;
+    }
+
     @Override
     public CoapServer build() {
         Service<CoapPacket, Boolean> sender = packet -> coapTransport
                 .sendPacket(packet)
                 .whenComplete((__, throwable) -> logSent(packet, throwable));
 
+        // capabilities, transactions and observations of a connection are kept together when default storage is used
+        ConnectionStates connectionStates = csmStorage instanceof ConnectionStates ? (ConnectionStates) csmStorage : new ConnectionStates();
+
         // NOTIFICATION
-        ObservationHandler observationHandler = new ObservationHandler();
+        ObservationHandler observationHandler = new ObservationHandler(connectionStates::removeObservation);
         Service<SeparateResponse, Boolean> sendNotification = new NotificationValidator()
                 .andThen(new BlockWiseNotificationFilter(capabilities()))
                 .andThenMap(CoapTcpPacketConverter::toCoapPacket)
@@ -97,10 +115,10 @@ public class CoapServerBuilderForTcp extends CoapServerBuilder<CoapServerBuilder
                 .then(route);
 
         // OUTBOUND
-        TcpExchangeFilter exchangeFilter = new TcpExchangeFilter();
+        TcpExchangeFilter exchangeFilter = new TcpExchangeFilter(connectionStates, observationHandler::cancel);
         Service<CoapRequest, CoapResponse> outboundService = new ObserveRequestFilter(observationHandler)
                 .andThen(new CongestionControlFilter<>(maxQueueSize, CoapRequest::getPeerAddress))
-                .andThen(new BlockWiseOutgoingFilter(capabilities(), maxIncomingBlockTransferSize))
+                .andThen(new BlockWiseOutgoingFilter(capabilities(), maxIncomingBlockTransferSize, bertWindowSize))
                 .andThen(exchangeFilter)
                 .andThenMap(CoapTcpPacketConverter::toCoapPacket)
                 .then(sender);
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.server.messaging;
+
+import com.mbed.coap.packet.CoapResponse;
+import com.mbed.coap.packet.Opaque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * State that belongs to single CoAP over TCP connection: negotiated capabilities, pending transactions and
+ * observation tokens. Mutated only by {@link ConnectionStates} while holding index entry lock, so that it can be
+ * dropped as a unit when connection is closed.
+ */
+public final class ConnectionState {
+    private volatile Capabilities capabilities;
+    private Map<Opaque, CompletableFuture<CoapResponse>> transactions;
+    private Set<Opaque> observations;
+
+    ConnectionState() {
+    }
+
+    /**
+     * @return negotiated capabilities or null if not received
+     */
+    public Capabilities getCapabilities() {
+        return capabilities;
+    }
+
+    void setCapabilities(Capabilities capabilities) {
+        this.capabilities = capabilities;
+    }
+
+    void putTransaction(Opaque token, CompletableFuture<CoapResponse> promise) {
+        if (transactions == null) {
+            transactions = new HashMap<>();
+        }
+        transactions.put(token, promise);
+    }
+
+    CompletableFuture<CoapResponse> removeTransaction(Opaque token) {
+        return transactions == null ? null : transactions.remove(token);
+    }
+
+    void removeTransaction(Opaque token, CompletableFuture<CoapResponse> promise) {
+        if (transactions != null) {
+            transactions.remove(token, promise);
+        }
+    }
+
+    void addObservation(Opaque token) {
+        if (observations == null) {
+            observations = new HashSet<>();
+        }
+        observations.add(token);
+    }
+
+    void removeObservation(Opaque token) {
+        if (observations != null) {
+            observations.remove(token);
+        }
+    }
+
+    Collection<CompletableFuture<CoapResponse>> transactions() {
+        return transactions == null ? Collections.emptyList() : transactions.values();
+    }
+
+    Set<Opaque> observations() {
+        return observations == null ? Collections.emptySet() : observations;
+    }
+
+    public int getTransactionsCount() {
+        return transactions == null ? 0 : transactions.size();
+    }
+
+    public int getObservationsCount() {
+        return observations == null ? 0 : observations.size();
+    }
+
+    boolean isEmpty() {
+        return capabilities == null && getTransactionsCount() == 0 && getObservationsCount() == 0;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.server.messaging;
+
+import com.mbed.coap.packet.CoapResponse;
+import com.mbed.coap.packet.Opaque;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Index of per-connection state, keyed by peer address. Disconnect or 7.05 Abort drops the whole connection state in
+ * O(1), instead of scanning global transaction, capability and observation tables. Entries are created on demand and
+ * removed when they become empty.
+ */
+public class ConnectionStates implements CapabilitiesStorage {
+    private final ConcurrentHashMap<InetSocketAddress, ConnectionState> states = new ConcurrentHashMap<>();
+    private final Capabilities defaultCapability;
+
+    public ConnectionStates(Capabilities defaultCapability) {
+        this.defaultCapability = defaultCapability;
+    }
+
+    public ConnectionStates() {
+        this(Capabilities.BASE);
+    }
+
+    public ConnectionState get(InetSocketAddress address) {
+        return states.get(address);
+    }
+
+    public int size() {
+        return states.size();
+    }
+
+    /**
+     * Removes connection state, caller is responsible to terminate its transactions and observations.
+     *
+     * @param address peer address
+     * @return removed state or null
+     */
+    ConnectionState drop(InetSocketAddress address) {
+        return states.remove(address);
+    }
+
+    @Override
+    public void put(InetSocketAddress address, Capabilities newCapabilities) {
+        if (Capabilities.BASE.equals(newCapabilities)) {
+            remove(address);
+        } else {
+            states.compute(address, (__, state) -> {
+                ConnectionState s = state != null ? state : new ConnectionState();
+                s.setCapabilities(newCapabilities);
+                return s;
+            });
+        }
+    }
+
+    @Override
+    public Capabilities getOrDefault(InetSocketAddress address) {
+        ConnectionState state = states.get(address);
+        Capabilities capabilities = state != null ? state.getCapabilities() : null;
+        return capabilities != null ? capabilities : defaultCapability;
+    }
+
+    @Override
+    public void remove(InetSocketAddress address) {
+        states.computeIfPresent(address, (__, state) -> {
+            state.setCapabilities(null);
+            return state.isEmpty() ? null : state;
+        });
+    }
+
+    void addTransaction(InetSocketAddress address, Opaque token, CompletableFuture<CoapResponse> promise) {
+        states.compute(address, (__, state) -> {
+            ConnectionState s = state != null ? state : new ConnectionState();
+            s.putTransaction(token, promise);
+            return s;
+        });
+    }
+
+    CompletableFuture<CoapResponse> removeTransaction(InetSocketAddress address, Opaque token) {
+        AtomicReference<CompletableFuture<CoapResponse>> removed = new AtomicReference<>();
+        states.computeIfPresent(address, (__, state) -> {
+            removed.set(state.removeTransaction(token));
+            return state.isEmpty() ? null : state;
+        });
+        return removed.get();
+    }
+
+    void removeTransaction(InetSocketAddress address, Opaque token, CompletableFuture<CoapResponse> promise) {
+        states.computeIfPresent(address, (__, state) -> {
+            state.removeTransaction(token, promise);
+            return state.isEmpty() ? null : state;
+        });
+    }
+
+    void addObservation(InetSocketAddress address, Opaque token) {
+        states.compute(address, (__, state) -> {
+            ConnectionState s = state != null ? state : new ConnectionState();
+            s.addObservation(token);
+            return s;
+        });
+    }
+
+    /**
+     * Removes observation token, when observation is terminated while connection stays open.
+     *
+     * @param address peer address
+     * @param token observation token
+     */
+    public void removeObservation(InetSocketAddress address, Opaque token) {
+        states.computeIfPresent(address, (__, state) -> {
+            state.removeObservation(token);
+            return state.isEmpty() ? null : state;
+        });
+    }
+
+    int transactions() {
+        return states.values().stream().mapToInt(ConnectionState::getTransactionsCount).sum();
+    }
+}
@@ -19,25 +19,45 @@ package com.mbed.coap.server.messaging;
 import com.mbed.coap.packet.CoapRequest;
 import com.mbed.coap.packet.CoapResponse;
 import com.mbed.coap.packet.Code;
+import com.mbed.coap.packet.Opaque;
 import com.mbed.coap.packet.SeparateResponse;
 import com.mbed.coap.utils.Filter;
 import com.mbed.coap.utils.Service;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
 
+/**
+ * Matches responses with requests by token. Pending transactions and established observations are kept in
+ * per-connection {@link ConnectionState}, so that 7.05 Abort (also emitted on disconnect) terminates them at once.
+ */
 public class TcpExchangeFilter implements Filter<CoapRequest, CoapResponse, CoapRequest, Boolean> {
 
-    private final ConcurrentMap<TransactionId, CompletableFuture<CoapResponse>> transactions = new ConcurrentHashMap<>();
+    private final ConnectionStates connectionStates;
+    private final BiConsumer<InetSocketAddress, Opaque> observationTerminator;
+
+    public TcpExchangeFilter() {
+        this(new ConnectionStates(), (peer, token) -> {
+        });
+    }
+
+    /**
+     * @param connectionStates per-connection state index
+     * @param observationTerminator called with peer address and token of every observation of aborted connection
+     */
+    public TcpExchangeFilter(ConnectionStates connectionStates, BiConsumer<InetSocketAddress, Opaque> observationTerminator) {
+        this.connectionStates = connectionStates;
+        this.observationTerminator = observationTerminator;
+    }
 
     @Override
     public CompletableFuture<CoapResponse> apply(CoapRequest request, Service<CoapRequest, Boolean> service) {
-        TransactionId tid = new TransactionId(request.getToken(), request.getPeerAddress());
+        InetSocketAddress peerAddress = request.getPeerAddress();
+        Opaque token = request.getToken();
 
         CompletableFuture<CoapResponse> promise = new CompletableFuture<>();
-        transactions.put(tid, promise);
+        connectionStates.addTransaction(peerAddress, token, promise);
 
         CompletableFuture<Boolean> servicePromise = service.apply(request);
         servicePromise.whenComplete((resp, ex) -> {
@@ -46,9 +66,13 @@ public class TcpExchangeFilter implements Filter<CoapRequest, CoapResponse, Coap
             }
         });
 
-        promise.whenComplete((__, ex) -> {
+        boolean observeRequest = request.options().getObserve() != null;
+        promise.whenComplete((resp, ex) -> {
             servicePromise.cancel(false);
-            transactions.remove(tid, promise);
+            connectionStates.removeTransaction(peerAddress, token, promise);
+            if (observeRequest && resp != null && resp.options().getObserve() != null) {
+                connectionStates.addObservation(peerAddress, token);
+            }
         });
 
         return promise;
@@ -56,12 +80,11 @@ public class TcpExchangeFilter implements Filter<CoapRequest, CoapResponse, Coap
 
     public boolean handleResponse(SeparateResponse resp) {
         if (resp.getCode() == Code.C705_ABORT) {
-            removeTransactions(resp.getPeerAddress());
+            removeConnectionState(resp.getPeerAddress());
             return true;
         }
 
-        TransactionId tid = new TransactionId(resp.getToken(), resp.getPeerAddress());
-        CompletableFuture<CoapResponse> promise = transactions.remove(tid);
+        CompletableFuture<CoapResponse> promise = connectionStates.removeTransaction(resp.getPeerAddress(), resp.getToken());
         if (promise != null) {
             return promise.complete(resp.asResponse());
         } else {
@@ -69,20 +92,21 @@ public class TcpExchangeFilter implements Filter<CoapRequest, CoapResponse, Coap
         }
     }
 
-    private void removeTransactions(InetSocketAddress remoteAddress) {
-        for (TransactionId transId : transactions.keySet()) {
-            if (transId.hasRemoteAddress(remoteAddress)) {
-
-                CompletableFuture<CoapResponse> promise = transactions.remove(transId);
-                if (promise != null) {
-                    promise.completeExceptionally(new IOException("Socket closed"));
-                }
-            }
+    private void removeConnectionState(InetSocketAddress remoteAddress) {
+        ConnectionState state = connectionStates.drop(remoteAddress);
+        if (state == null) {
+            return;
+        }
+        for (CompletableFuture<CoapResponse> promise : state.transactions()) {
+            promise.completeExceptionally(new IOException("Socket closed"));
+        }
+        for (Opaque token : state.observations()) {
+            observationTerminator.accept(remoteAddress, token);
         }
     }
 
     public int transactions() {
-        return transactions.size();
+        return connectionStates.transactions();
     }
 
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.javassl;
+
+import static com.mbed.coap.utils.Validations.*;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Reconnection settings of {@link SocketClientTransport}.
+ * <p/>
+ * Delay before n-th reconnection attempt grows exponentially from minimum to maximum delay, and actual delay is picked
+ * randomly from upper half of it, so that many clients that lost connection at once do not reconnect in lockstep.
+ * While reconnecting, outgoing requests are held in a bounded buffer and sent once connection is established and CSM
+ * is received, or fail when their deadline passes.
+ */
+public final class ReconnectionPolicy {
+    public static final ReconnectionPolicy DISABLED = new ReconnectionPolicy(false, Duration.ZERO, Duration.ZERO, 0, Duration.ZERO);
+    public static final ReconnectionPolicy DEFAULT = of(Duration.ofMillis(100), Duration.ofSeconds(30), 64, Duration.ofSeconds(30));
+
+    private final boolean enabled;
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+    private final int maxPendingPackets;
+    private final Duration maxPendingTime;
+
+    private ReconnectionPolicy(boolean enabled, Duration minDelay, Duration maxDelay, int maxPendingPackets, Duration maxPendingTime) {
+        this.enabled = enabled;
+        this.minDelayMillis = minDelay.toMillis();
+        this.maxDelayMillis = maxDelay.toMillis();
+        this.maxPendingPackets = maxPendingPackets;
+        this.maxPendingTime = maxPendingTime;
+    }
+
+    /**
+     * @param minDelay delay before first reconnection attempt
+     * @param maxDelay maximum delay between reconnection attempts
+     * @param maxPendingPackets maximum number of outgoing packets held while reconnecting, 0 to fail them immediately
+     * @param maxPendingTime maximum time that outgoing packet is held, unless it has earlier deadline
+     * @return reconnection policy
+     */
+    public static ReconnectionPolicy of(Duration minDelay, Duration maxDelay, int maxPendingPackets, Duration maxPendingTime) {
+        require(minDelay.toMillis() > 0);
+        require(maxDelay.compareTo(minDelay) >= 0);
+        require(maxPendingPackets >= 0);
+        require(!maxPendingTime.isNegative());
+        return new ReconnectionPolicy(true, minDelay, maxDelay, maxPendingPackets, maxPendingTime);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getMinDelay() {
+        return Duration.ofMillis(minDelayMillis);
+    }
+
+    public Duration getMaxDelay() {
+        return Duration.ofMillis(maxDelayMillis);
+    }
+
+    public int getMaxPendingPackets() {
+        return maxPendingPackets;
+    }
+
+    public Duration getMaxPendingTime() {
+        return maxPendingTime;
+    }
+
+    /**
+     * @param attempt reconnection attempt, starting with 1
+     * @return delay in milliseconds
+     */
+    long delayMillis(int attempt) {
+        long delay = minDelayMillis;
+        for (int i = 1; i < attempt && delay < maxDelayMillis; i++) {
+            delay = delay << 1;
+        }
+        delay = Math.min(delay, maxDelayMillis);
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ReconnectionPolicy that = (ReconnectionPolicy) o;
+        return enabled == that.enabled && minDelayMillis == that.minDelayMillis && maxDelayMillis == that.maxDelayMillis
+                && maxPendingPackets == that.maxPendingPackets && Objects.equals(maxPendingTime, that.maxPendingTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(enabled, minDelayMillis, maxDelayMillis, maxPendingPackets, maxPendingTime);
+    }
+
+    @Override
+    public String toString() {
+        if (!enabled) {
+            return "ReconnectionPolicy[DISABLED]";
+        }
+        return "ReconnectionPolicy[delay=" + minDelayMillis + "-" + maxDelayMillis + "ms, maxPendingPackets=" + maxPendingPackets + ", maxPendingTime=" + maxPendingTime + "]";
+    }
+}
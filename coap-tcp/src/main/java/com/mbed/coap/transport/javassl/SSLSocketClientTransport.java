@@ -16,11 +16,15 @@
  */
 package com.mbed.coap.transport.javassl;
 
+import com.mbed.coap.transport.TransportExecutors;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
 import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import org.slf4j.Logger;
@@ -28,22 +32,39 @@ import org.slf4j.LoggerFactory;
 
 public class SSLSocketClientTransport extends SocketClientTransport {
     private static final Logger LOGGER = LoggerFactory.getLogger(SSLSocketClientTransport.class);
+    private final TlsSessionCache sessionCache;
 
     public SSLSocketClientTransport(InetSocketAddress destination, SSLSocketFactory socketFactory, CoapSerializer serializer, boolean autoReconnect) {
         super(destination, socketFactory, serializer, autoReconnect);
+        this.sessionCache = null;
+    }
+
+    /**
+     * Creates transport that resumes TLS sessions from given cache, on reconnects and when cache is shared with other transports.
+     */
+    public SSLSocketClientTransport(InetSocketAddress destination, TlsSessionCache sessionCache, CoapSerializer serializer, boolean autoReconnect) {
+        super(destination, sessionCache.getSocketFactory(), serializer, autoReconnect);
+        this.sessionCache = sessionCache;
+    }
+
+    public SSLSocketClientTransport(InetSocketAddress destination, TlsSessionCache sessionCache, CoapSerializer serializer, ReconnectionPolicy reconnectionPolicy) {
+        super(destination, sessionCache.getSocketFactory(), serializer, reconnectionPolicy, TransportExecutors.newWorker("client-reader"), DEFAULT_MAX_QUEUE_SIZE);
+        this.sessionCache = sessionCache;
     }
 
     @Override
     protected void connect(CoapTcpReceiver coapReceiver) throws IOException {
-        SSLSocket sslSocket = (SSLSocket) socketFactory.createSocket(destination.getAddress(), destination.getPort());
+        SSLSocket sslSocket = sessionCache != null
+                ? sessionCache.createSocket(destination)
+                : (SSLSocket) socketFactory.createSocket(destination.getAddress(), destination.getPort());
 
         sslSocket.addHandshakeCompletedListener(handshakeCompletedEvent -> {
-                    try {
-                        LOGGER.debug("Connected [" + handshakeCompletedEvent.getSource() + ", " + sslSocket.getSession().getPeerCertificateChain()[0].getSubjectDN() + "]");
-                    } catch (SSLPeerUnverifiedException e) {
-                        LOGGER.warn(e.getMessage(), e);
+                    SSLSession session = handshakeCompletedEvent.getSession();
+                    boolean resumed = sessionCache != null && sessionCache.handshakeCompleted(destination, session);
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Connected [" + handshakeCompletedEvent.getSource() + ", " + peerName(session) + (resumed ? ", resumed" : "") + "]");
                     }
-                    coapReceiver.onConnected((InetSocketAddress) socket.getRemoteSocketAddress());
+                    coapReceiver.onConnected((InetSocketAddress) handshakeCompletedEvent.getSocket().getRemoteSocketAddress());
                 }
         );
         sslSocket.startHandshake();
@@ -56,6 +77,18 @@ public class SSLSocketClientTransport extends SocketClientTransport {
         inputStream = new BufferedInputStream(socket.getInputStream(), 1024);
     }
 
+    private static String peerName(SSLSession session) {
+        try {
+            Certificate[] peerCertificates = session.getPeerCertificates();
+            if (peerCertificates.length > 0 && peerCertificates[0] instanceof X509Certificate) {
+                return ((X509Certificate) peerCertificates[0]).getSubjectX500Principal().getName();
+            }
+        } catch (SSLPeerUnverifiedException e) {
+            LOGGER.warn(e.getMessage(), e);
+        }
+        return "";
+    }
+
     public SSLSocket getSslSocket() {
         return ((SSLSocket) socket);
     }
@@ -16,11 +16,17 @@
  */
 package com.mbed.coap.transport.javassl;
 
+import static com.mbed.coap.utils.FutureHelpers.failedFuture;
+import static com.mbed.coap.utils.Validations.require;
+import static java.util.Objects.requireNonNull;
 import com.mbed.coap.exception.CoapException;
+import com.mbed.coap.exception.CoapTimeoutException;
 import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.packet.Code;
 import com.mbed.coap.transport.BlockingCoapTransport;
 import com.mbed.coap.transport.CoapReceiver;
 import com.mbed.coap.transport.TransportExecutors;
+import com.mbed.coap.utils.Timer;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.EOFException;
@@ -30,13 +36,49 @@ import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.net.SocketFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Client transport over blocking socket.
+ * <p/>
+ * Outgoing packets are put to bounded queue, a sender that finds no write in progress becomes the writer and sends
+ * everything queued so far with a single flush, while other senders return immediately. When queue is full, returned
+ * future fails.
+ * <p/>
+ * When connection is lost, transport reconnects according to {@link ReconnectionPolicy}. Meanwhile, outgoing
+ * packets (other than signaling) are held and sent in order once CSM is received on new connection. Held packet fails
+ * when its deadline passes, it can be set in transport context with {@link #DEADLINE} key.
+ * <p/>
+ * {@link #sendPacket0(CoapPacket)} writes directly to socket, bypassing the queue, and is flushed with {@link #flush()}.
+ */
 public class SocketClientTransport extends BlockingCoapTransport {
     private static final Logger LOGGER = LoggerFactory.getLogger(SSLSocketClientTransport.class);
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 1024;
+    /**
+     * Transport context key of {@link Instant} after which packet should not be sent anymore.
+     */
+    public static final String DEADLINE = "coap.deadline";
+    private static final int MAX_BATCH_SIZE = 64;
+    private static final int OUTPUT_BUFFER_SIZE = 16 * 1024;
+    private static final Timer EXPIRY_TIMER = Timer.toTimer(Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "client-pending-expiry");
+        thread.setDaemon(true);
+        return thread;
+    }));
 
     protected final InetSocketAddress destination;
     protected OutputStream outputStream;
@@ -45,18 +87,35 @@ public class SocketClientTransport extends BlockingCoapTransport {
     private final Executor readingWorker;
     protected final SocketFactory socketFactory;
     private final CoapSerializer serializer;
-    private final boolean autoReconnect;
+    private final ReconnectionPolicy reconnectionPolicy;
+    private final BlockingQueue<OutboundPacket> outboundQueue;
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private final List<OutboundPacket> batch = new ArrayList<>(MAX_BATCH_SIZE);
+    private final Deque<OutboundPacket> pendingPackets = new ArrayDeque<>();
+    // false while reconnecting, until CSM is received
+    private volatile boolean ready = true;
+    private int reconnectionAttempts;
 
     public SocketClientTransport(InetSocketAddress destination, SocketFactory socketFactory, CoapSerializer serializer, boolean autoReconnect) {
         this(destination, socketFactory, serializer, autoReconnect, TransportExecutors.newWorker("client-reader"));
     }
 
     public SocketClientTransport(InetSocketAddress destination, SocketFactory socketFactory, CoapSerializer serializer, boolean autoReconnect, Executor readingWorker) {
+        this(destination, socketFactory, serializer, autoReconnect, readingWorker, DEFAULT_MAX_QUEUE_SIZE);
+    }
+
+    public SocketClientTransport(InetSocketAddress destination, SocketFactory socketFactory, CoapSerializer serializer, boolean autoReconnect, Executor readingWorker, int maxQueueSize) {
+        this(destination, socketFactory, serializer, autoReconnect ? ReconnectionPolicy.DEFAULT : ReconnectionPolicy.DISABLED, readingWorker, maxQueueSize);
+    }
+
+    public SocketClientTransport(InetSocketAddress destination, SocketFactory socketFactory, CoapSerializer serializer, ReconnectionPolicy reconnectionPolicy, Executor readingWorker, int maxQueueSize) {
+        require(maxQueueSize > 0);
         this.destination = destination;
         this.socketFactory = socketFactory;
         this.serializer = serializer;
-        this.autoReconnect = autoReconnect;
+        this.reconnectionPolicy = requireNonNull(reconnectionPolicy);
         this.readingWorker = readingWorker;
+        this.outboundQueue = new ArrayBlockingQueue<>(maxQueueSize);
     }
 
     @Override
@@ -74,7 +133,7 @@ public class SocketClientTransport extends BlockingCoapTransport {
         socket = socketFactory.createSocket(destination.getAddress(), destination.getPort());
 
         synchronized (this) {
-            outputStream = new BufferedOutputStream(socket.getOutputStream());
+            outputStream = new BufferedOutputStream(socket.getOutputStream(), OUTPUT_BUFFER_SIZE);
         }
         inputStream = new BufferedInputStream(socket.getInputStream(), 2048);
 
@@ -93,6 +152,9 @@ public class SocketClientTransport extends BlockingCoapTransport {
                 try {
                     final CoapPacket coapPacket = serializer.deserialize(inputStream, ((InetSocketAddress) socket.getRemoteSocketAddress()));
                     coapReceiver.handle(coapPacket);
+                    if (!ready && coapPacket.getCode() == Code.C701_CSM) {
+                        reconnected();
+                    }
                 } catch (CoapException e) {
                     if (e.getCause() != null && e.getCause() instanceof IOException) {
                         throw ((IOException) e.getCause());
@@ -111,24 +173,168 @@ public class SocketClientTransport extends BlockingCoapTransport {
             }
         }
         if (socket.isClosed()) {
+            if (reconnectionPolicy.isEnabled()) {
+                ready = false;
+            }
             coapReceiver.onDisconnected(destination);
         }
 
-        return autoReconnect || !socket.isClosed();
+        return reconnectionPolicy.isEnabled() || !socket.isClosed();
     }
 
+    /**
+     * Waits with exponential backoff and jitter.
+     */
     protected void waitBeforeReconnection() throws InterruptedException {
-        Thread.sleep(100);
+        Thread.sleep(reconnectionPolicy.delayMillis(++reconnectionAttempts));
+    }
+
+    private void expire(OutboundPacket outboundPacket) {
+        boolean removed;
+        synchronized (pendingPackets) {
+            removed = pendingPackets.remove(outboundPacket);
+        }
+        if (removed) {
+            outboundPacket.promise.completeExceptionally(new CoapTimeoutException());
+        }
+    }
+
+    private void reconnected() {
+        reconnectionAttempts = 0;
+        synchronized (pendingPackets) {
+            // held packets go first, before any new one
+            long now = System.currentTimeMillis();
+            OutboundPacket outboundPacket;
+            while ((outboundPacket = pendingPackets.poll()) != null) {
+                outboundPacket.cancelExpiry.run();
+                if (outboundPacket.deadline <= now) {
+                    outboundPacket.promise.completeExceptionally(new CoapTimeoutException());
+                } else if (!outboundQueue.offer(outboundPacket)) {
+                    outboundPacket.promise.completeExceptionally(new IOException("Outbound queue is full"));
+                }
+            }
+            ready = true;
+        }
+        writeQueued();
+    }
+
+    private boolean hold(OutboundPacket outboundPacket) {
+        synchronized (pendingPackets) {
+            if (ready) {
+                return false;
+            }
+            if (pendingPackets.size() >= reconnectionPolicy.getMaxPendingPackets()) {
+                outboundPacket.promise.completeExceptionally(new IOException("Not connected, pending queue is full"));
+            } else {
+                pendingPackets.add(outboundPacket);
+                // expires independently of reader thread, which may be blocked on a new connection until CSM arrives
+                long delay = Math.max(0, outboundPacket.deadline - System.currentTimeMillis());
+                outboundPacket.cancelExpiry = EXPIRY_TIMER.schedule(Duration.ofMillis(delay), () -> expire(outboundPacket));
+            }
+            return true;
+        }
     }
 
     @Override
-    public synchronized void sendPacket0(CoapPacket coapPacket) throws CoapException, IOException {
+    public CompletableFuture<Boolean> sendPacket(CoapPacket coapPacket) {
+        InetSocketAddress adr = coapPacket.getRemoteAddress();
+        if (!adr.equals(this.destination)) {
+            return failedFuture(new IllegalStateException("No connection with: " + adr));
+        }
+        OutboundPacket outboundPacket = new OutboundPacket(coapPacket, deadlineOf(coapPacket));
+        if (!ready && !isSignaling(coapPacket) && hold(outboundPacket)) {
+            return outboundPacket.promise;
+        }
+        if (!outboundQueue.offer(outboundPacket)) {
+            return failedFuture(new IOException("Outbound queue is full"));
+        }
+
+        writeQueued();
+        return outboundPacket.promise;
+    }
+
+    private long deadlineOf(CoapPacket coapPacket) {
+        long deadline = System.currentTimeMillis() + reconnectionPolicy.getMaxPendingTime().toMillis();
+        Instant packetDeadline = coapPacket.getTransportContext().getAndCast(DEADLINE, Instant.class);
+        if (packetDeadline != null) {
+            return Math.min(deadline, packetDeadline.toEpochMilli());
+        }
+        return deadline;
+    }
+
+    @Override
+    public void sendPacket0(CoapPacket coapPacket) throws CoapException, IOException {
         InetSocketAddress adr = coapPacket.getRemoteAddress();
         if (!adr.equals(this.destination)) {
             throw new IllegalStateException("No connection with: " + adr);
         }
-        serializer.serialize(outputStream, coapPacket);
-        outputStream.flush();
+        synchronized (this) {
+            if (outputStream == null) {
+                throw new IOException("Not connected");
+            }
+            serializer.serialize(outputStream, coapPacket);
+        }
+    }
+
+    @Override
+    protected synchronized void flush() throws IOException {
+        if (outputStream != null) {
+            outputStream.flush();
+        }
+    }
+
+    private static boolean isSignaling(CoapPacket coapPacket) {
+        return coapPacket.getCode() != null && coapPacket.getCode().isSignaling();
+    }
+
+    private void writeQueued() {
+        // whoever finds no write in progress, writes everything that is queued
+        while (!outboundQueue.isEmpty() && writing.compareAndSet(false, true)) {
+            try {
+                writeBatch();
+            } finally {
+                writing.set(false);
+            }
+        }
+    }
+
+    private void writeBatch() {
+        outboundQueue.drainTo(batch, MAX_BATCH_SIZE);
+        try {
+            synchronized (this) {
+                if (outputStream == null) {
+                    throw new IOException("Not connected");
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    OutboundPacket outboundPacket = batch.get(i);
+                    try {
+                        serializer.serialize(outputStream, outboundPacket.packet);
+                    } catch (CoapException ex) {
+                        outboundPacket.promise.completeExceptionally(ex);
+                    }
+                }
+                outputStream.flush();
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).promise.complete(true);
+            }
+        } catch (IOException | RuntimeException ex) {
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).promise.completeExceptionally(ex);
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    public int queueSize() {
+        return outboundQueue.size();
+    }
+
+    public int pendingSize() {
+        synchronized (pendingPackets) {
+            return pendingPackets.size();
+        }
     }
 
     @Override
@@ -144,6 +350,29 @@ public class SocketClientTransport extends BlockingCoapTransport {
             throw new RuntimeException(e);
         } finally {
             TransportExecutors.shutdown(readingWorker);
+            OutboundPacket outboundPacket;
+            while ((outboundPacket = outboundQueue.poll()) != null) {
+                outboundPacket.promise.completeExceptionally(new IOException("Transport stopped"));
+            }
+            synchronized (pendingPackets) {
+                while ((outboundPacket = pendingPackets.poll()) != null) {
+                    outboundPacket.cancelExpiry.run();
+                    outboundPacket.promise.completeExceptionally(new IOException("Transport stopped"));
+                }
+            }
+        }
+    }
+
+    private static class OutboundPacket {
+        private final CoapPacket packet;
+        private final long deadline;
+        private final CompletableFuture<Boolean> promise = new CompletableFuture<>();
+        private Runnable cancelExpiry = () -> {
+        };
+
+        OutboundPacket(CoapPacket packet, long deadline) {
+            this.packet = packet;
+            this.deadline = deadline;
         }
     }
 }
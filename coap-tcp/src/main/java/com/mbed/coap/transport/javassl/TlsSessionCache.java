@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.javassl;
+
+import static com.mbed.coap.utils.Validations.*;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Cache of client TLS sessions, keyed by destination. It survives reconnects and can be shared by many
+ * {@link SSLSocketClientTransport}s, so that reconnecting to a known destination resumes cached session (session ID
+ * in TLS 1.2, session ticket in TLS 1.3) with abbreviated handshake instead of doing full one.
+ * <p/>
+ * Sessions are held by client session context of given SSLContext, this class keeps track of last session for every
+ * destination. Size and timeout of client session context are changed only when given explicitly.
+ */
+public final class TlsSessionCache {
+    public static final int DEFAULT_MAX_SESSIONS = 1000;
+
+    private final SSLSocketFactory socketFactory;
+    private final Map<InetSocketAddress, SSLSession> sessions;
+    private final LongAdder fullHandshakes = new LongAdder();
+    private final LongAdder resumedHandshakes = new LongAdder();
+
+    /**
+     * @param sslContext client SSL context, its client session context is used as is
+     */
+    public TlsSessionCache(SSLContext sslContext) {
+        this(sslContext, trackedSessions(sslContext.getClientSessionContext()));
+    }
+
+    /**
+     * @param sslContext client SSL context, its client session context is resized
+     * @param maxSessions maximum number of cached sessions, least recently used are evicted
+     * @param sessionTimeout time after which cached session is not resumed anymore
+     */
+    public TlsSessionCache(SSLContext sslContext, int maxSessions, Duration sessionTimeout) {
+        this(sslContext, maxSessions);
+        require(maxSessions > 0);
+        require(sessionTimeout.getSeconds() > 0);
+
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        sessionContext.setSessionCacheSize(maxSessions);
+        sessionContext.setSessionTimeout((int) Math.min(sessionTimeout.getSeconds(), Integer.MAX_VALUE));
+    }
+
+    private TlsSessionCache(SSLContext sslContext, int maxSessions) {
+        this.socketFactory = sslContext.getSocketFactory();
+        this.sessions = new LinkedHashMap<InetSocketAddress, SSLSession>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<InetSocketAddress, SSLSession> eldest) {
+                return size() > maxSessions;
+            }
+        };
+    }
+
+    // zero means unlimited JSSE cache, destinations are still tracked up to default
+    private static int trackedSessions(SSLSessionContext sessionContext) {
+        int size = sessionContext.getSessionCacheSize();
+        return size > 0 ? size : DEFAULT_MAX_SESSIONS;
+    }
+
+    public SSLSocketFactory getSocketFactory() {
+        return socketFactory;
+    }
+
+    SSLSocket createSocket(InetSocketAddress destination) throws IOException {
+        // peer host and port is a lookup key for resumable session
+        return (SSLSocket) socketFactory.createSocket(destination.getAddress(), destination.getPort());
+    }
+
+    /**
+     * Records session of completed handshake.
+     * <p/>
+     * JSSE does not tell if handshake was abbreviated, so it is approximated by comparing with last session of the
+     * destination: TLS 1.2 resumption keeps session ID, TLS 1.3 resumption gets new session ID, but keeps creation
+     * time of the original session.
+     *
+     * @param destination remote address
+     * @param session negotiated session
+     * @return true when session was (most likely) resumed
+     */
+    boolean handshakeCompleted(InetSocketAddress destination, SSLSession session) {
+        SSLSession previous;
+        synchronized (sessions) {
+            previous = sessions.put(destination, session);
+        }
+        boolean resumed = previous != null
+                && (Arrays.equals(previous.getId(), session.getId()) || previous.getCreationTime() == session.getCreationTime());
+        if (resumed) {
+            resumedHandshakes.increment();
+        } else {
+            fullHandshakes.increment();
+        }
+        return resumed;
+    }
+
+    /**
+     * @param destination remote address
+     * @return true when there is valid session to resume with given destination
+     */
+    public boolean contains(InetSocketAddress destination) {
+        synchronized (sessions) {
+            SSLSession session = sessions.get(destination);
+            if (session != null && !session.isValid()) {
+                sessions.remove(destination);
+                return false;
+            }
+            return session != null;
+        }
+    }
+
+    /**
+     * Forgets session of given destination, next connection will do full handshake.
+     *
+     * @param destination remote address
+     */
+    public void invalidate(InetSocketAddress destination) {
+        SSLSession session;
+        synchronized (sessions) {
+            session = sessions.remove(destination);
+        }
+        if (session != null) {
+            session.invalidate();
+        }
+    }
+
+    public long getFullHandshakes() {
+        return fullHandshakes.sum();
+    }
+
+    public long getResumedHandshakes() {
+        return resumedHandshakes.sum();
+    }
+
+}
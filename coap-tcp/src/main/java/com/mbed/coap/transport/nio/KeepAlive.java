@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.nio;
+
+import static com.mbed.coap.utils.Validations.require;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Keepalive and idle eviction settings for NIO TCP connections.
+ * <ul>
+ *     <li>when nothing is received for ping interval, 7.02 Ping is sent; connection is closed after max missed pongs
+ *     consecutive pings without any response</li>
+ *     <li>when no request, response or notification is exchanged for idle timeout, connection is closed</li>
+ * </ul>
+ * Zero duration disables given check.
+ */
+public final class KeepAlive {
+    public static final KeepAlive DISABLED = new KeepAlive(Duration.ZERO, 0, Duration.ZERO);
+
+    private final Duration pingInterval;
+    private final int maxMissedPongs;
+    private final Duration idleTimeout;
+
+    private KeepAlive(Duration pingInterval, int maxMissedPongs, Duration idleTimeout) {
+        require(!pingInterval.isNegative() && !idleTimeout.isNegative() && maxMissedPongs >= 0);
+        this.pingInterval = pingInterval;
+        this.maxMissedPongs = maxMissedPongs;
+        this.idleTimeout = idleTimeout;
+    }
+
+    public static KeepAlive of(Duration pingInterval, int maxMissedPongs, Duration idleTimeout) {
+        require(pingInterval.isZero() || maxMissedPongs > 0);
+        return new KeepAlive(pingInterval, maxMissedPongs, idleTimeout);
+    }
+
+    public static KeepAlive ping(Duration pingInterval, int maxMissedPongs) {
+        return of(pingInterval, maxMissedPongs, Duration.ZERO);
+    }
+
+    public static KeepAlive idleTimeout(Duration idleTimeout) {
+        return of(Duration.ZERO, 0, idleTimeout);
+    }
+
+    public Duration getPingInterval() {
+        return pingInterval;
+    }
+
+    public int getMaxMissedPongs() {
+        return maxMissedPongs;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    boolean isEnabled() {
+        return !pingInterval.isZero() || !idleTimeout.isZero();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        KeepAlive keepAlive = (KeepAlive) o;
+        return maxMissedPongs == keepAlive.maxMissedPongs && pingInterval.equals(keepAlive.pingInterval) && idleTimeout.equals(keepAlive.idleTimeout);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(pingInterval, maxMissedPongs, idleTimeout);
+    }
+
+    @Override
+    public String toString() {
+        return "KeepAlive[ping=" + pingInterval + ", maxMissedPongs=" + maxMissedPongs + ", idle=" + idleTimeout + "]";
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.nio;
+
+import static com.mbed.coap.utils.FutureHelpers.failedFuture;
+import static com.mbed.coap.utils.Validations.require;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.transport.CoapReceiver;
+import com.mbed.coap.transport.CoapTransport;
+import com.mbed.coap.transport.javassl.CoapTcpReceiver;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * CoAP over TCP client transport (RFC 8323) that talks to many destinations. Connection to destination is opened
+ * lazily with first outgoing packet and kept in a bounded pool, so that following requests reuse it together with
+ * CSM capabilities negotiated on it (kept in CapabilitiesStorage until connection is closed).
+ * Connections that are idle for longer than idle timeout are closed, optionally dead connections are detected with
+ * keepalive pings, see {@link KeepAlive}. When pool is full, the least recently used idle connection is evicted.
+ */
+public class NioTcpClientTransport implements CoapTransport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioTcpClientTransport.class);
+    public static final int DEFAULT_MAX_CONNECTIONS = 1000;
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(5);
+    private static final long MAX_PENDING_WRITE_BYTES = 1024 * 1024;
+
+    private final int selectorThreads;
+    private final int maxConnections;
+    private final KeepAlive keepAlive;
+    private final int maxFrameSize;
+    private final Map<InetSocketAddress, TcpConnection> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final List<SelectorLoop> loops = new ArrayList<>();
+    private final ConnectionListener listener = new ConnectionListener();
+    private CoapTcpReceiver receiver;
+
+    public NioTcpClientTransport() {
+        this(DEFAULT_MAX_CONNECTIONS, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    public NioTcpClientTransport(int maxConnections, Duration idleTimeout) {
+        this(maxConnections, KeepAlive.idleTimeout(idleTimeout), 1, NioTcpServerTransport.DEFAULT_MAX_FRAME_SIZE);
+    }
+
+    /**
+     * @param maxConnections maximum number of opened connections
+     * @param keepAlive keepalive pings and idle connection eviction settings
+     * @param selectorThreads number of selector threads
+     * @param maxFrameSize maximum size of received frame
+     */
+    public NioTcpClientTransport(int maxConnections, KeepAlive keepAlive, int selectorThreads, int maxFrameSize) {
+        require(maxConnections > 0 && selectorThreads > 0 && maxFrameSize > 0);
+        this.maxConnections = maxConnections;
+        this.keepAlive = keepAlive;
+        this.selectorThreads = selectorThreads;
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    @Override
+    public void start(CoapReceiver coapReceiver) throws IOException {
+        receiver = (CoapTcpReceiver) coapReceiver;
+        for (int i = 0; i < selectorThreads; i++) {
+            SelectorLoop loop = new SelectorLoop("tcp-client-selector");
+            loops.add(loop);
+            loop.start();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sendPacket(CoapPacket coapPacket) {
+        TcpConnection connection = connections.get(coapPacket.getRemoteAddress());
+        if (connection == null) {
+            try {
+                connection = connect(coapPacket.getRemoteAddress());
+            } catch (IOException | RuntimeException e) {
+                // for example UnresolvedAddressException
+                return failedFuture(e);
+            }
+        }
+
+        return connection.send(coapPacket);
+    }
+
+    private TcpConnection connect(InetSocketAddress destination) throws IOException {
+        synchronized (connections) {
+            TcpConnection existing = connections.get(destination);
+            if (existing != null) {
+                return existing;
+            }
+            if (connections.size() >= maxConnections && !evictLeastRecentlyUsed()) {
+                throw new IOException("Connection pool is full");
+            }
+
+            SocketChannel channel = SocketChannel.open();
+            TcpConnection connection = null;
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                boolean connected = channel.connect(destination);
+
+                SelectorLoop loop = nextLoop();
+                connection = newConnection(channel, destination, loop, listener);
+                connections.put(destination, connection);
+                TcpConnection newConnection = connection;
+                loop.execute(() -> open(newConnection, connected));
+                return connection;
+            } catch (IOException | RuntimeException e) {
+                if (connection != null) {
+                    connections.remove(destination, connection);
+                }
+                closeQuietly(channel);
+                throw e;
+            }
+        }
+    }
+
+    private static void open(TcpConnection connection, boolean connected) {
+        try {
+            if (connected) {
+                connection.open();
+            } else {
+                connection.openConnecting();
+            }
+        } catch (IOException e) {
+            connection.onError(e);
+        }
+    }
+
+    TcpConnection newConnection(SocketChannel channel, InetSocketAddress destination, SelectorLoop loop, TcpConnection.Listener listener) throws IOException {
+        return new TcpConnection(channel, destination, loop, listener, maxFrameSize, maxPendingWriteBytes(), keepAlive);
+    }
+
+    int maxFrameSize() {
+        return maxFrameSize;
+    }
+
+    KeepAlive keepAlive() {
+        return keepAlive;
+    }
+
+    long maxPendingWriteBytes() {
+        return Math.max(MAX_PENDING_WRITE_BYTES, maxFrameSize);
+    }
+
+    private boolean evictLeastRecentlyUsed() {
+        long now = System.nanoTime();
+        TcpConnection lru = null;
+        for (TcpConnection connection : connections.values()) {
+            if (connection.isConnected() && connection.pendingWriteBytes() == 0
+                    && (lru == null || connection.idleNanos(now) > lru.idleNanos(now))) {
+                lru = connection;
+            }
+        }
+        if (lru == null) {
+            return false;
+        }
+        LOGGER.debug("Connection pool is full, evicting: {}", lru.getRemoteAddress());
+        connections.remove(lru.getRemoteAddress(), lru);
+        lru.close();
+        return true;
+    }
+
+    /**
+     * Closes connection with given destination.
+     *
+     * @param destination destination address
+     * @return true if connection existed
+     */
+    public boolean closeConnection(InetSocketAddress destination) {
+        TcpConnection connection = connections.get(destination);
+        if (connection == null) {
+            return false;
+        }
+        connection.close();
+        return true;
+    }
+
+    public Set<InetSocketAddress> getConnectedPeers() {
+        return Collections.unmodifiableSet(connections.keySet());
+    }
+
+    public int getConnectionsCount() {
+        return connections.size();
+    }
+
+    @Override
+    public void stop() {
+        connections.values().forEach(TcpConnection::close);
+        loops.forEach(SelectorLoop::stop);
+        loops.clear();
+    }
+
+    /**
+     * Connections have own local addresses, so there is no single one.
+     *
+     * @return null
+     */
+    @Override
+    public InetSocketAddress getLocalSocketAddress() {
+        return null;
+    }
+
+    private SelectorLoop nextLoop() {
+        return loops.get(Math.floorMod(nextLoop.getAndIncrement(), loops.size()));
+    }
+
+    private final class ConnectionListener implements TcpConnection.Listener {
+
+        @Override
+        public void onConnected(TcpConnection connection) {
+            receiver.onConnected(connection.getRemoteAddress());
+        }
+
+        @Override
+        public void onDisconnected(TcpConnection connection) {
+            if (connections.remove(connection.getRemoteAddress(), connection) || connection.wasConnected()) {
+                receiver.onDisconnected(connection.getRemoteAddress());
+            }
+        }
+
+        @Override
+        public void onPacket(CoapPacket packet) {
+            receiver.handle(packet);
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.debug(e.getMessage());
+        }
+    }
+}
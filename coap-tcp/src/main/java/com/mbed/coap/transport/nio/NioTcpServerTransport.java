@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.nio;
+
+import static com.mbed.coap.utils.FutureHelpers.failedFuture;
+import static com.mbed.coap.utils.Validations.require;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.transport.CoapReceiver;
+import com.mbed.coap.transport.CoapTransport;
+import com.mbed.coap.transport.javassl.CoapTcpReceiver;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * CoAP over TCP server transport (RFC 8323) that multiplexes many connections on a few selector threads.
+ * Outgoing packets are routed to connection by remote address, connection state changes are reported to
+ * {@link CoapTcpReceiver}.
+ */
+public class NioTcpServerTransport implements CoapTransport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioTcpServerTransport.class);
+    public static final int DEFAULT_MAX_FRAME_SIZE = 1024 * 1024;
+    private static final long MAX_PENDING_WRITE_BYTES = 1024 * 1024;
+    private static final long MIN_ACCEPT_BACKOFF_MILLIS = 100;
+    private static final long MAX_ACCEPT_BACKOFF_MILLIS = 5000;
+    private static final long ACCEPT_ERROR_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final InetSocketAddress bindAddress;
+    private final int selectorThreads;
+    private final int maxFrameSize;
+    private final KeepAlive keepAlive;
+    private final Map<InetSocketAddress, TcpConnection> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final List<SelectorLoop> loops = new ArrayList<>();
+    private volatile ServerSocketChannel serverChannel;
+    private CoapTcpReceiver receiver;
+
+    public NioTcpServerTransport(int port) {
+        this(new InetSocketAddress(port));
+    }
+
+    public NioTcpServerTransport(InetSocketAddress bindAddress) {
+        this(bindAddress, Math.min(Runtime.getRuntime().availableProcessors(), 4));
+    }
+
+    public NioTcpServerTransport(InetSocketAddress bindAddress, int selectorThreads) {
+        this(bindAddress, selectorThreads, DEFAULT_MAX_FRAME_SIZE);
+    }
+
+    public NioTcpServerTransport(InetSocketAddress bindAddress, int selectorThreads, int maxFrameSize) {
+        this(bindAddress, selectorThreads, maxFrameSize, KeepAlive.DISABLED);
+    }
+
+    /**
+     * @param bindAddress bind address
+     * @param selectorThreads number of selector threads
+     * @param maxFrameSize maximum size of received frame
+     * @param keepAlive keepalive pings and idle connection eviction settings
+     */
+    public NioTcpServerTransport(InetSocketAddress bindAddress, int selectorThreads, int maxFrameSize, KeepAlive keepAlive) {
+        require(selectorThreads > 0 && maxFrameSize > 0);
+        this.bindAddress = bindAddress;
+        this.selectorThreads = selectorThreads;
+        this.maxFrameSize = maxFrameSize;
+        this.keepAlive = keepAlive;
+    }
+
+    @Override
+    public void start(CoapReceiver coapReceiver) throws IOException {
+        receiver = (CoapTcpReceiver) coapReceiver;
+        for (int i = 0; i < selectorThreads; i++) {
+            loops.add(new SelectorLoop("tcp-selector"));
+        }
+
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        channel.bind(bindAddress);
+        loops.get(0).register(channel, SelectionKey.OP_ACCEPT, new Acceptor(loops.get(0)));
+        serverChannel = channel;
+
+        loops.forEach(SelectorLoop::start);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sendPacket(CoapPacket coapPacket) {
+        TcpConnection connection = connections.get(coapPacket.getRemoteAddress());
+        if (connection == null) {
+            return failedFuture(new IllegalStateException("No connection with: " + coapPacket.getRemoteAddress()));
+        }
+
+        return connection.send(coapPacket);
+    }
+
+    SocketChannel accept() throws IOException {
+        return serverChannel.accept();
+    }
+
+    TcpConnection newConnection(SocketChannel channel, SelectorLoop loop, TcpConnection.Listener listener) throws IOException {
+        return new TcpConnection(channel, (InetSocketAddress) channel.getRemoteAddress(), loop, listener, maxFrameSize, maxPendingWriteBytes(), keepAlive);
+    }
+
+    int maxFrameSize() {
+        return maxFrameSize;
+    }
+
+    KeepAlive keepAlive() {
+        return keepAlive;
+    }
+
+    long maxPendingWriteBytes() {
+        return Math.max(MAX_PENDING_WRITE_BYTES, maxFrameSize);
+    }
+
+    /**
+     * Closes connection with given peer.
+     *
+     * @param remoteAddress peer address
+     * @return true if connection existed
+     */
+    public boolean closeConnection(InetSocketAddress remoteAddress) {
+        TcpConnection connection = connections.get(remoteAddress);
+        if (connection == null) {
+            return false;
+        }
+        connection.close();
+        return true;
+    }
+
+    public Set<InetSocketAddress> getConnectedPeers() {
+        return Collections.unmodifiableSet(connections.keySet());
+    }
+
+    public int getConnectionsCount() {
+        return connections.size();
+    }
+
+    @Override
+    public void stop() {
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+        connections.values().forEach(TcpConnection::close);
+        loops.forEach(SelectorLoop::stop);
+        loops.clear();
+    }
+
+    @Override
+    public InetSocketAddress getLocalSocketAddress() {
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private SelectorLoop nextLoop() {
+        return loops.get(Math.floorMod(nextLoop.getAndIncrement(), loops.size()));
+    }
+
+    private final class Acceptor implements SelectorLoop.Handler, TcpConnection.Listener {
+        private final SelectorLoop loop;
+        // accessed only on loop thread
+        private long backoffMillis = MIN_ACCEPT_BACKOFF_MILLIS;
+        private long lastErrorLogNanos = System.nanoTime() - ACCEPT_ERROR_LOG_INTERVAL_NANOS;
+        private int suppressedErrors;
+
+        Acceptor(SelectorLoop loop) {
+            this.loop = loop;
+        }
+
+        @Override
+        public void onReady(SelectionKey key) {
+            try {
+                SocketChannel channel;
+                while ((channel = accept()) != null) {
+                    backoffMillis = MIN_ACCEPT_BACKOFF_MILLIS;
+                    accepted(channel);
+                }
+            } catch (IOException e) {
+                pauseAccepting(key, e);
+            }
+        }
+
+        // Accept error (for example too many open files) leaves connection pending, so selector would report it
+        // again immediately. Interest in accepting is removed and restored after a backoff delay.
+        private void pauseAccepting(SelectionKey key, IOException e) {
+            if (!key.isValid()) {
+                return;
+            }
+            logAcceptError(e);
+            key.interestOps(0);
+            loop.timers().schedule(TimeUnit.MILLISECONDS.toNanos(backoffMillis), () -> {
+                if (key.isValid()) {
+                    key.interestOps(SelectionKey.OP_ACCEPT);
+                }
+            });
+            backoffMillis = Math.min(backoffMillis * 2, MAX_ACCEPT_BACKOFF_MILLIS);
+        }
+
+        private void logAcceptError(IOException e) {
+            long now = System.nanoTime();
+            if (now - lastErrorLogNanos < ACCEPT_ERROR_LOG_INTERVAL_NANOS) {
+                suppressedErrors++;
+                return;
+            }
+            LOGGER.warn("Failed to accept connection: {}, retrying in {}ms ({} similar errors suppressed)", e.toString(), backoffMillis, suppressedErrors);
+            lastErrorLogNanos = now;
+            suppressedErrors = 0;
+        }
+
+        private void accepted(SocketChannel channel) {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SelectorLoop loop = nextLoop();
+                TcpConnection connection = newConnection(channel, loop, this);
+                loop.execute(() -> open(connection));
+            } catch (IOException e) {
+                LOGGER.warn("Failed to accept connection: {}", e.toString());
+                closeQuietly(channel);
+            }
+        }
+
+        private void open(TcpConnection connection) {
+            try {
+                connection.open();
+            } catch (IOException e) {
+                connection.onError(e);
+            }
+        }
+
+        @Override
+        public void onError(Exception ex) {
+            LOGGER.warn("Failed to accept connection: {}", ex.toString());
+        }
+
+        @Override
+        public void onConnected(TcpConnection connection) {
+            TcpConnection prev = connections.put(connection.getRemoteAddress(), connection);
+            if (prev != null) {
+                prev.close();
+            }
+            receiver.onConnected(connection.getRemoteAddress());
+        }
+
+        @Override
+        public void onDisconnected(TcpConnection connection) {
+            if (connections.remove(connection.getRemoteAddress(), connection)) {
+                receiver.onDisconnected(connection.getRemoteAddress());
+            }
+        }
+
+        @Override
+        public void onPacket(CoapPacket packet) {
+            receiver.handle(packet);
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.debug(e.getMessage());
+        }
+    }
+}
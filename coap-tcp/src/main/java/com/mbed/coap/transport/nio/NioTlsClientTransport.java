@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.nio;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+/**
+ * CoAP over TLS client transport (coaps+tcp, RFC 8323) with pool of connections, see {@link NioTcpClientTransport}.
+ * Delegated handshake tasks run on given executor, by default on a selector thread.
+ */
+public class NioTlsClientTransport extends NioTcpClientTransport {
+
+    private final SSLContext sslContext;
+    private final Executor delegatedTaskExecutor;
+
+    public NioTlsClientTransport(SSLContext sslContext) {
+        this(sslContext, DEFAULT_MAX_CONNECTIONS, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    public NioTlsClientTransport(SSLContext sslContext, int maxConnections, Duration idleTimeout) {
+        this(sslContext, maxConnections, KeepAlive.idleTimeout(idleTimeout), 1, Runnable::run);
+    }
+
+    /**
+     * @param sslContext ssl context
+     * @param maxConnections maximum number of opened connections
+     * @param keepAlive keepalive pings and idle connection eviction settings
+     * @param selectorThreads number of selector threads
+     * @param delegatedTaskExecutor executor for delegated handshake tasks
+     */
+    public NioTlsClientTransport(SSLContext sslContext, int maxConnections, KeepAlive keepAlive, int selectorThreads, Executor delegatedTaskExecutor) {
+        super(maxConnections, keepAlive, selectorThreads, NioTcpServerTransport.DEFAULT_MAX_FRAME_SIZE);
+        this.sslContext = sslContext;
+        this.delegatedTaskExecutor = delegatedTaskExecutor;
+    }
+
+    @Override
+    TcpConnection newConnection(SocketChannel channel, InetSocketAddress destination, SelectorLoop loop, TcpConnection.Listener listener) {
+        return new TlsConnection(channel, destination, loop, listener, maxFrameSize(), maxPendingWriteBytes(), keepAlive(),
+                createEngine(destination), delegatedTaskExecutor);
+    }
+
+    protected SSLEngine createEngine(InetSocketAddress destination) {
+        SSLEngine engine = sslContext.createSSLEngine(destination.getHostString(), destination.getPort());
+        engine.setUseClientMode(true);
+        return engine;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.nio;
+
+import com.mbed.coap.transport.TransportExecutors;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+/**
+ * CoAP over TLS server transport (coaps+tcp, RFC 8323) based on {@link NioTcpServerTransport} and non-blocking
+ * {@link SSLEngine}. Handshakes and record processing run on selector threads, delegated handshake tasks run on a
+ * bounded pool; when the pool is saturated, new handshakes are rejected by closing connection.
+ */
+public class NioTlsServerTransport extends NioTcpServerTransport {
+    private static final int DELEGATED_TASK_QUEUE_SIZE = 1024;
+
+    private final SSLContext sslContext;
+    private final boolean needClientAuth;
+    private final Executor delegatedTaskExecutor;
+    private final boolean ownsDelegatedTaskExecutor;
+
+    public NioTlsServerTransport(InetSocketAddress bindAddress, SSLContext sslContext, boolean needClientAuth) {
+        this(bindAddress, sslContext, needClientAuth, Math.min(Runtime.getRuntime().availableProcessors(), 4), null);
+    }
+
+    /**
+     * @param bindAddress bind address
+     * @param sslContext ssl context
+     * @param needClientAuth if true, client must authenticate with certificate
+     * @param selectorThreads number of selector threads
+     * @param delegatedTaskExecutor executor for delegated handshake tasks, when null then bounded pool is created
+     */
+    public NioTlsServerTransport(InetSocketAddress bindAddress, SSLContext sslContext, boolean needClientAuth, int selectorThreads, Executor delegatedTaskExecutor) {
+        this(bindAddress, sslContext, needClientAuth, selectorThreads, delegatedTaskExecutor, KeepAlive.DISABLED);
+    }
+
+    /**
+     * @param bindAddress bind address
+     * @param sslContext ssl context
+     * @param needClientAuth if true, client must authenticate with certificate
+     * @param selectorThreads number of selector threads
+     * @param delegatedTaskExecutor executor for delegated handshake tasks, when null then bounded pool is created
+     * @param keepAlive keepalive pings and idle connection eviction settings
+     */
+    public NioTlsServerTransport(InetSocketAddress bindAddress, SSLContext sslContext, boolean needClientAuth, int selectorThreads, Executor delegatedTaskExecutor,
+            KeepAlive keepAlive) {
+        super(bindAddress, selectorThreads, DEFAULT_MAX_FRAME_SIZE, keepAlive);
+        this.sslContext = sslContext;
+        this.needClientAuth = needClientAuth;
+        this.ownsDelegatedTaskExecutor = delegatedTaskExecutor == null;
+        this.delegatedTaskExecutor = ownsDelegatedTaskExecutor ? newDelegatedTaskPool() : delegatedTaskExecutor;
+    }
+
+    private static Executor newDelegatedTaskPool() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(DELEGATED_TASK_QUEUE_SIZE),
+                r -> {
+                    Thread thread = new Thread(r, "tls-handshake-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    @Override
+    TcpConnection newConnection(SocketChannel channel, SelectorLoop loop, TcpConnection.Listener listener) throws IOException {
+        InetSocketAddress remoteAddress = (InetSocketAddress) channel.getRemoteAddress();
+        return new TlsConnection(channel, remoteAddress, loop, listener, maxFrameSize(), maxPendingWriteBytes(), keepAlive(),
+                createEngine(remoteAddress), delegatedTaskExecutor);
+    }
+
+    protected SSLEngine createEngine(InetSocketAddress peerAddress) {
+        SSLEngine engine = sslContext.createSSLEngine(peerAddress.getHostString(), peerAddress.getPort());
+        engine.setUseClientMode(false);
+        engine.setNeedClientAuth(needClientAuth);
+        return engine;
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        if (ownsDelegatedTaskExecutor) {
+            TransportExecutors.shutdown(delegatedTaskExecutor);
+        }
+    }
+}
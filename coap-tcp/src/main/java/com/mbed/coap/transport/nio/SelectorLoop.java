@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.nio;
+
+import com.mbed.coap.transport.TransportExecutors;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single selector with its own thread. All operations on channels registered to it are executed on that thread,
+ * other threads hand over work with {@link #execute(Runnable)}.
+ */
+final class SelectorLoop {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SelectorLoop.class);
+    private static final long TICK_MILLIS = 100;
+    private static final int WHEEL_SIZE = 512;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Selector selector;
+    private final Executor worker;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final TimerWheel timers = new TimerWheel(TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS), WHEEL_SIZE, System.nanoTime());
+    private ByteBuffer appBuffer;
+    private ByteBuffer netBuffer;
+
+    interface Handler {
+        void onReady(SelectionKey key) throws IOException;
+
+        void onError(Exception ex);
+    }
+
+    SelectorLoop(String name) throws IOException {
+        this.selector = Selector.open();
+        this.worker = TransportExecutors.newWorker(name);
+    }
+
+    void start() {
+        TransportExecutors.loop(worker, this::selectOnce);
+    }
+
+    SelectionKey register(SelectableChannel channel, int ops, Handler handler) throws IOException {
+        return channel.register(selector, ops, handler);
+    }
+
+    /**
+     * Returns read buffer shared by all channels of this loop, valid only on the loop thread.
+     */
+    ByteBuffer readBuffer() {
+        return readBuffer;
+    }
+
+    /**
+     * Returns write buffer shared by all channels of this loop, valid only on the loop thread.
+     */
+    ByteBuffer writeBuffer() {
+        return writeBuffer;
+    }
+
+    /**
+     * Returns shared buffer for decrypted application data, valid only on the loop thread.
+     */
+    ByteBuffer appBuffer(int minCapacity) {
+        if (appBuffer == null || appBuffer.capacity() < minCapacity) {
+            appBuffer = ByteBuffer.allocateDirect(minCapacity);
+        }
+        return appBuffer;
+    }
+
+    /**
+     * Returns shared buffer for encrypted network data, valid only on the loop thread.
+     */
+    ByteBuffer netBuffer(int minCapacity) {
+        if (netBuffer == null || netBuffer.capacity() < minCapacity) {
+            netBuffer = ByteBuffer.allocateDirect(minCapacity);
+        }
+        return netBuffer;
+    }
+
+    /**
+     * Returns timer wheel of this loop, valid only on the loop thread. Timeouts run on the loop thread.
+     */
+    TimerWheel timers() {
+        return timers;
+    }
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    boolean selectOnce() {
+        try {
+            selector.select(TICK_MILLIS);
+            runTasks();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                handle(key);
+            }
+            timers.advance(System.nanoTime());
+            return true;
+        } catch (ClosedSelectorException ex) {
+            return false;
+        } catch (IOException ex) {
+            LOGGER.warn(ex.getMessage(), ex);
+        }
+        return selector.isOpen();
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception ex) {
+                LOGGER.warn(ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private static void handle(SelectionKey key) {
+        Handler handler = (Handler) key.attachment();
+        try {
+            if (key.isValid()) {
+                handler.onReady(key);
+            }
+        } catch (Exception ex) {
+            handler.onError(ex);
+        }
+    }
+
+    void stop() {
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+        TransportExecutors.shutdown(worker);
+    }
+}
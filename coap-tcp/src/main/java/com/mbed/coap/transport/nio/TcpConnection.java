@@ -0,0 +1,489 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.nio;
+
+import com.mbed.coap.exception.CoapException;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.packet.CoapTcpFrameDecoder;
+import com.mbed.coap.packet.CoapTcpPacketSerializer;
+import com.mbed.coap.packet.Code;
+import com.mbed.coap.packet.Opaque;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non-blocking CoAP over TCP connection, all channel operations are executed on selector loop thread.
+ * Outgoing packets are queued and encoded in batches into loop's direct write buffer; only bytes that the socket did
+ * not accept are copied to a per-connection backlog. Incoming bytes are fed to a resumable frame decoder.
+ * Keepalive pings and idle eviction are driven by loop's timer wheel, see {@link KeepAlive}.
+ */
+class TcpConnection implements SelectorLoop.Handler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TcpConnection.class);
+    // estimated frame overhead (header, token and options) used for pending bytes accounting
+    private static final int FRAME_OVERHEAD_ESTIMATE = 64;
+    // reads per readiness event, remaining bytes are read in next selector round so that other connections are not starved
+    static final int MAX_READS_PER_EVENT = 16;
+    static final int KEEPALIVE_TOKEN_SIZE = 8;
+
+    protected final SocketChannel channel;
+    protected final SelectorLoop loop;
+    protected final InetSocketAddress remoteAddress;
+    private final Listener listener;
+    private final long maxPendingWriteBytes;
+    private final KeepAlive keepAlive;
+    private final CoapTcpFrameDecoder decoder;
+    private final Deque<PendingWrite> writeQueue = new ConcurrentLinkedDeque<>();
+    private final List<PendingWrite> encoded = new ArrayList<>();
+    private final AtomicLong pendingWriteBytes = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    protected SelectionKey key;
+    private volatile boolean connected;
+    private volatile long lastReceivedNanos = System.nanoTime();
+    private volatile long lastExchangeNanos = System.nanoTime();
+    private int unansweredPings;
+    // tokens of sent keepalive pings, only pongs with one of them are consumed and not passed to listener
+    private final Deque<Opaque> pingTokens = new ArrayDeque<>();
+    private ByteBuffer backlog;
+
+    interface Listener {
+        void onConnected(TcpConnection connection);
+
+        /**
+         * Called when connection is closed, also if it was never connected.
+         */
+        void onDisconnected(TcpConnection connection);
+
+        void onPacket(CoapPacket packet);
+    }
+
+    TcpConnection(SocketChannel channel, InetSocketAddress remoteAddress, SelectorLoop loop, Listener listener, int maxFrameSize, long maxPendingWriteBytes,
+            KeepAlive keepAlive) {
+        this.channel = channel;
+        this.loop = loop;
+        this.listener = listener;
+        this.maxPendingWriteBytes = maxPendingWriteBytes;
+        this.keepAlive = keepAlive;
+        this.remoteAddress = remoteAddress;
+        this.decoder = new CoapTcpFrameDecoder(remoteAddress, maxFrameSize);
+    }
+
+    InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    boolean isConnected() {
+        return connected && !closed.get();
+    }
+
+    boolean wasConnected() {
+        return connected;
+    }
+
+    /**
+     * @return nanoseconds since last sent or received request, response or notification
+     */
+    long idleNanos(long nowNanos) {
+        return nowNanos - lastExchangeNanos;
+    }
+
+    protected final boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Registers connected channel in selector, must be called from selector loop thread.
+     */
+    void open() throws IOException {
+        key = loop.register(channel, SelectionKey.OP_READ, this);
+        established();
+    }
+
+    /**
+     * Registers channel with pending connect in selector, must be called from selector loop thread.
+     */
+    void openConnecting() throws IOException {
+        key = loop.register(channel, SelectionKey.OP_CONNECT, this);
+    }
+
+    /**
+     * Called when TCP connection is established, subclasses may run own handshake before calling {@link #connected()}.
+     */
+    protected void established() throws IOException {
+        connected();
+        flush();
+    }
+
+    protected final void connected() {
+        // signaling messages (CSM) sent from listener are put in front of packets queued while connecting
+        listener.onConnected(this);
+        connected = true;
+
+        lastReceivedNanos = System.nanoTime();
+        lastExchangeNanos = lastReceivedNanos;
+        if (keepAlive.isEnabled()) {
+            scheduleKeepAlive(nextKeepAliveCheck(lastReceivedNanos));
+        }
+    }
+
+    private void scheduleKeepAlive(long delayNanos) {
+        loop.timers().schedule(delayNanos, this::checkKeepAlive);
+    }
+
+    /**
+     * Runs on loop thread from timer wheel. Every connection has at most one pending check, it is rescheduled instead
+     * of being cancelled on traffic.
+     */
+    private void checkKeepAlive() {
+        if (closed.get()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long idleTimeout = keepAlive.getIdleTimeout().toNanos();
+        if (idleTimeout > 0 && now - lastExchangeNanos >= idleTimeout) {
+            LOGGER.debug("Closing idle connection with {}", remoteAddress);
+            close();
+            return;
+        }
+
+        long pingInterval = keepAlive.getPingInterval().toNanos();
+        if (pingInterval > 0 && now - lastReceivedNanos >= pingInterval) {
+            if (unansweredPings >= keepAlive.getMaxMissedPongs()) {
+                LOGGER.info("Closing connection with {}, no response for {} keepalive pings", remoteAddress, unansweredPings);
+                close();
+                return;
+            }
+            unansweredPings++;
+            send(newKeepAlivePing());
+            long next = pingInterval;
+            if (idleTimeout > 0) {
+                next = Math.min(next, lastExchangeNanos + idleTimeout - now);
+            }
+            scheduleKeepAlive(next);
+            return;
+        }
+        scheduleKeepAlive(nextKeepAliveCheck(now));
+    }
+
+    private long nextKeepAliveCheck(long now) {
+        long next = Long.MAX_VALUE;
+        if (!keepAlive.getIdleTimeout().isZero()) {
+            next = lastExchangeNanos + keepAlive.getIdleTimeout().toNanos() - now;
+        }
+        if (!keepAlive.getPingInterval().isZero()) {
+            next = Math.min(next, lastReceivedNanos + keepAlive.getPingInterval().toNanos() - now);
+        }
+        return next;
+    }
+
+    private CoapPacket newKeepAlivePing() {
+        byte[] token = new byte[KEEPALIVE_TOKEN_SIZE];
+        ThreadLocalRandom.current().nextBytes(token);
+        if (pingTokens.size() > keepAlive.getMaxMissedPongs()) {
+            pingTokens.removeFirst();
+        }
+        pingTokens.addLast(Opaque.of(token));
+
+        CoapPacket ping = new CoapPacket(remoteAddress);
+        ping.setMessageType(null);
+        ping.setCode(Code.C702_PING);
+        ping.setToken(Opaque.of(token));
+        return ping;
+    }
+
+    private static boolean isExchange(CoapPacket packet) {
+        return packet.getMethod() != null || packet.getCode() != null && !packet.getCode().isSignaling();
+    }
+
+    private boolean isKeepAlivePong(CoapPacket packet) {
+        return packet.getCode() == Code.C703_PONG && pingTokens.remove(packet.getToken());
+    }
+
+    CompletableFuture<Boolean> send(CoapPacket coapPacket) {
+        CompletableFuture<Boolean> promise = new CompletableFuture<>();
+        if (closed.get()) {
+            promise.completeExceptionally(new IOException("Connection closed: " + remoteAddress));
+            return promise;
+        }
+        PendingWrite pendingWrite = new PendingWrite(coapPacket, promise);
+        if (pendingWriteBytes.get() > 0 && pendingWriteBytes.get() + pendingWrite.size > maxPendingWriteBytes) {
+            promise.completeExceptionally(new IOException("Write queue is full for: " + remoteAddress));
+            return promise;
+        }
+
+        pendingWriteBytes.addAndGet(pendingWrite.size);
+        if (isExchange(coapPacket)) {
+            lastExchangeNanos = System.nanoTime();
+        }
+        if (!connected && coapPacket.getCode() != null && coapPacket.getCode().isSignaling()) {
+            writeQueue.addFirst(pendingWrite);
+        } else {
+            writeQueue.add(pendingWrite);
+        }
+        if (closed.get()) {
+            failPendingWrites();
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            loop.execute(this::scheduledFlush);
+        }
+        return promise;
+    }
+
+    long pendingWriteBytes() {
+        return pendingWriteBytes.get();
+    }
+
+    private void scheduledFlush() {
+        flushScheduled.set(false);
+        try {
+            flush();
+        } catch (IOException | RuntimeException ex) {
+            onError(ex);
+        }
+    }
+
+    @Override
+    public void onReady(SelectionKey key) throws IOException {
+        if (key.isConnectable()) {
+            if (channel.finishConnect()) {
+                key.interestOps(SelectionKey.OP_READ);
+                established();
+            }
+            return;
+        }
+        if (key.isReadable()) {
+            onReadable();
+        }
+        if (key.isValid() && key.isWritable()) {
+            flush();
+        }
+    }
+
+    private void onReadable() throws IOException {
+        ByteBuffer buffer = loop.readBuffer();
+        for (int reads = 0; reads < MAX_READS_PER_EVENT; reads++) {
+            buffer.clear();
+            int read = channel.read(buffer);
+            if (read < 0) {
+                close();
+                return;
+            }
+            if (read == 0) {
+                return;
+            }
+            buffer.flip();
+            lastReceivedNanos = System.nanoTime();
+            unansweredPings = 0;
+            received(buffer);
+            if (!channel.isOpen()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Handles bytes received from channel, subclasses may transform them before passing to {@link #decode(ByteBuffer)}.
+     */
+    protected void received(ByteBuffer data) throws IOException {
+        decode(data);
+    }
+
+    protected final void decode(ByteBuffer data) {
+        try {
+            CoapPacket packet;
+            while (!closed.get() && (packet = decoder.decode(data)) != null) {
+                if (isKeepAlivePong(packet)) {
+                    continue;
+                }
+                if (isExchange(packet)) {
+                    lastExchangeNanos = lastReceivedNanos;
+                }
+                listener.onPacket(packet);
+            }
+        } catch (CoapException e) {
+            LOGGER.warn("Closing connection with {}, due to parsing error: {}", remoteAddress, e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * @return true when channel is registered, connected and not closed
+     */
+    protected final boolean canWrite() {
+        return key != null && !closed.get() && channel.isConnected();
+    }
+
+    /**
+     * Writes queued packets to channel, must be called from selector loop thread.
+     */
+    protected void flush() throws IOException {
+        if (!canWrite()) {
+            return;
+        }
+        if (backlog != null) {
+            write(backlog);
+            if (backlog.hasRemaining()) {
+                setWriteInterest(true);
+                return;
+            }
+            backlog = null;
+        }
+
+        while (!writeQueue.isEmpty()) {
+            ByteBuffer frames = encodeQueued(loop.writeBuffer());
+            try {
+                write(frames);
+            } catch (IOException | RuntimeException ex) {
+                encoded.forEach(it -> it.promise.completeExceptionally(ex));
+                encoded.clear();
+                throw ex;
+            }
+            if (frames.hasRemaining()) {
+                backlog = ByteBuffer.allocate(frames.remaining());
+                backlog.put(frames).flip();
+            }
+            completeEncoded();
+
+            if (backlog != null || hasPendingOutput()) {
+                setWriteInterest(true);
+                return;
+            }
+        }
+        setWriteInterest(false);
+    }
+
+    private ByteBuffer encodeQueued(ByteBuffer buffer) {
+        buffer.clear();
+        PendingWrite pendingWrite;
+        while ((pendingWrite = writeQueue.peek()) != null) {
+            try {
+                if (!CoapTcpPacketSerializer.writeTo(buffer, pendingWrite.packet)) {
+                    if (buffer.position() > 0) {
+                        break;
+                    }
+                    // frame does not fit in shared buffer
+                    dequeue(pendingWrite);
+                    encoded.add(pendingWrite);
+                    return ByteBuffer.wrap(CoapTcpPacketSerializer.serialize(pendingWrite.packet));
+                }
+                dequeue(pendingWrite);
+                encoded.add(pendingWrite);
+            } catch (CoapException | IOException | RuntimeException ex) {
+                dequeue(pendingWrite);
+                pendingWrite.promise.completeExceptionally(ex);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private void dequeue(PendingWrite pendingWrite) {
+        writeQueue.poll();
+        pendingWriteBytes.addAndGet(-pendingWrite.size);
+    }
+
+    private void completeEncoded() {
+        for (PendingWrite pendingWrite : encoded) {
+            pendingWrite.promise.complete(true);
+        }
+        encoded.clear();
+    }
+
+    protected final void setWriteInterest(boolean enabled) {
+        if (enabled) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        } else {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Writes buffer to channel, subclasses may transform it before writing.
+     */
+    protected void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.write(buffer) == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns true if subclass holds transformed bytes that are not yet written to the channel.
+     */
+    protected boolean hasPendingOutput() {
+        return false;
+    }
+
+    @Override
+    public void onError(Exception ex) {
+        if (ex instanceof IOException) {
+            LOGGER.debug("Closing connection with {}: {}", remoteAddress, ex.toString());
+        } else {
+            LOGGER.warn("Closing connection with {}: {}", remoteAddress, ex.toString(), ex);
+        }
+        close();
+    }
+
+    void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.debug(e.getMessage());
+        }
+        failPendingWrites();
+        listener.onDisconnected(this);
+    }
+
+    private void failPendingWrites() {
+        PendingWrite pendingWrite;
+        while ((pendingWrite = writeQueue.poll()) != null) {
+            pendingWriteBytes.addAndGet(-pendingWrite.size);
+            pendingWrite.promise.completeExceptionally(new IOException("Connection closed: " + remoteAddress));
+        }
+    }
+
+    private static final class PendingWrite {
+        private final CoapPacket packet;
+        private final int size;
+        private final CompletableFuture<Boolean> promise;
+
+        PendingWrite(CoapPacket packet, CompletableFuture<Boolean> promise) {
+            this.packet = packet;
+            this.size = packet.getPayload().size() + FRAME_OVERHEAD_ESTIMATE;
+            this.promise = promise;
+        }
+    }
+}
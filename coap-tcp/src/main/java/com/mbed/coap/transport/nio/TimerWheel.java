@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.nio;
+
+import static com.mbed.coap.utils.Validations.require;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timer wheel, not thread safe: it is owned and advanced by single selector loop thread.
+ * Scheduling and expiring are O(1) per timeout regardless of number of connections, precision is one tick.
+ */
+final class TimerWheel {
+    private final long tickNanos;
+    private final List<List<Timeout>> buckets;
+    private final int mask;
+    private long currentTick;
+    private long lastAdvanceNanos;
+    private int size;
+
+    TimerWheel(long tickNanos, int wheelSize, long nowNanos) {
+        require(tickNanos > 0 && wheelSize > 0 && Integer.bitCount(wheelSize) == 1);
+        this.tickNanos = tickNanos;
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.lastAdvanceNanos = nowNanos;
+    }
+
+    /**
+     * Schedules task to be run after given delay, rounded up to full ticks.
+     *
+     * @param delayNanos delay in nanoseconds
+     * @param task task
+     * @return handle that can be used to cancel timeout
+     */
+    Timeout schedule(long delayNanos, Runnable task) {
+        long ticks = Math.max(1, (delayNanos + tickNanos - 1) / tickNanos);
+        Timeout timeout = new Timeout(currentTick + ticks, task);
+        buckets.get((int) (timeout.deadlineTick & mask)).add(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Moves wheel forward to given time and runs all expired tasks.
+     *
+     * @param nowNanos current time
+     * @return number of run tasks
+     */
+    int advance(long nowNanos) {
+        int expired = 0;
+        while (nowNanos - lastAdvanceNanos >= tickNanos) {
+            lastAdvanceNanos += tickNanos;
+            currentTick++;
+            expired += expire(buckets.get((int) (currentTick & mask)));
+        }
+        return expired;
+    }
+
+    private int expire(List<Timeout> bucket) {
+        if (bucket.isEmpty()) {
+            return 0;
+        }
+        List<Timeout> due = null;
+        int kept = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            Timeout timeout = bucket.get(i);
+            if (timeout.cancelled) {
+                size--;
+            } else if (timeout.deadlineTick <= currentTick) {
+                size--;
+                if (due == null) {
+                    due = new ArrayList<>();
+                }
+                due.add(timeout);
+            } else {
+                bucket.set(kept++, timeout);
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+
+        if (due == null) {
+            return 0;
+        }
+        // tasks may schedule again into this bucket, so they run after it is compacted
+        for (Timeout timeout : due) {
+            timeout.task.run();
+        }
+        return due.size();
+    }
+
+    int size() {
+        return size;
+    }
+
+    static final class Timeout {
+        private final long deadlineTick;
+        private final Runnable task;
+        private boolean cancelled;
+
+        private Timeout(long deadlineTick, Runnable task) {
+            this.deadlineTick = deadlineTick;
+            this.task = task;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * TLS connection driven by {@link SSLEngine}. Handshake and record wrap/unwrap are executed on selector loop thread,
+ * delegated (CPU heavy) handshake tasks are executed by a separate executor. Connection is reported as connected only
+ * after handshake is completed.
+ * <p/>
+ * Records are unwrapped into and wrapped from loop's shared buffers, connection keeps own copies only of a partial
+ * incoming record and of encrypted bytes that the socket did not accept, so an idle connection holds no buffers.
+ */
+class TlsConnection extends TcpConnection {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TlsConnection.class);
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final SSLEngine engine;
+    private final Executor delegatedTaskExecutor;
+    private ByteBuffer pendingIn;
+    private ByteBuffer pendingOut;
+    private boolean handshakeDone;
+    private volatile boolean runningTasks;
+
+    TlsConnection(SocketChannel channel, InetSocketAddress remoteAddress, SelectorLoop loop, Listener listener, int maxFrameSize, long maxPendingWriteBytes,
+            KeepAlive keepAlive, SSLEngine engine, Executor delegatedTaskExecutor) {
+        super(channel, remoteAddress, loop, listener, maxFrameSize, maxPendingWriteBytes, keepAlive);
+        this.engine = engine;
+        this.delegatedTaskExecutor = delegatedTaskExecutor;
+    }
+
+    @Override
+    protected void established() throws IOException {
+        engine.beginHandshake();
+        processPending();
+    }
+
+    @Override
+    protected void received(ByteBuffer data) throws IOException {
+        if (pendingIn == null) {
+            process(data);
+            if (data.hasRemaining()) {
+                pendingIn = copyOf(data, EMPTY);
+            }
+        } else {
+            pendingIn = copyOf(pendingIn, data);
+            processPending();
+        }
+    }
+
+    private void processPending() throws IOException {
+        if (pendingIn == null) {
+            process(EMPTY);
+        } else {
+            process(pendingIn);
+            if (!pendingIn.hasRemaining()) {
+                pendingIn = null;
+            }
+        }
+    }
+
+    @Override
+    protected void flush() throws IOException {
+        if (!canWrite()) {
+            return;
+        }
+        if (!flushPendingOut()) {
+            setWriteInterest(true);
+            return;
+        }
+        if (!handshakeDone) {
+            setWriteInterest(false);
+            processPending();
+            return;
+        }
+        super.flush();
+    }
+
+    @Override
+    protected void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining() && pendingOut == null) {
+            SSLEngineResult result = wrap(buffer);
+            if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                throw new IOException("TLS engine closed: " + remoteAddress);
+            }
+            if (result.getStatus() == SSLEngineResult.Status.OK && result.bytesConsumed() == 0 && result.bytesProduced() == 0) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    protected boolean hasPendingOutput() {
+        return pendingOut != null;
+    }
+
+    /**
+     * Drives engine state: runs handshake and unwraps received records until more network data is needed.
+     */
+    private void process(ByteBuffer in) throws IOException {
+        try {
+            while (!isClosed() && !runningTasks) {
+                HandshakeStatus handshakeStatus = engine.getHandshakeStatus();
+                if (handshakeStatus == HandshakeStatus.NEED_TASK) {
+                    runDelegatedTasks();
+                    return;
+                }
+                if (handshakeStatus == HandshakeStatus.NEED_WRAP) {
+                    if (!wrapHandshake()) {
+                        return;
+                    }
+                } else if (!unwrap(in)) {
+                    return;
+                }
+            }
+        } catch (SSLException ex) {
+            sendAlert();
+            throw ex;
+        }
+    }
+
+    private boolean wrapHandshake() throws IOException {
+        if (!flushPendingOut()) {
+            setWriteInterest(true);
+            return false;
+        }
+        SSLEngineResult result = wrap(EMPTY);
+        if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+            close();
+            return false;
+        }
+        checkFinished(result);
+        if (pendingOut != null) {
+            setWriteInterest(true);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean unwrap(ByteBuffer in) throws IOException {
+        ByteBuffer app = loop.appBuffer(engine.getSession().getApplicationBufferSize());
+        app.clear();
+        SSLEngineResult result = engine.unwrap(in, app);
+        app.flip();
+        if (app.hasRemaining()) {
+            decode(app);
+        }
+
+        switch (result.getStatus()) {
+            case BUFFER_UNDERFLOW:
+                return false;
+            case BUFFER_OVERFLOW:
+                loop.appBuffer(app.capacity() * 2);
+                return true;
+            case CLOSED:
+                close();
+                return false;
+            default:
+                checkFinished(result);
+                return result.bytesConsumed() > 0 || result.bytesProduced() > 0 || engine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP;
+        }
+    }
+
+    private SSLEngineResult wrap(ByteBuffer src) throws IOException {
+        ByteBuffer net = loop.netBuffer(engine.getSession().getPacketBufferSize());
+        net.clear();
+        SSLEngineResult result = engine.wrap(src, net);
+        net.flip();
+        if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+            loop.netBuffer(net.capacity() * 2);
+            return result;
+        }
+
+        while (net.hasRemaining()) {
+            if (channel.write(net) == 0) {
+                pendingOut = copyOf(net, EMPTY);
+                break;
+            }
+        }
+        return result;
+    }
+
+    private void checkFinished(SSLEngineResult result) throws IOException {
+        HandshakeStatus handshakeStatus = result.getHandshakeStatus();
+        if (!handshakeDone && (handshakeStatus == HandshakeStatus.FINISHED || handshakeStatus == HandshakeStatus.NOT_HANDSHAKING)) {
+            handshakeDone = true;
+            LOGGER.debug("TLS handshake completed with {} [{}]", remoteAddress, engine.getSession().getCipherSuite());
+            connected();
+            super.flush();
+        }
+    }
+
+    private void runDelegatedTasks() {
+        runningTasks = true;
+        try {
+            delegatedTaskExecutor.execute(() -> {
+                Runnable task;
+                while ((task = engine.getDelegatedTask()) != null) {
+                    task.run();
+                }
+                loop.execute(this::resume);
+            });
+        } catch (RejectedExecutionException ex) {
+            // shed load instead of blocking selector thread
+            LOGGER.warn("Closing connection with {}, too many pending TLS handshakes", remoteAddress);
+            close();
+        }
+    }
+
+    private void resume() {
+        runningTasks = false;
+        try {
+            processPending();
+            flush();
+        } catch (IOException | RuntimeException ex) {
+            onError(ex);
+        }
+    }
+
+    private void sendAlert() {
+        try {
+            engine.closeOutbound();
+            if (flushPendingOut()) {
+                wrap(EMPTY);
+            }
+        } catch (IOException ex) {
+            LOGGER.debug(ex.getMessage());
+        }
+    }
+
+    private boolean flushPendingOut() throws IOException {
+        if (pendingOut == null) {
+            return true;
+        }
+        while (pendingOut.hasRemaining()) {
+            if (channel.write(pendingOut) == 0) {
+                return false;
+            }
+        }
+        pendingOut = null;
+        return true;
+    }
+
+    private static ByteBuffer copyOf(ByteBuffer first, ByteBuffer second) {
+        ByteBuffer copy = ByteBuffer.allocate(first.remaining() + second.remaining());
+        copy.put(first).put(second).flip();
+        return copy;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.packet;
+
+import static com.mbed.coap.utils.Bytes.*;
+import static org.junit.jupiter.api.Assertions.*;
+import com.mbed.coap.exception.CoapException;
+import com.mbed.coap.exception.CoapMessageFormatException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import protocolTests.utils.CoapPacketBuilder;
+
+class CoapTcpFrameDecoderTest {
+    private static final InetSocketAddress REMOTE = new InetSocketAddress("127.0.0.1", 5683);
+    private final CoapTcpFrameDecoder decoder = new CoapTcpFrameDecoder(REMOTE, 100_000);
+
+    @Test
+    void shouldDecodeFrameFromSingleBuffer() throws Exception {
+        CoapPacket packet = newPacket(opaqueOfSize(20));
+
+        ByteBuffer buffer = ByteBuffer.wrap(CoapTcpPacketSerializer.serialize(packet));
+
+        assertEquals(packet, decoder.decode(buffer));
+        assertFalse(buffer.hasRemaining());
+        assertFalse(decoder.hasPartialFrame());
+        assertNull(decoder.decode(buffer));
+    }
+
+    @Test
+    void shouldDecodeFramesOfAllLengthEncodings() throws Exception {
+        for (int payloadSize : new int[]{0, 5, 100, 1000, 70_000}) {
+            CoapPacket packet = newPacket(opaqueOfSize(payloadSize));
+
+            assertEquals(packet, decoder.decode(ByteBuffer.wrap(CoapTcpPacketSerializer.serialize(packet))));
+        }
+    }
+
+    @Test
+    void shouldResumeDecoding_whenFedByteByByte() throws Exception {
+        CoapPacket packet = newPacket(opaqueOfSize(300));
+        byte[] frame = CoapTcpPacketSerializer.serialize(packet);
+
+        for (int i = 0; i < frame.length - 1; i++) {
+            assertNull(decoder.decode(ByteBuffer.wrap(frame, i, 1)));
+            assertTrue(decoder.hasPartialFrame());
+        }
+
+        assertEquals(packet, decoder.decode(ByteBuffer.wrap(frame, frame.length - 1, 1)));
+        assertFalse(decoder.hasPartialFrame());
+    }
+
+    @Test
+    void shouldDecodeMultipleFramesSplitAcrossChunks() throws Exception {
+        CoapPacket packet1 = newPacket(opaqueOfSize(1, 500));
+        CoapPacket packet2 = newPacket(Opaque.EMPTY);
+        CoapPacket packet3 = newPacket(opaqueOfSize(3, 20));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(CoapTcpPacketSerializer.serialize(packet1));
+        stream.write(CoapTcpPacketSerializer.serialize(packet2));
+        stream.write(CoapTcpPacketSerializer.serialize(packet3));
+        byte[] data = stream.toByteArray();
+
+        List<CoapPacket> decoded = new ArrayList<>();
+        for (int offset = 0; offset < data.length; offset += 7) {
+            ByteBuffer chunk = ByteBuffer.wrap(data, offset, Math.min(7, data.length - offset));
+            CoapPacket packet;
+            while ((packet = decoder.decode(chunk)) != null) {
+                decoded.add(packet);
+            }
+        }
+
+        assertEquals(3, decoded.size());
+        assertEquals(packet1, decoded.get(0));
+        assertEquals(packet2, decoded.get(1));
+        assertEquals(packet3, decoded.get(2));
+    }
+
+    @Test
+    void shouldDecodeSignalingFrame() throws Exception {
+        CoapPacket packet = new CoapPacket(REMOTE);
+        packet.setMessageType(null);
+        packet.setCode(Code.C701_CSM);
+        SignallingHeaderOptions headers = new SignallingHeaderOptions();
+        SignalingOptions signalingOptions = new SignalingOptions();
+        signalingOptions.setMaxMessageSize(2000);
+        headers.putSignallingOptions(signalingOptions);
+        packet.setHeaderOptions(headers);
+
+        CoapPacket decoded = decoder.decode(ByteBuffer.wrap(CoapTcpPacketSerializer.serialize(packet)));
+
+        assertEquals(2000, ((SignallingHeaderOptions) decoded.headers()).toSignallingOptions(Code.C701_CSM).getMaxMessageSize().intValue());
+    }
+
+    @Test
+    void shouldFail_whenFrameExceedsMaximumSize() throws Exception {
+        CoapTcpFrameDecoder smallDecoder = new CoapTcpFrameDecoder(REMOTE, 1000);
+        byte[] frame = CoapTcpPacketSerializer.serialize(newPacket(opaqueOfSize(2000)));
+
+        // fails on header, before body is received
+        assertThrows(CoapMessageFormatException.class, () -> smallDecoder.decode(ByteBuffer.wrap(frame, 0, 10)));
+    }
+
+    @Test
+    void shouldFail_whenInvalidTokenLength() {
+        assertThrows(CoapMessageFormatException.class, () -> decoder.decode(ByteBuffer.wrap(new byte[]{0x09, 0x01})));
+    }
+
+    @Test
+    void shouldFail_whenMalformedOptions() {
+        // option with length 15
+        assertThrows(CoapException.class, () -> decoder.decode(ByteBuffer.wrap(new byte[]{0x20, 0x01, 0x1F, 0x00})));
+    }
+
+    @Test
+    void shouldEncodeIntoDirectBuffer() throws Exception {
+        for (int payloadSize : new int[]{0, 5, 100, 1000, 70_000}) {
+            CoapPacket packet = newPacket(opaqueOfSize(payloadSize));
+            ByteBuffer buffer = ByteBuffer.allocateDirect(100_000);
+            buffer.put((byte) 0x55);
+
+            assertTrue(CoapTcpPacketSerializer.writeTo(buffer, packet));
+
+            buffer.flip().position(1);
+            byte[] encoded = new byte[buffer.remaining()];
+            buffer.get(encoded);
+            assertArrayEquals(CoapTcpPacketSerializer.serialize(packet), encoded);
+        }
+    }
+
+    @Test
+    void shouldNotEncode_whenNotEnoughSpace() throws CoapException, IOException {
+        CoapPacket packet = newPacket(opaqueOfSize(100));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(100);
+
+        assertFalse(CoapTcpPacketSerializer.writeTo(buffer, packet));
+        assertEquals(0, buffer.position());
+    }
+
+    private static CoapPacket newPacket(Opaque payload) {
+        CoapPacket packet = CoapPacketBuilder.newCoapPacket(REMOTE).token(1234L).post().uriPath("/test").payload(payload).build();
+        packet.setMessageType(null);
+        return packet;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.server.messaging;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static protocolTests.utils.CoapPacketBuilder.*;
+import com.mbed.coap.packet.CoapResponse;
+import com.mbed.coap.packet.Opaque;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class ConnectionStatesTest {
+    private final ConnectionStates states = new ConnectionStates();
+
+    @Test
+    void shouldStoreCapabilities() {
+        assertEquals(Capabilities.BASE, states.getOrDefault(LOCAL_5683));
+
+        states.put(LOCAL_5683, new Capabilities(1001, true));
+
+        assertEquals(1001, states.getOrDefault(LOCAL_5683).getMaxMessageSizeInt());
+        assertEquals(Capabilities.BASE, states.getOrDefault(LOCAL_1_5683));
+        assertEquals(1, states.size());
+
+        states.put(LOCAL_5683, Capabilities.BASE);
+        assertEquals(Capabilities.BASE, states.getOrDefault(LOCAL_5683));
+        assertNull(states.get(LOCAL_5683));
+    }
+
+    @Test
+    void shouldKeepTransactionsPerConnection() {
+        CompletableFuture<CoapResponse> promise1 = new CompletableFuture<>();
+        CompletableFuture<CoapResponse> promise2 = new CompletableFuture<>();
+        states.addTransaction(LOCAL_5683, Opaque.variableUInt(1), promise1);
+        states.addTransaction(LOCAL_1_5683, Opaque.variableUInt(1), promise2);
+
+        assertEquals(1, states.get(LOCAL_5683).getTransactionsCount());
+        assertEquals(2, states.transactions());
+        assertSame(promise2, states.removeTransaction(LOCAL_1_5683, Opaque.variableUInt(1)));
+        assertNull(states.removeTransaction(LOCAL_1_5683, Opaque.variableUInt(1)));
+
+        // empty state is removed
+        assertNull(states.get(LOCAL_1_5683));
+        assertEquals(1, states.size());
+    }
+
+    @Test
+    void shouldKeepStateWithCapabilities_whenLastTransactionRemoved() {
+        CompletableFuture<CoapResponse> promise = new CompletableFuture<>();
+        states.put(LOCAL_5683, new Capabilities(2000, false));
+        states.addTransaction(LOCAL_5683, Opaque.EMPTY, promise);
+
+        states.removeTransaction(LOCAL_5683, Opaque.EMPTY, promise);
+
+        assertEquals(0, states.get(LOCAL_5683).getTransactionsCount());
+        assertEquals(2000, states.getOrDefault(LOCAL_5683).getMaxMessageSizeInt());
+    }
+
+    @Test
+    void shouldRemoveState_whenLastObservationRemoved() {
+        states.addObservation(LOCAL_5683, Opaque.variableUInt(7));
+        states.addObservation(LOCAL_5683, Opaque.variableUInt(8));
+
+        states.removeObservation(LOCAL_5683, Opaque.variableUInt(7));
+        assertEquals(1, states.get(LOCAL_5683).getObservationsCount());
+
+        states.removeObservation(LOCAL_5683, Opaque.variableUInt(8));
+        assertNull(states.get(LOCAL_5683));
+        assertEquals(0, states.size());
+    }
+
+    @Test
+    void shouldDropWholeState() {
+        states.put(LOCAL_5683, new Capabilities(2000, false));
+        states.addTransaction(LOCAL_5683, Opaque.EMPTY, new CompletableFuture<>());
+        states.addObservation(LOCAL_5683, Opaque.variableUInt(7));
+
+        ConnectionState dropped = states.drop(LOCAL_5683);
+
+        assertEquals(1, dropped.getTransactionsCount());
+        assertEquals(1, dropped.getObservationsCount());
+        assertEquals(0, states.size());
+        assertEquals(Capabilities.BASE, states.getOrDefault(LOCAL_5683));
+    }
+}
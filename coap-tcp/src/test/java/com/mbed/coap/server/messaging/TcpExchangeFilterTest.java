@@ -32,6 +32,8 @@ import com.mbed.coap.packet.Opaque;
 import com.mbed.coap.packet.SeparateResponse;
 import com.mbed.coap.utils.Service;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.Test;
 
@@ -121,6 +123,26 @@ class TcpExchangeFilterTest {
 
     }
 
+    @Test
+    void terminateObservationsWhenAborted() {
+        // given
+        ConnectionStates connectionStates = new ConnectionStates();
+        List<Opaque> terminated = new ArrayList<>();
+        exchange = new TcpExchangeFilter(connectionStates, (peer, token) -> terminated.add(token));
+        resp = exchange.apply(get(LOCAL_5683, "/obs").token(1001).observe(0), sender);
+        exchange.handleResponse(new SeparateResponse(ok("ok").options(o -> o.setObserve(1)), variableUInt(1001), LOCAL_5683, EMPTY));
+        resp2 = exchange.apply(get(LOCAL_5683, "/13").token(1002), sender);
+        assertEquals(1, connectionStates.get(LOCAL_5683).getObservationsCount());
+
+        // when
+        assertTrue(exchange.handleResponse(of(Code.C705_ABORT).toSeparate(Opaque.EMPTY, LOCAL_5683)));
+
+        // then
+        assertThat(terminated).containsExactly(variableUInt(1001));
+        assertTrue(resp2.isCompletedExceptionally());
+        assertNull(connectionStates.get(LOCAL_5683));
+    }
+
     @Test
     public void should_ignore_non_matching_response() {
         assertFalse(exchange.handleResponse(ok("ok").toSeparate(Opaque.EMPTY, LOCAL_5683)));
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.javassl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class ReconnectionPolicyTest {
+
+    private final ReconnectionPolicy policy = ReconnectionPolicy.of(Duration.ofMillis(100), Duration.ofSeconds(2), 10, Duration.ofSeconds(5));
+
+    @Test
+    void shouldGrowDelayExponentiallyWithJitter() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(policy.delayMillis(1)).isBetween(50L, 100L);
+            assertThat(policy.delayMillis(2)).isBetween(100L, 200L);
+            assertThat(policy.delayMillis(4)).isBetween(400L, 800L);
+        }
+    }
+
+    @Test
+    void shouldLimitDelay() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(policy.delayMillis(6)).isBetween(1000L, 2000L);
+            assertThat(policy.delayMillis(1000)).isBetween(1000L, 2000L);
+        }
+    }
+
+    @Test
+    void shouldSpreadDelays() {
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.delayMillis(3);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        assertThat(max - min).isGreaterThan(100);
+    }
+
+    @Test
+    void disabled() {
+        assertFalse(ReconnectionPolicy.DISABLED.isEnabled());
+        assertTrue(ReconnectionPolicy.DEFAULT.isEnabled());
+        assertThrows(IllegalArgumentException.class, () -> ReconnectionPolicy.of(Duration.ofSeconds(2), Duration.ofSeconds(1), 10, Duration.ofSeconds(5)));
+    }
+}
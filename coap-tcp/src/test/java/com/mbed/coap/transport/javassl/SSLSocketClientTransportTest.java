@@ -24,8 +24,10 @@ import com.mbed.coap.client.CoapClient;
 import com.mbed.coap.client.CoapClientBuilder;
 import com.mbed.coap.client.CoapClientBuilderForTcp;
 import com.mbed.coap.server.CoapServer;
+import com.mbed.coap.transport.nio.NioTlsServerTransport;
 import java.net.InetSocketAddress;
 import java.security.KeyStore;
+import java.time.Duration;
 import javax.net.ssl.SSLContext;
 import org.junit.jupiter.api.Test;
 
@@ -94,4 +96,80 @@ public class SSLSocketClientTransportTest {
         srv.stop();
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldResumeSession_whenReconnecting() throws Exception {
+        NioTlsServerTransport srvTransport = new NioTlsServerTransport(new InetSocketAddress(0), srvSslContext, false);
+        CoapServer srv = newBuilderForTcp().transport(srvTransport).build().start();
+        InetSocketAddress serverAdr = new InetSocketAddress("localhost", srv.getLocalSocketAddress().getPort());
+        TlsSessionCache sessionCache = new TlsSessionCache(clientSslContext);
+
+        CoapClient client = CoapClientBuilderForTcp.clientFor(serverAdr,
+                newBuilderForTcp().transport(new SSLSocketClientTransport(serverAdr, sessionCache, CoapSerializer.TCP, true)).build().start()
+        );
+        assertNotNull(client.ping().get());
+        assertTrue(sessionCache.contains(serverAdr));
+
+        // drop connection on server side
+        srvTransport.getConnectedPeers().forEach(srvTransport::closeConnection);
+
+        //eventually, reconnected with abbreviated handshake
+        await().untilAsserted(() -> assertEquals(1, sessionCache.getResumedHandshakes()));
+        await().ignoreExceptions().untilAsserted(() -> assertNotNull(client.ping().get()));
+        assertEquals(1, sessionCache.getFullHandshakes());
+
+        client.close();
+        srv.stop();
+    }
+
+    @Test
+    public void shouldNotChangeSessionContext_whenNotConfigured() {
+        clientSslContext.getClientSessionContext().setSessionCacheSize(5000);
+        clientSslContext.getClientSessionContext().setSessionTimeout(60);
+
+        new TlsSessionCache(clientSslContext);
+
+        assertEquals(5000, clientSslContext.getClientSessionContext().getSessionCacheSize());
+        assertEquals(60, clientSslContext.getClientSessionContext().getSessionTimeout());
+
+        new TlsSessionCache(clientSslContext, 100, Duration.ofMinutes(5));
+
+        assertEquals(100, clientSslContext.getClientSessionContext().getSessionCacheSize());
+        assertEquals(300, clientSslContext.getClientSessionContext().getSessionTimeout());
+    }
+
+    @Test
+    public void shouldShareSessionCacheBetweenTransports() throws Exception {
+        CoapServer srv = newBuilderForTcp()
+                .transport(new NioTlsServerTransport(new InetSocketAddress(0), srvSslContext, false))
+                .build().start();
+        InetSocketAddress serverAdr = new InetSocketAddress("localhost", srv.getLocalSocketAddress().getPort());
+        TlsSessionCache sessionCache = new TlsSessionCache(clientSslContext);
+
+        CoapClient client1 = CoapClientBuilder.clientFor(serverAdr,
+                newBuilderForTcp().transport(new SSLSocketClientTransport(serverAdr, sessionCache, CoapSerializer.TCP, false)).build().start()
+        );
+        assertNotNull(client1.ping().get());
+        await().untilAsserted(() -> assertEquals(1, sessionCache.getFullHandshakes()));
+
+        CoapClient client2 = CoapClientBuilder.clientFor(serverAdr,
+                newBuilderForTcp().transport(new SSLSocketClientTransport(serverAdr, sessionCache, CoapSerializer.TCP, false)).build().start()
+        );
+        assertNotNull(client2.ping().get());
+        await().untilAsserted(() -> assertEquals(1, sessionCache.getResumedHandshakes()));
+
+        // after invalidation, full handshake
+        sessionCache.invalidate(serverAdr);
+        assertFalse(sessionCache.contains(serverAdr));
+        CoapClient client3 = CoapClientBuilder.clientFor(serverAdr,
+                newBuilderForTcp().transport(new SSLSocketClientTransport(serverAdr, sessionCache, CoapSerializer.TCP, false)).build().start()
+        );
+        assertNotNull(client3.ping().get());
+        await().untilAsserted(() -> assertEquals(2, sessionCache.getFullHandshakes()));
+
+        client1.close();
+        client2.close();
+        client3.close();
+        srv.stop();
+    }
+}
@@ -117,6 +117,10 @@ public class SingleConnectionSocketServerTransport extends BlockingCoapTransport
     @Override
     public synchronized void sendPacket0(CoapPacket coapPacket) throws CoapException, IOException {
         serializer.serialize(outputStream, coapPacket);
+    }
+
+    @Override
+    protected synchronized void flush() throws IOException {
         outputStream.flush();
     }
 
@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.javassl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import com.mbed.coap.exception.CoapTimeoutException;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.packet.Code;
+import com.mbed.coap.packet.Method;
+import com.mbed.coap.packet.Opaque;
+import com.mbed.coap.transport.BlockingCoapTransport;
+import com.mbed.coap.transport.TransportContext;
+import com.mbed.coap.transport.TransportExecutors;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.SocketFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SocketClientTransportTest {
+
+    private ServerSocket serverSocket;
+    private InetSocketAddress serverAddress;
+    private final CountDownLatch writeAllowed = new CountDownLatch(1);
+    private final AtomicInteger socketWrites = new AtomicInteger();
+    private SocketClientTransport transport;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverSocket = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+        serverAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+        transport = new SocketClientTransport(serverAddress, new BlockingSocketFactory(), CoapSerializer.TCP, false, mock(Executor.class), 3);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        writeAllowed.countDown();
+        transport.stop();
+        serverSocket.close();
+    }
+
+    @Test
+    void shouldCoalesceQueuedPacketsIntoSingleWrite() throws Exception {
+        transport.start(mock(CoapTcpReceiver.class));
+
+        // first sender becomes writer and blocks on socket
+        CompletableFuture<CompletableFuture<Boolean>> first = CompletableFuture.supplyAsync(() -> transport.sendPacket(newPacket(1)));
+        await().until(() -> socketWrites.get() == 1);
+
+        List<CompletableFuture<Boolean>> queued = new ArrayList<>();
+        for (int i = 2; i <= 4; i++) {
+            queued.add(transport.sendPacket(newPacket(i)));
+        }
+        queued.forEach(it -> assertFalse(it.isDone()));
+        assertEquals(3, transport.queueSize());
+
+        writeAllowed.countDown();
+
+        assertTrue(first.get().get());
+        for (CompletableFuture<Boolean> future : queued) {
+            assertTrue(future.get());
+        }
+        assertEquals(2, socketWrites.get());
+    }
+
+    @Test
+    void shouldWriteDirectly_andFlushOnce_whenUsedAsBlockingTransport() throws Exception {
+        BlockingCoapTransport blockingTransport = transport;
+        transport.start(mock(CoapTcpReceiver.class));
+        writeAllowed.countDown();
+
+        blockingTransport.sendPacket0(newPacket(1));
+        blockingTransport.sendPacket0(newPacket(2));
+        blockingTransport.sendPacket0(newPacket(3));
+        assertEquals(0, socketWrites.get());
+
+        transport.flush();
+        assertEquals(1, socketWrites.get());
+    }
+
+    @Test
+    void shouldFailSend_whenQueueIsFull() throws Exception {
+        transport.start(mock(CoapTcpReceiver.class));
+        CompletableFuture.runAsync(() -> transport.sendPacket(newPacket(1)));
+        await().until(() -> socketWrites.get() == 1);
+        for (int i = 2; i <= 4; i++) {
+            transport.sendPacket(newPacket(i));
+        }
+
+        CompletableFuture<Boolean> resp = transport.sendPacket(newPacket(5));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, resp::get);
+        assertThat(exception).hasCauseInstanceOf(IOException.class).hasMessageContaining("Outbound queue is full");
+    }
+
+    @Test
+    void shouldFailSend_whenNotConnected() {
+        CompletableFuture<Boolean> resp = transport.sendPacket(newPacket(1));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, resp::get);
+        assertThat(exception).hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    void shouldFailSend_whenUnknownDestination() {
+        CoapPacket packet = newPacket(new InetSocketAddress(InetAddress.getLoopbackAddress(), 1), 1);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> transport.sendPacket(packet).get());
+        assertThat(exception).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldHoldPackets_whileReconnecting_andSendThemAfterCsm() throws Exception {
+        transport = new SocketClientTransport(serverAddress, SocketFactory.getDefault(), CoapSerializer.TCP, fastReconnection(Duration.ofSeconds(10)), TransportExecutors.newWorker("test-reader"), 10);
+        DisconnectionReceiver receiver = new DisconnectionReceiver();
+        transport.start(receiver);
+        serverSocket.accept().close();
+        await().until(() -> receiver.disconnections.get() == 1);
+
+        // disconnected, packets are held
+        CompletableFuture<Boolean> resp1 = transport.sendPacket(newPacket(1));
+        CompletableFuture<Boolean> resp = transport.sendPacket(newPacket(2));
+        assertFalse(resp.isDone());
+        assertEquals(2, transport.pendingSize());
+
+        // reconnected, held packets are sent only after CSM
+        try (Socket socket = serverSocket.accept()) {
+            assertFalse(resp.isDone());
+            CoapPacket csm = new CoapPacket(serverAddress);
+            csm.setMessageType(null);
+            csm.setCode(Code.C701_CSM);
+            CoapSerializer.TCP.serialize(socket.getOutputStream(), csm);
+
+            assertTrue(resp1.get());
+            assertTrue(resp.get());
+            assertEquals(0, transport.pendingSize());
+            InputStream inputStream = socket.getInputStream();
+            assertEquals(Opaque.ofBytes(1), CoapSerializer.TCP.deserialize(inputStream, serverAddress).getToken());
+            assertEquals(Opaque.ofBytes(2), CoapSerializer.TCP.deserialize(inputStream, serverAddress).getToken());
+        }
+    }
+
+    @Test
+    void shouldFailHeldPacket_whenDeadlinePasses() throws Exception {
+        transport = new SocketClientTransport(serverAddress, SocketFactory.getDefault(), CoapSerializer.TCP, fastReconnection(Duration.ofSeconds(10)), TransportExecutors.newWorker("test-reader"), 10);
+        DisconnectionReceiver receiver = new DisconnectionReceiver();
+        transport.start(receiver);
+        serverSocket.accept().close();
+        // no more connections accepted
+        serverSocket.close();
+        await().until(() -> receiver.disconnections.get() >= 1);
+
+        CoapPacket packet = newPacket(2);
+        packet.setTransportContext(TransportContext.EMPTY.add(SocketClientTransport.DEADLINE, Instant.now().plusMillis(200)));
+        CompletableFuture<Boolean> resp = transport.sendPacket(packet);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, resp::get);
+        assertThat(exception).hasCauseInstanceOf(CoapTimeoutException.class);
+    }
+
+    @Test
+    void shouldFailHeldPacket_whenDeadlinePasses_whileWaitingForCsm() throws Exception {
+        transport = new SocketClientTransport(serverAddress, SocketFactory.getDefault(), CoapSerializer.TCP, fastReconnection(Duration.ofSeconds(10)), TransportExecutors.newWorker("test-reader"), 10);
+        DisconnectionReceiver receiver = new DisconnectionReceiver();
+        transport.start(receiver);
+        serverSocket.accept().close();
+        await().until(() -> receiver.disconnections.get() == 1);
+
+        CoapPacket packet = newPacket(2);
+        packet.setTransportContext(TransportContext.EMPTY.add(SocketClientTransport.DEADLINE, Instant.now().plusMillis(300)));
+        CompletableFuture<Boolean> resp = transport.sendPacket(packet);
+
+        // reconnected, but server never sends CSM
+        try (Socket ignored = serverSocket.accept()) {
+            ExecutionException exception = assertThrows(ExecutionException.class, () -> resp.get(5, TimeUnit.SECONDS));
+            assertThat(exception).hasCauseInstanceOf(CoapTimeoutException.class);
+            assertEquals(0, transport.pendingSize());
+        }
+    }
+
+    @Test
+    void shouldFailSend_whenPendingQueueIsFull() throws Exception {
+        transport = new SocketClientTransport(serverAddress, SocketFactory.getDefault(), CoapSerializer.TCP,
+                ReconnectionPolicy.of(Duration.ofSeconds(10), Duration.ofSeconds(10), 1, Duration.ofSeconds(10)), TransportExecutors.newWorker("test-reader"), 10);
+        DisconnectionReceiver receiver = new DisconnectionReceiver();
+        transport.start(receiver);
+        serverSocket.accept().close();
+        await().until(() -> receiver.disconnections.get() == 1);
+        transport.sendPacket(newPacket(1));
+
+        CompletableFuture<Boolean> resp = transport.sendPacket(newPacket(2));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, resp::get);
+        assertThat(exception).hasCauseInstanceOf(IOException.class).hasMessageContaining("pending queue is full");
+    }
+
+    private static class DisconnectionReceiver implements CoapTcpReceiver {
+        private final AtomicInteger disconnections = new AtomicInteger();
+
+        @Override
+        public void onDisconnected(InetSocketAddress remoteAddress) {
+            disconnections.incrementAndGet();
+        }
+
+        @Override
+        public void onConnected(InetSocketAddress remoteAddress) {
+        }
+
+        @Override
+        public void handle(CoapPacket packet) {
+        }
+    }
+
+    private static ReconnectionPolicy fastReconnection(Duration maxPendingTime) {
+        return ReconnectionPolicy.of(Duration.ofMillis(10), Duration.ofMillis(50), 10, maxPendingTime);
+    }
+
+    private CoapPacket newPacket(int token) {
+        return newPacket(serverAddress, token);
+    }
+
+    private static CoapPacket newPacket(InetSocketAddress address, int token) {
+        CoapPacket packet = new CoapPacket(address);
+        packet.setMessageType(null);
+        packet.setMethod(Method.GET);
+        packet.setToken(Opaque.ofBytes(token));
+        return packet;
+    }
+
+    private class BlockingSocketFactory extends SocketFactory {
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return new Socket(host, port) {
+                @Override
+                public OutputStream getOutputStream() throws IOException {
+                    return new FilterOutputStream(super.getOutputStream()) {
+                        @Override
+                        public void write(byte[] b, int off, int len) throws IOException {
+                            socketWrites.incrementAndGet();
+                            try {
+                                writeAllowed.await();
+                            } catch (InterruptedException e) {
+                                throw new IOException(e);
+                            }
+                            out.write(b, off, len);
+                        }
+                    };
+                }
+            };
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.nio;
+
+import static com.mbed.coap.utils.Bytes.opaqueOfSize;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.packet.Code;
+import com.mbed.coap.packet.Method;
+import com.mbed.coap.packet.Opaque;
+import com.mbed.coap.transport.javassl.CoapTcpReceiver;
+import com.mbed.coap.transport.javassl.SSLUtils;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.UnresolvedAddressException;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class NioTcpClientTransportTest {
+
+    private final CoapTcpReceiver serverReceiver = mock(CoapTcpReceiver.class);
+    private final CoapTcpReceiver clientReceiver = mock(CoapTcpReceiver.class);
+    private NioTcpServerTransport server1;
+    private NioTcpServerTransport server2;
+    private NioTcpClientTransport client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server1 = newServer(new NioTcpServerTransport(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1));
+        server2 = newServer(new NioTcpServerTransport(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1));
+        client = new NioTcpClientTransport(1, KeepAlive.DISABLED, 1, NioTcpServerTransport.DEFAULT_MAX_FRAME_SIZE);
+        client.start(clientReceiver);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.stop();
+        server1.stop();
+        server2.stop();
+    }
+
+    @Test
+    void shouldOpenConnectionLazilyAndReuseIt() throws Exception {
+        assertEquals(0, client.getConnectionsCount());
+
+        assertTrue(client.sendPacket(newPacket(addressOf(server1), Opaque.of("1"))).get());
+        assertTrue(client.sendPacket(newPacket(addressOf(server1), opaqueOfSize(30_000))).get());
+
+        verify(serverReceiver, timeout(1000).times(2)).handle(any());
+        verify(clientReceiver).onConnected(addressOf(server1));
+        assertEquals(1, server1.getConnectionsCount());
+        assertThat(client.getConnectedPeers()).containsExactly(addressOf(server1));
+    }
+
+    @Test
+    void shouldReceivePackets() throws Exception {
+        client.sendPacket(newPacket(addressOf(server1), Opaque.of("1"))).get();
+        verify(serverReceiver, timeout(1000)).onConnected(any());
+        InetSocketAddress clientAddress = server1.getConnectedPeers().iterator().next();
+
+        CoapPacket response = newPacket(clientAddress, Opaque.of("response"));
+        server1.sendPacket(response).get();
+
+        CoapPacket expected = newPacket(addressOf(server1), Opaque.of("response"));
+        verify(clientReceiver, timeout(1000)).handle(expected);
+    }
+
+    @Test
+    void shouldSendSignalingBeforePacketsQueuedWhileConnecting() throws Exception {
+        CoapPacket csm = new CoapPacket(addressOf(server1));
+        csm.setMessageType(null);
+        csm.setCode(Code.C701_CSM);
+        doAnswer(__ -> client.sendPacket(csm)).when(clientReceiver).onConnected(addressOf(server1));
+
+        CoapPacket request = newPacket(addressOf(server1), Opaque.of("1"));
+        assertTrue(client.sendPacket(request).get());
+
+        ArgumentCaptor<CoapPacket> received = ArgumentCaptor.forClass(CoapPacket.class);
+        verify(serverReceiver, timeout(1000).times(2)).handle(received.capture());
+        assertEquals(Code.C701_CSM, received.getAllValues().get(0).getCode());
+        assertEquals(Method.PUT, received.getAllValues().get(1).getMethod());
+    }
+
+    @Test
+    void shouldFailSend_whenAddressIsUnresolved() {
+        CoapPacket packet = newPacket(InetSocketAddress.createUnresolved("unresolved.invalid", 5683), Opaque.EMPTY);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> client.sendPacket(packet).get());
+        assertThat(exception).hasCauseInstanceOf(UnresolvedAddressException.class);
+        assertEquals(0, client.getConnectionsCount());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedConnection_whenPoolIsFull() throws Exception {
+        client.sendPacket(newPacket(addressOf(server1), Opaque.EMPTY)).get();
+
+        client.sendPacket(newPacket(addressOf(server2), Opaque.EMPTY)).get();
+
+        verify(clientReceiver, timeout(1000)).onDisconnected(addressOf(server1));
+        verify(serverReceiver, timeout(1000)).onDisconnected(any());
+        assertEquals(0, server1.getConnectionsCount());
+        assertThat(client.getConnectedPeers()).containsExactly(addressOf(server2));
+    }
+
+    @Test
+    void shouldCloseIdleConnections() throws Exception {
+        client.stop();
+        client = new NioTcpClientTransport(10, Duration.ofMillis(300));
+        client.start(clientReceiver);
+
+        client.sendPacket(newPacket(addressOf(server1), Opaque.EMPTY)).get();
+        client.sendPacket(newPacket(addressOf(server2), Opaque.EMPTY)).get();
+        Thread.sleep(200);
+        client.sendPacket(newPacket(addressOf(server2), Opaque.EMPTY)).get();
+
+        verify(clientReceiver, timeout(1000)).onDisconnected(addressOf(server1));
+        verify(serverReceiver, timeout(1000)).onDisconnected(any());
+        assertThat(client.getConnectedPeers()).containsExactly(addressOf(server2));
+        verify(clientReceiver, timeout(1000)).onDisconnected(addressOf(server2));
+    }
+
+    @Test
+    void shouldNotPassKeepAlivePongsToReceiver() throws Exception {
+        client.stop();
+        client = new NioTcpClientTransport(1, KeepAlive.ping(Duration.ofMillis(200), 3), 1, NioTcpServerTransport.DEFAULT_MAX_FRAME_SIZE);
+        client.start(clientReceiver);
+        client.sendPacket(newPacket(addressOf(server1), Opaque.EMPTY)).get();
+        ArgumentCaptor<CoapPacket> received = ArgumentCaptor.forClass(CoapPacket.class);
+        verify(serverReceiver, timeout(1000).atLeast(2)).handle(received.capture());
+        CoapPacket ping = received.getAllValues().stream().filter(it -> it.getCode() == Code.C702_PING).findFirst().get();
+
+        // pong for keepalive ping
+        server1.sendPacket(newPong(ping.getRemoteAddress(), ping.getToken())).get();
+        // pong with other token
+        server1.sendPacket(newPong(ping.getRemoteAddress(), Opaque.of("kalv"))).get();
+
+        verify(clientReceiver, timeout(1000)).handle(any());
+        verify(clientReceiver).handle(argThat(it -> it.getToken().equals(Opaque.of("kalv"))));
+    }
+
+    private static CoapPacket newPong(InetSocketAddress address, Opaque token) {
+        CoapPacket pong = new CoapPacket(address);
+        pong.setMessageType(null);
+        pong.setCode(Code.C703_PONG);
+        pong.setToken(token);
+        return pong;
+    }
+
+    @Test
+    void shouldFailToSend_whenConnectionRefused() throws Exception {
+        InetSocketAddress closedPort;
+        try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedPort = (InetSocketAddress) serverSocket.getLocalSocketAddress();
+        }
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> client.sendPacket(newPacket(closedPort, Opaque.EMPTY)).get());
+
+        assertThat(exception).hasCauseInstanceOf(IOException.class);
+        verify(clientReceiver, times(0)).onConnected(any());
+        assertEquals(0, client.getConnectionsCount());
+    }
+
+    @Test
+    void shouldConnectWithTls() throws Exception {
+        char[] secret = "secret".toCharArray();
+        KeyStore serverKs = SSLUtils.ksFrom("/test-server.jks", secret);
+        KeyStore clientKs = SSLUtils.ksFrom("/test-client.jks", secret);
+        NioTlsServerTransport tlsServer = new NioTlsServerTransport(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), SSLUtils.sslContext(serverKs, secret), true);
+        NioTlsClientTransport tlsClient = new NioTlsClientTransport(SSLUtils.sslContext(clientKs, secret));
+        newServer(tlsServer);
+        tlsClient.start(clientReceiver);
+
+        try {
+            assertTrue(tlsClient.sendPacket(newPacket(addressOf(tlsServer), opaqueOfSize(20_000))).get());
+            assertTrue(tlsClient.sendPacket(newPacket(addressOf(tlsServer), Opaque.of("2"))).get());
+
+            verify(serverReceiver, timeout(2000).times(2)).handle(any());
+            verify(clientReceiver).onConnected(addressOf(tlsServer));
+            assertEquals(1, tlsClient.getConnectionsCount());
+        } finally {
+            tlsClient.stop();
+            tlsServer.stop();
+        }
+    }
+
+    private NioTcpServerTransport newServer(NioTcpServerTransport transport) throws IOException {
+        transport.start(serverReceiver);
+        return transport;
+    }
+
+    private static InetSocketAddress addressOf(NioTcpServerTransport server) {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalSocketAddress().getPort());
+    }
+
+    private static CoapPacket newPacket(InetSocketAddress address, Opaque payload) {
+        CoapPacket packet = new CoapPacket(address);
+        packet.setMessageType(null);
+        packet.setMethod(Method.PUT);
+        packet.setToken(Opaque.ofBytes(1, 2));
+        packet.headers().setUriPath("/test");
+        packet.setPayload(payload);
+        return packet;
+    }
+}
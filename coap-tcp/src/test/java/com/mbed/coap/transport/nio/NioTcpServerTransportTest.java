@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.nio;
+
+import static com.mbed.coap.transport.nio.NioTcpServerTransport.DEFAULT_MAX_FRAME_SIZE;
+import static com.mbed.coap.utils.Bytes.opaqueOfSize;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.packet.CoapTcpPacketSerializer;
+import com.mbed.coap.packet.Code;
+import com.mbed.coap.packet.Method;
+import com.mbed.coap.packet.Opaque;
+import com.mbed.coap.transport.javassl.CoapTcpReceiver;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class NioTcpServerTransportTest {
+
+    private final CoapTcpReceiver receiver = mock(CoapTcpReceiver.class);
+    private NioTcpServerTransport transport;
+    private InetSocketAddress serverAddress;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        start(new NioTcpServerTransport(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2));
+    }
+
+    private void start(NioTcpServerTransport newTransport) throws IOException {
+        transport = newTransport;
+        transport.start(receiver);
+        serverAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), transport.getLocalSocketAddress().getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.stop();
+    }
+
+    @Test
+    void shouldReportConnectedAndDisconnectedPeers() throws Exception {
+        Socket socket1 = new Socket(serverAddress.getAddress(), serverAddress.getPort());
+        Socket socket2 = new Socket(serverAddress.getAddress(), serverAddress.getPort());
+
+        verify(receiver, timeout(1000)).onConnected(localAddressOf(socket1));
+        verify(receiver, timeout(1000)).onConnected(localAddressOf(socket2));
+        assertEquals(2, transport.getConnectionsCount());
+
+        socket1.close();
+        verify(receiver, timeout(1000)).onDisconnected(localAddressOf(socket1));
+        await().untilAsserted(() -> assertThat(transport.getConnectedPeers()).containsExactly(localAddressOf(socket2)));
+
+        socket2.close();
+    }
+
+    @Test
+    void shouldBackOff_whenAcceptFails() throws Exception {
+        transport.stop();
+        AtomicInteger acceptCalls = new AtomicInteger();
+        long failUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        start(new NioTcpServerTransport(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1) {
+            @Override
+            SocketChannel accept() throws IOException {
+                acceptCalls.incrementAndGet();
+                if (System.nanoTime() < failUntil) {
+                    throw new IOException("Too many open files");
+                }
+                return super.accept();
+            }
+        });
+
+        Socket socket = new Socket(serverAddress.getAddress(), serverAddress.getPort());
+
+        // accepted when errors stop, selector does not spin on pending connection meanwhile
+        verify(receiver, timeout(3000)).onConnected(localAddressOf(socket));
+        assertThat(acceptCalls.get()).isLessThan(10);
+
+        socket.close();
+    }
+
+    @Test
+    void shouldReceivePacketsSplitAndMergedAcrossReads() throws Exception {
+        Socket socket = new Socket(serverAddress.getAddress(), serverAddress.getPort());
+        CoapPacket packet1 = newPacket(localAddressOf(socket), Opaque.of("first"));
+        CoapPacket packet2 = newPacket(localAddressOf(socket), opaqueOfSize(40_000));
+        OutputStream outputStream = socket.getOutputStream();
+
+        // first frame in small chunks, second merged with tail of the first
+        byte[] frame1 = CoapTcpPacketSerializer.serialize(packet1);
+        byte[] frame2 = CoapTcpPacketSerializer.serialize(packet2);
+        outputStream.write(frame1, 0, 3);
+        outputStream.flush();
+        Thread.sleep(20);
+        outputStream.write(frame1, 3, frame1.length - 3);
+        outputStream.write(frame2);
+        outputStream.flush();
+
+        verify(receiver, timeout(1000)).handle(packet1);
+        verify(receiver, timeout(1000)).handle(packet2);
+        socket.close();
+    }
+
+    @Test
+    void shouldReceiveAll_whenMoreDataThanReadInOneReadinessEvent() throws Exception {
+        Socket socket = new Socket(serverAddress.getAddress(), serverAddress.getPort());
+        CoapPacket packet = newPacket(localAddressOf(socket), opaqueOfSize(30_000));
+        byte[] frame = CoapTcpPacketSerializer.serialize(packet);
+        OutputStream outputStream = socket.getOutputStream();
+
+        // about 3MB, more than MAX_READS_PER_EVENT * read buffer size
+        for (int i = 0; i < 100; i++) {
+            outputStream.write(frame);
+        }
+        outputStream.flush();
+
+        verify(receiver, timeout(5000).times(100)).handle(packet);
+        socket.close();
+    }
+
+    @Test
+    void shouldRouteOutgoingPacketByRemoteAddress() throws Exception {
+        Socket socket1 = new Socket(serverAddress.getAddress(), serverAddress.getPort());
+        Socket socket2 = new Socket(serverAddress.getAddress(), serverAddress.getPort());
+        verify(receiver, timeout(1000)).onConnected(localAddressOf(socket2));
+
+        CoapPacket packet = newPacket(localAddressOf(socket2), opaqueOfSize(3000));
+        assertTrue(transport.sendPacket(packet).get());
+
+        CoapPacket received = CoapTcpPacketSerializer.deserialize(localAddressOf(socket2), socket2.getInputStream());
+        assertEquals(packet, received);
+        assertEquals(0, socket1.getInputStream().available());
+
+        socket1.close();
+        socket2.close();
+    }
+
+    @Test
+    void shouldFailToSend_whenNoConnection() {
+        CoapPacket packet = newPacket(new InetSocketAddress("127.0.0.1", 61616), Opaque.EMPTY);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> transport.sendPacket(packet).get());
+        assertThat(exception).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldCloseConnection() throws Exception {
+        Socket socket = new Socket(serverAddress.getAddress(), serverAddress.getPort());
+        verify(receiver, timeout(1000)).onConnected(localAddressOf(socket));
+
+        assertTrue(transport.closeConnection(localAddressOf(socket)));
+
+        verify(receiver, timeout(1000)).onDisconnected(localAddressOf(socket));
+        assertEquals(-1, socket.getInputStream().read());
+        assertEquals(0, transport.getConnectionsCount());
+    }
+
+    @Test
+    void shouldDisconnectAll_whenStopped() throws Exception {
+        Socket socket = new Socket(serverAddress.getAddress(), serverAddress.getPort());
+        verify(receiver, timeout(1000)).onConnected(localAddressOf(socket));
+
+        transport.stop();
+
+        verify(receiver).onDisconnected(localAddressOf(socket));
+        assertEquals(-1, socket.getInputStream().read());
+    }
+
+    @Test
+    void shouldPingAndClose_whenNoPongs() throws Exception {
+        transport.stop();
+        start(new NioTcpServerTransport(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, DEFAULT_MAX_FRAME_SIZE, KeepAlive.ping(Duration.ofMillis(200), 2)));
+        Socket socket = new Socket(serverAddress.getAddress(), serverAddress.getPort());
+        verify(receiver, timeout(1000)).onConnected(localAddressOf(socket));
+
+        CoapPacket ping1 = CoapTcpPacketSerializer.deserialize(localAddressOf(socket), socket.getInputStream());
+        CoapPacket ping2 = CoapTcpPacketSerializer.deserialize(localAddressOf(socket), socket.getInputStream());
+
+        assertEquals(Code.C702_PING, ping1.getCode());
+        assertEquals(TcpConnection.KEEPALIVE_TOKEN_SIZE, ping1.getToken().size());
+        assertEquals(Code.C702_PING, ping2.getCode());
+        assertNotEquals(ping1.getToken(), ping2.getToken());
+        verify(receiver, timeout(1000)).onDisconnected(localAddressOf(socket));
+        assertEquals(-1, socket.getInputStream().read());
+        assertEquals(0, transport.getConnectionsCount());
+    }
+
+    @Test
+    void shouldKeepConnection_whenPongsReceived() throws Exception {
+        transport.stop();
+        start(new NioTcpServerTransport(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, DEFAULT_MAX_FRAME_SIZE, KeepAlive.ping(Duration.ofMillis(200), 1)));
+        Socket socket = new Socket(serverAddress.getAddress(), serverAddress.getPort());
+        verify(receiver, timeout(1000)).onConnected(localAddressOf(socket));
+
+        for (int i = 0; i < 3; i++) {
+            CoapPacket ping = CoapTcpPacketSerializer.deserialize(localAddressOf(socket), socket.getInputStream());
+            CoapPacket pong = new CoapPacket(serverAddress);
+            pong.setMessageType(null);
+            pong.setCode(Code.C703_PONG);
+            pong.setToken(ping.getToken());
+            socket.getOutputStream().write(CoapTcpPacketSerializer.serialize(pong));
+        }
+
+        assertEquals(1, transport.getConnectionsCount());
+        verify(receiver, never()).onDisconnected(any());
+        verify(receiver, never()).handle(any());
+        socket.close();
+    }
+
+    @Test
+    void shouldCloseIdleConnection() throws Exception {
+        transport.stop();
+        start(new NioTcpServerTransport(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, DEFAULT_MAX_FRAME_SIZE, KeepAlive.idleTimeout(Duration.ofMillis(300))));
+        Socket socket = new Socket(serverAddress.getAddress(), serverAddress.getPort());
+        verify(receiver, timeout(1000)).onConnected(localAddressOf(socket));
+
+        socket.getOutputStream().write(CoapTcpPacketSerializer.serialize(newPacket(localAddressOf(socket), Opaque.EMPTY)));
+        verify(receiver, timeout(1000)).handle(any());
+
+        verify(receiver, timeout(2000)).onDisconnected(localAddressOf(socket));
+        assertEquals(-1, socket.getInputStream().read());
+    }
+
+    private static InetSocketAddress localAddressOf(Socket socket) {
+        return (InetSocketAddress) socket.getLocalSocketAddress();
+    }
+
+    private static CoapPacket newPacket(InetSocketAddress address, Opaque payload) {
+        CoapPacket packet = new CoapPacket(address);
+        packet.setMessageType(null);
+        packet.setMethod(Method.PUT);
+        packet.setToken(Opaque.ofBytes(1, 2));
+        packet.headers().setUriPath("/test");
+        packet.setPayload(payload);
+        return packet;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.nio;
+
+import static com.mbed.coap.packet.CoapRequest.*;
+import static com.mbed.coap.server.CoapServerBuilderForTcp.*;
+import static java.util.concurrent.CompletableFuture.*;
+import static org.junit.jupiter.api.Assertions.*;
+import com.mbed.coap.client.CoapClient;
+import com.mbed.coap.client.CoapClientBuilderForTcp;
+import com.mbed.coap.packet.BlockSize;
+import com.mbed.coap.packet.CoapResponse;
+import com.mbed.coap.packet.Opaque;
+import com.mbed.coap.server.CoapServer;
+import com.mbed.coap.server.RouterService;
+import com.mbed.coap.transport.javassl.CoapSerializer;
+import com.mbed.coap.transport.javassl.SSLSocketClientTransport;
+import com.mbed.coap.transport.javassl.SSLUtils;
+import com.mbed.coap.utils.Bytes;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.security.KeyStore;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class NioTlsServerTransportTest {
+    private static final char[] SECRET = "secret".toCharArray();
+    private static final KeyStore SRV_KS = SSLUtils.ksFrom("/test-server.jks", SECRET);
+    private static final KeyStore CLI_KS = SSLUtils.ksFrom("/test-client.jks", SECRET);
+    private final SSLContext srvSslContext = SSLUtils.sslContext(SRV_KS, SECRET);
+    private final SSLContext clientSslContext = SSLUtils.sslContext(CLI_KS, SECRET);
+    private final Opaque largePayload = Bytes.opaqueOfRandom(60_000);
+
+    private CoapServer server;
+    private InetSocketAddress serverAddress;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = newBuilderForTcp()
+                .transport(new NioTlsServerTransport(new InetSocketAddress(0), srvSslContext, true))
+                .blockSize(BlockSize.S_1024_BERT)
+                .maxMessageSize(100_000)
+                .route(RouterService.builder()
+                        .get("/test", __ -> completedFuture(CoapResponse.ok("OK")))
+                        .get("/large", __ -> completedFuture(CoapResponse.ok(largePayload)))
+                        .build()
+                )
+                .build().start();
+        serverAddress = new InetSocketAddress("localhost", server.getLocalSocketAddress().getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void shouldServeMultipleTlsClients() throws Exception {
+        CoapClient client1 = newClient();
+        CoapClient client2 = newClient();
+
+        assertEquals("OK", client1.sendSync(get("/test")).getPayloadString());
+        assertEquals("OK", client2.sendSync(get("/test")).getPayloadString());
+        assertNotNull(client1.ping().get());
+
+        client1.close();
+        client2.close();
+    }
+
+    @Test
+    void shouldTransferLargePayloadOverMultipleRecords() throws Exception {
+        CoapClient client = newClient();
+
+        assertEquals(largePayload, client.sendSync(get("/large")).getPayload());
+
+        client.close();
+    }
+
+    @Test
+    void shouldRejectClientWithoutCertificate() throws Exception {
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance("SunX509");
+        trustManagerFactory.init(CLI_KS);
+        SSLContext noCertContext = SSLContext.getInstance("TLSv1.2");
+        noCertContext.init(null, trustManagerFactory.getTrustManagers(), null);
+
+        try (SSLSocket socket = (SSLSocket) noCertContext.getSocketFactory().createSocket(serverAddress.getAddress(), serverAddress.getPort())) {
+            assertThrows(IOException.class, socket::startHandshake);
+        }
+    }
+
+    private CoapClient newClient() throws IOException {
+        return CoapClientBuilderForTcp.newBuilderForTcp(serverAddress)
+                .transport(new SSLSocketClientTransport(serverAddress, clientSslContext.getSocketFactory(), CoapSerializer.TCP, false))
+                .blockSize(BlockSize.S_1024_BERT)
+                .maxIncomingBlockTransferSize(100_000)
+                .maxMessageSize(100_000)
+                .build();
+    }
+}
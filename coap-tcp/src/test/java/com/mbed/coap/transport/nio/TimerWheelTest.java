@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mbed.coap.transport.nio;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+    private static final long TICK = 100;
+    private final List<String> fired = new ArrayList<>();
+    private final TimerWheel wheel = new TimerWheel(TICK, 8, 0);
+
+    @Test
+    void shouldRunExpiredTasksInDeadlineOrder() {
+        wheel.schedule(250, () -> fired.add("b"));
+        wheel.schedule(100, () -> fired.add("a"));
+        wheel.schedule(700, () -> fired.add("c"));
+        assertEquals(3, wheel.size());
+
+        assertEquals(0, wheel.advance(99));
+        assertEquals(1, wheel.advance(100));
+        assertThat(fired).containsExactly("a");
+
+        assertEquals(1, wheel.advance(350));
+        assertThat(fired).containsExactly("a", "b");
+
+        assertEquals(1, wheel.advance(1000));
+        assertThat(fired).containsExactly("a", "b", "c");
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void shouldRunTasksWithDelayLongerThanWheelRotation() {
+        wheel.schedule(2050, () -> fired.add("long"));
+        wheel.schedule(50, () -> fired.add("short"));
+
+        wheel.advance(1000);
+        assertThat(fired).containsExactly("short");
+
+        wheel.advance(2000);
+        assertThat(fired).containsExactly("short");
+
+        wheel.advance(2100);
+        assertThat(fired).containsExactly("short", "long");
+    }
+
+    @Test
+    void shouldNotRunCancelledTask() {
+        TimerWheel.Timeout timeout = wheel.schedule(100, () -> fired.add("cancelled"));
+        wheel.schedule(100, () -> fired.add("a"));
+
+        timeout.cancel();
+        wheel.advance(100);
+
+        assertThat(fired).containsExactly("a");
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void shouldAllowRescheduleFromTask() {
+        wheel.schedule(TICK * 8, new Runnable() {
+            @Override
+            public void run() {
+                fired.add("run");
+                if (fired.size() < 3) {
+                    wheel.schedule(TICK * 8, this);
+                }
+            }
+        });
+
+        wheel.advance(TICK * 8);
+        assertThat(fired).hasSize(1);
+        wheel.advance(TICK * 16);
+        assertThat(fired).hasSize(2);
+        wheel.advance(TICK * 100);
+        assertThat(fired).hasSize(3);
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package protocolTests;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.mbed.coap.client.CoapClient;
+import com.mbed.coap.client.CoapClientBuilderForTcp;
+import com.mbed.coap.packet.BlockSize;
+import com.mbed.coap.packet.CoapRequest;
+import com.mbed.coap.packet.CoapResponse;
+import com.mbed.coap.packet.Code;
+import com.mbed.coap.server.CoapServer;
+import com.mbed.coap.server.CoapServerBuilderForTcp;
+import com.mbed.coap.transport.javassl.CoapSerializer;
+import com.mbed.coap.transport.javassl.SocketClientTransport;
+import com.mbed.coap.transport.nio.NioTcpServerTransport;
+import com.mbed.coap.utils.Service;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import javax.net.SocketFactory;
+import org.junit.jupiter.api.Test;
+
+
+public class NioTcpIntegrationTest extends IntegrationTestBase {
+
+    @Override
+    protected CoapServer buildServer(int port, Service<CoapRequest, CoapResponse> route) throws IOException {
+        return CoapServerBuilderForTcp.newBuilderForTcp()
+                .transport(new NioTcpServerTransport(port))
+                .blockSize(BlockSize.S_1024_BERT)
+                .maxMessageSize(100_000)
+                .route(route)
+                .build();
+    }
+
+    @Override
+    protected CoapClient buildClient(int port) throws IOException {
+        return buildClient(new InetSocketAddress(InetAddress.getLocalHost(), port));
+    }
+
+    private CoapClient buildClient(InetSocketAddress serverAddress) throws IOException {
+        return CoapClientBuilderForTcp.newBuilderForTcp(serverAddress)
+                .transport(new SocketClientTransport(serverAddress, SocketFactory.getDefault(), CoapSerializer.TCP, false))
+                .blockSize(BlockSize.S_1024_BERT)
+                .maxIncomingBlockTransferSize(4000)
+                .maxMessageSize(2100)
+                .build();
+    }
+
+    @Override
+    public void sendPing() throws Exception {
+        CoapResponse pingResp = client.ping().get();
+
+        assertEquals(CoapResponse.of(Code.C703_PONG), pingResp);
+    }
+
+    @Test
+    public void multipleClients() throws Exception {
+        InetSocketAddress serverAddress = new InetSocketAddress(InetAddress.getLocalHost(), server.getLocalSocketAddress().getPort());
+        CoapClient client2 = buildClient(serverAddress);
+        CoapClient client3 = buildClient(serverAddress);
+
+        assertEquals("Dziala", client2.sendSync(CoapRequest.get("/test/1")).getPayloadString());
+        assertEquals("Dziala", client3.sendSync(CoapRequest.get("/test/1")).getPayloadString());
+        assertEquals("Dziala", client.sendSync(CoapRequest.get("/test/1")).getPayloadString());
+
+        client2.close();
+        client3.close();
+    }
+}
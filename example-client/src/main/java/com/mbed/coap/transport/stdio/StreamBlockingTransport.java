@@ -61,6 +61,10 @@ public class StreamBlockingTransport extends BlockingCoapTransport {
     @Override
     public void sendPacket0(CoapPacket coapPacket) throws IOException, CoapException {
         serializer.serialize(outputStream, coapPacket);
+    }
+
+    @Override
+    protected void flush() throws IOException {
         outputStream.flush();
     }
 
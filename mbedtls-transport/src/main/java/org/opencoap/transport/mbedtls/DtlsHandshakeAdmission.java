@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opencoap.transport.mbedtls;
+
+import static com.mbed.coap.utils.Validations.require;
+import com.mbed.coap.packet.Opaque;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for DTLS handshakes, consulted by {@link HandshakeAdmissionTransport} for every datagram before it
+ * is given to a DTLS server. It looks only at DTLS record header and ClientHello, so it works in front of any DTLS
+ * implementation.
+ * <p/>
+ * Only ClientHello with a cookie is limited: it comes from a peer that has proven its source address, and it makes
+ * server start expensive key exchange. First ClientHello (without cookie) is answered statelessly with
+ * HelloVerifyRequest, so it always passes. DTLS server must be configured to require cookies.
+ * <ul>
+ * <li>peer is considered to have established session once it sends application data record after its handshake was
+ * admitted, number of tracked established sessions is capped</li>
+ * <li>records from peers with established session are always admitted and do not count against any limit,
+ * ClientHello does not demote established session</li>
+ * <li>number of concurrent handshakes is capped, ClientHello over that limit is deferred until a slot is free</li>
+ * <li>new handshakes are rate limited per source prefix (/24 for IPv4, /56 for IPv6) with a token bucket, ClientHello
+ * over that limit is rejected</li>
+ * </ul>
+ */
+public final class DtlsHandshakeAdmission {
+    private static final int RECORD_HEADER_SIZE = 13;
+    private static final int CONTENT_HANDSHAKE = 22;
+    private static final int CONTENT_APPLICATION_DATA = 23;
+    private static final int CONTENT_TLS12_CID = 25;
+    private static final int HANDSHAKE_CLIENT_HELLO = 1;
+
+    public enum Decision {
+        ESTABLISHED, HANDSHAKE, DEFERRED, REJECTED
+    }
+
+    private final int maxConcurrentHandshakes;
+    private final int maxEstablishedSessions;
+    private final double handshakesPerNanoPerPrefix;
+    private final double prefixBurst;
+    private final long handshakeTimeoutNanos;
+    private final long sessionIdleTimeoutNanos;
+
+    private final Map<InetSocketAddress, Long> established = new ConcurrentHashMap<>();
+    // guarded by this
+    private final Map<InetSocketAddress, Long> handshakes = new HashMap<>();
+    private final Map<Opaque, TokenBucket> prefixBuckets = new HashMap<>();
+    private volatile long nextSweepNanos;
+
+    private final LongAdder establishedRecords = new LongAdder();
+    private final LongAdder admittedHandshakes = new LongAdder();
+    private final LongAdder deferredByConcurrency = new LongAdder();
+    private final LongAdder rejectedByRate = new LongAdder();
+
+    /**
+     * Creates handshake admission.
+     *
+     * @param maxConcurrentHandshakes maximum number of handshakes in progress
+     * @param maxEstablishedSessions maximum number of tracked established sessions, records of sessions over that
+     * limit are not prioritized
+     * @param handshakesPerSecondPerPrefix sustained rate of new handshakes from one source prefix
+     * @param prefixBurst number of new handshakes from one source prefix allowed at once
+     * @param handshakeTimeout time after which unfinished handshake stops counting as in progress
+     * @param sessionIdleTimeout time after which session with no traffic stops being treated as established
+     */
+    public DtlsHandshakeAdmission(int maxConcurrentHandshakes, int maxEstablishedSessions, double handshakesPerSecondPerPrefix, int prefixBurst, Duration handshakeTimeout, Duration sessionIdleTimeout) {
+        require(maxConcurrentHandshakes > 0 && maxEstablishedSessions > 0 && handshakesPerSecondPerPrefix > 0 && prefixBurst > 0);
+        require(!handshakeTimeout.isNegative() && !handshakeTimeout.isZero() && !sessionIdleTimeout.isNegative() && !sessionIdleTimeout.isZero());
+        this.maxConcurrentHandshakes = maxConcurrentHandshakes;
+        this.maxEstablishedSessions = maxEstablishedSessions;
+        this.handshakesPerNanoPerPrefix = handshakesPerSecondPerPrefix / TimeUnit.SECONDS.toNanos(1);
+        this.prefixBurst = prefixBurst;
+        this.handshakeTimeoutNanos = handshakeTimeout.toNanos();
+        this.sessionIdleTimeoutNanos = sessionIdleTimeout.toNanos();
+        this.nextSweepNanos = System.nanoTime();
+    }
+
+    public Decision admit(InetSocketAddress peer, byte[] datagram, int offset, int length) {
+        return admit(peer, ByteBuffer.wrap(datagram, offset, length), System.nanoTime());
+    }
+
+    /**
+     * @param peer source address
+     * @param datagram received datagram, its position is not changed
+     */
+    public Decision admit(InetSocketAddress peer, ByteBuffer datagram) {
+        return admit(peer, datagram, System.nanoTime());
+    }
+
+    Decision admit(InetSocketAddress peer, ByteBuffer datagram, long nowNanos) {
+        if (nowNanos - nextSweepNanos >= 0) {
+            sweep(nowNanos);
+        }
+        int clientHelloCookieLength = clientHelloCookieLength(datagram);
+        if (clientHelloCookieLength > 0) {
+            return admitClientHello(peer, nowNanos);
+        }
+
+        Long lastSeen = established.get(peer);
+        if (lastSeen != null && nowNanos - lastSeen < sessionIdleTimeoutNanos) {
+            established.put(peer, nowNanos);
+            establishedRecords.increment();
+            return Decision.ESTABLISHED;
+        }
+
+        int contentType = datagram.remaining() >= RECORD_HEADER_SIZE ? datagram.get(datagram.position()) & 0xFF : -1;
+        if (contentType == CONTENT_APPLICATION_DATA || contentType == CONTENT_TLS12_CID) {
+            // encrypted application data from a peer with admitted handshake means that handshake has finished
+            return sessionEstablished(peer, nowNanos);
+        }
+        // ClientHello without cookie (answered statelessly with HelloVerifyRequest), rest of handshake flight,
+        // alerts or garbage, let DTLS deal with it
+        return Decision.HANDSHAKE;
+    }
+
+    static boolean isClientHello(byte[] datagram, int offset, int length) {
+        return clientHelloCookieLength(ByteBuffer.wrap(datagram, offset, length)) >= 0;
+    }
+
+    /**
+     * Reads cookie length of ClientHello: record header (13), handshake header (12), client_version (2), random (32),
+     * session_id (1 + n), cookie (1 + n).
+     *
+     * @return cookie length, or -1 if datagram does not start with (first fragment of) ClientHello
+     */
+    static int clientHelloCookieLength(ByteBuffer datagram) {
+        int pos = datagram.position();
+        int length = datagram.remaining();
+        if (length <= RECORD_HEADER_SIZE || (datagram.get(pos) & 0xFF) != CONTENT_HANDSHAKE) {
+            return -1;
+        }
+        int epoch = ((datagram.get(pos + 3) & 0xFF) << 8) | (datagram.get(pos + 4) & 0xFF);
+        if (epoch != 0 || datagram.get(pos + RECORD_HEADER_SIZE) != HANDSHAKE_CLIENT_HELLO) {
+            return -1;
+        }
+        int sessionIdLengthIndex = RECORD_HEADER_SIZE + 12 + 2 + 32;
+        if (length <= sessionIdLengthIndex) {
+            return 0;
+        }
+        int cookieLengthIndex = sessionIdLengthIndex + 1 + (datagram.get(pos + sessionIdLengthIndex) & 0xFF);
+        if (length <= cookieLengthIndex) {
+            return 0;
+        }
+        return datagram.get(pos + cookieLengthIndex) & 0xFF;
+    }
+
+    private synchronized Decision sessionEstablished(InetSocketAddress peer, long nowNanos) {
+        if (handshakes.remove(peer) == null || established.size() >= maxEstablishedSessions) {
+            // not known handshake (could be spoofed), or too many sessions: pass without priority
+            return Decision.HANDSHAKE;
+        }
+        established.put(peer, nowNanos);
+        establishedRecords.increment();
+        return Decision.ESTABLISHED;
+    }
+
+    // ClientHello with cookie, peer has proven its address and server is about to make expensive key exchange
+    private synchronized Decision admitClientHello(InetSocketAddress peer, long nowNanos) {
+        if (handshakes.size() >= maxConcurrentHandshakes) {
+            expireHandshakes(nowNanos);
+        }
+
+        Long startedAt = handshakes.get(peer);
+        if (startedAt != null && nowNanos - startedAt < handshakeTimeoutNanos) {
+            // retransmission
+            return Decision.HANDSHAKE;
+        }
+        if (handshakes.size() >= maxConcurrentHandshakes) {
+            deferredByConcurrency.increment();
+            return Decision.DEFERRED;
+        }
+        if (!prefixBuckets.computeIfAbsent(prefixOf(peer), k -> new TokenBucket(prefixBurst, nowNanos)).tryTake(nowNanos)) {
+            rejectedByRate.increment();
+            return Decision.REJECTED;
+        }
+
+        handshakes.put(peer, nowNanos);
+        admittedHandshakes.increment();
+        return Decision.HANDSHAKE;
+    }
+
+    private synchronized void sweep(long nowNanos) {
+        if (nowNanos - nextSweepNanos < 0) {
+            // already swept by other thread
+            return;
+        }
+        nextSweepNanos = nowNanos + Math.min(handshakeTimeoutNanos, sessionIdleTimeoutNanos);
+
+        expireHandshakes(nowNanos);
+        established.values().removeIf(lastSeen -> nowNanos - lastSeen >= sessionIdleTimeoutNanos);
+        Iterator<TokenBucket> iterator = prefixBuckets.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isFull(nowNanos)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return true when number of handshakes in progress is below the limit
+     */
+    public boolean canStartHandshake() {
+        return canStartHandshake(System.nanoTime());
+    }
+
+    synchronized boolean canStartHandshake(long nowNanos) {
+        if (handshakes.size() >= maxConcurrentHandshakes) {
+            expireHandshakes(nowNanos);
+        }
+        return handshakes.size() < maxConcurrentHandshakes;
+    }
+
+    private void expireHandshakes(long nowNanos) {
+        handshakes.values().removeIf(startedAt -> nowNanos - startedAt >= handshakeTimeoutNanos);
+    }
+
+    /**
+     * Forgets peer's session, should be called when DTLS session is closed.
+     *
+     * @param peer peer address
+     */
+    public synchronized void sessionClosed(InetSocketAddress peer) {
+        established.remove(peer);
+        handshakes.remove(peer);
+    }
+
+    static Opaque prefixOf(InetSocketAddress peer) {
+        byte[] address = peer.getAddress().getAddress();
+        return Opaque.of(Arrays.copyOf(address, address.length == 4 ? 3 : 7));
+    }
+
+    public synchronized int currentHandshakes() {
+        return handshakes.size();
+    }
+
+    public int establishedSessions() {
+        return established.size();
+    }
+
+    public long establishedRecords() {
+        return establishedRecords.sum();
+    }
+
+    public long admittedHandshakes() {
+        return admittedHandshakes.sum();
+    }
+
+    public long deferredByConcurrency() {
+        return deferredByConcurrency.sum();
+    }
+
+    public long rejectedByRate() {
+        return rejectedByRate.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "DtlsHandshakeAdmission[handshakes=" + currentHandshakes() + ", established=" + establishedSessions()
+                + ", admitted=" + admittedHandshakes() + ", deferredByConcurrency=" + deferredByConcurrency()
+                + ", rejectedByRate=" + rejectedByRate() + "]";
+    }
+
+    private class TokenBucket {
+        private double tokens;
+        private long lastRefillNanos;
+
+        TokenBucket(double tokens, long nowNanos) {
+            this.tokens = tokens;
+            this.lastRefillNanos = nowNanos;
+        }
+
+        boolean tryTake(long nowNanos) {
+            refill(nowNanos);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+
+        boolean isFull(long nowNanos) {
+            refill(nowNanos);
+            return tokens >= prefixBurst;
+        }
+
+        private void refill(long nowNanos) {
+            tokens = Math.min(prefixBurst, tokens + (nowNanos - lastRefillNanos) * handshakesPerNanoPerPrefix);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
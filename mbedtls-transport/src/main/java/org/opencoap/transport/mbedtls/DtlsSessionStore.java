@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opencoap.transport.mbedtls;
+
+import com.mbed.coap.packet.Opaque;
+import java.io.IOException;
+
+/**
+ * Storage of serialized client DTLS sessions, that allows a client to resume them (without a full handshake) after
+ * restart.
+ * <p/>
+ * Only client side is covered: kotlin-mbedtls does not expose session export and import for DtlsServer, so sessions
+ * of a server are still lost when it restarts.
+ */
+public interface DtlsSessionStore {
+
+    /**
+     * Stores session. When there is already a session with the same key, its original store time is kept, so that a
+     * resumed session ages from its full handshake.
+     *
+     * @param key session key
+     * @param session serialized session
+     */
+    void put(Opaque key, byte[] session);
+
+    /**
+     * Returns stored session.
+     *
+     * @param key session key
+     * @return serialized session or null if not found or expired
+     */
+    byte[] get(Opaque key);
+
+    void remove(Opaque key);
+
+    /**
+     * Persists stored sessions, called when transport that uses this store is stopped.
+     */
+    default void flush() throws IOException {
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opencoap.transport.mbedtls;
+
+import static com.mbed.coap.utils.Validations.require;
+import com.mbed.coap.packet.Opaque;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Session store that keeps sessions in memory and persists them to a local file with {@link #flush()}, which is called
+ * by {@link MbedtlsCoapTransport} when it stops. Sessions are loaded from that file when store is created, those older
+ * than maximum age are dropped.
+ */
+public final class FileDtlsSessionStore implements DtlsSessionStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileDtlsSessionStore.class);
+    private static final int MAGIC = 0x434f4453;
+    private static final int VERSION = 1;
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rw-------");
+
+    private final Path file;
+    private final long maxAgeMillis;
+    private final Map<Opaque, StoredSession> sessions = new ConcurrentHashMap<>();
+
+    public FileDtlsSessionStore(Path file, Duration maxAge) {
+        require(!maxAge.isNegative() && !maxAge.isZero());
+        this.file = file;
+        this.maxAgeMillis = maxAge.toMillis();
+        load();
+    }
+
+    @Override
+    public void put(Opaque key, byte[] session) {
+        long now = System.currentTimeMillis();
+        sessions.compute(key, (__, prev) -> new StoredSession(session, prev != null ? prev.storedAtMillis : now));
+    }
+
+    void put(Opaque key, byte[] session, long storedAtMillis) {
+        sessions.put(key, new StoredSession(session, storedAtMillis));
+    }
+
+    @Override
+    public byte[] get(Opaque key) {
+        StoredSession storedSession = sessions.get(key);
+        if (storedSession == null) {
+            return null;
+        }
+        if (storedSession.isExpired(System.currentTimeMillis() - maxAgeMillis)) {
+            sessions.remove(key, storedSession);
+            return null;
+        }
+        return storedSession.session;
+    }
+
+    @Override
+    public void remove(Opaque key) {
+        sessions.remove(key);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Removes sessions that are older than maximum age.
+     *
+     * @return number of removed sessions
+     */
+    public int evictExpired() {
+        long oldestAllowed = System.currentTimeMillis() - maxAgeMillis;
+        int removed = 0;
+        Iterator<StoredSession> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isExpired(oldestAllowed)) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Writes all not expired sessions to the file. File is replaced atomically, so that a crash while writing does not
+     * leave it corrupted. Sessions are secrets, so on file systems that support POSIX permissions the file is readable
+     * and writable by owner only.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        evictExpired();
+        Path tempFile = createTempFile();
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for (Map.Entry<Opaque, StoredSession> entry : sessions.entrySet()) {
+                    byte[] key = entry.getKey().getBytes();
+                    out.writeLong(entry.getValue().storedAtMillis);
+                    out.writeShort(key.length);
+                    out.write(key);
+                    out.writeInt(entry.getValue().session.length);
+                    out.write(entry.getValue().session);
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    private Path createTempFile() throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        String prefix = file.getFileName().toString();
+        if (Files.getFileStore(dir).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            return Files.createTempFile(dir, prefix, ".tmp", PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+        }
+        return Files.createTempFile(dir, prefix, ".tmp");
+    }
+
+    private void load() {
+        long oldestAllowed = System.currentTimeMillis() - maxAgeMillis;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LOGGER.warn("Ignoring DTLS session file with unknown format: {}", file);
+                return;
+            }
+            int expired = 0;
+            while (in.available() > 0) {
+                long storedAtMillis = in.readLong();
+                byte[] key = new byte[in.readUnsignedShort()];
+                in.readFully(key);
+                byte[] session = new byte[in.readInt()];
+                in.readFully(session);
+
+                if (storedAtMillis < oldestAllowed) {
+                    expired++;
+                } else {
+                    sessions.put(Opaque.of(key), new StoredSession(session, storedAtMillis));
+                }
+            }
+            LOGGER.info("Loaded {} DTLS sessions from {}, dropped {} expired", sessions.size(), file, expired);
+        } catch (NoSuchFileException e) {
+            LOGGER.debug("No DTLS session file: {}", file);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed to load DTLS sessions from {}: {}", file, e.toString());
+            sessions.clear();
+        }
+    }
+
+    private static class StoredSession {
+        private final byte[] session;
+        private final long storedAtMillis;
+
+        StoredSession(byte[] session, long storedAtMillis) {
+            this.session = session;
+            this.storedAtMillis = storedAtMillis;
+        }
+
+        boolean isExpired(long oldestAllowedMillis) {
+            return storedAtMillis < oldestAllowedMillis;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opencoap.transport.mbedtls;
+
+import static com.mbed.coap.utils.FutureHelpers.failedFuture;
+import static com.mbed.coap.utils.Validations.require;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import com.mbed.coap.transport.TransportExecutors;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import org.opencoap.ssl.transport.Packet;
+import org.opencoap.ssl.transport.Transport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Datagram transport to be put in front of DTLS server, that applies {@link DtlsHandshakeAdmission} to every received
+ * datagram. Reader thread drains underlying transport into queues, from which DTLS server receives in priority order:
+ * <ol>
+ * <li>records of established sessions</li>
+ * <li>admitted handshake records</li>
+ * <li>ClientHellos deferred by concurrent handshakes limit, once a handshake slot is free</li>
+ * </ol>
+ * So a flood of handshakes does not delay established sessions, and handshakes over the limit wait in queue instead of
+ * being processed at once. ClientHellos rejected by rate limit, and datagrams that do not fit into full queue, are
+ * dropped.
+ * <p/>
+ * Example:
+ * <pre>
+ * DtlsServer dtlsServer = new DtlsServer(HandshakeAdmissionTransport.create(DatagramChannelAdapter.open(5684), admission, 1000), sslConfig);
+ * </pre>
+ */
+public final class HandshakeAdmissionTransport implements Transport<Packet<ByteBuffer>> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HandshakeAdmissionTransport.class);
+    private static final Duration READ_TIMEOUT = Duration.ofMillis(100);
+
+    private final Transport<Packet<ByteBuffer>> transport;
+    private final DtlsHandshakeAdmission admission;
+    private final int maxQueueSize;
+    private final Executor readerExecutor = TransportExecutors.newWorker("dtls-admission");
+
+    // guarded by this
+    private final ArrayDeque<Packet<ByteBuffer>> establishedQueue = new ArrayDeque<>();
+    private final ArrayDeque<Packet<ByteBuffer>> handshakeQueue = new ArrayDeque<>();
+    private final ArrayDeque<Packet<ByteBuffer>> deferredQueue = new ArrayDeque<>();
+    private Packet<ByteBuffer> idlePacket;
+    private volatile boolean isRunning = true;
+
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Creates transport and starts reading from underlying transport.
+     *
+     * @param transport underlying datagram transport
+     * @param admission handshake admission
+     * @param maxQueueSize maximum number of datagrams in each of queues
+     */
+    public static HandshakeAdmissionTransport create(Transport<Packet<ByteBuffer>> transport, DtlsHandshakeAdmission admission, int maxQueueSize) {
+        HandshakeAdmissionTransport admissionTransport = new HandshakeAdmissionTransport(transport, admission, maxQueueSize);
+        TransportExecutors.loop(admissionTransport.readerExecutor, admissionTransport::readNext);
+        return admissionTransport;
+    }
+
+    private HandshakeAdmissionTransport(Transport<Packet<ByteBuffer>> transport, DtlsHandshakeAdmission admission, int maxQueueSize) {
+        require(maxQueueSize > 0);
+        this.transport = transport;
+        this.admission = admission;
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    private boolean readNext() {
+        try {
+            enqueue(transport.receive(READ_TIMEOUT).join());
+        } catch (Exception e) {
+            if (isRunning) {
+                LOGGER.warn("Failed to receive: {}", e.toString());
+            }
+        }
+        return isRunning;
+    }
+
+    synchronized void enqueue(Packet<ByteBuffer> packet) {
+        if (!packet.getBuffer().hasRemaining()) {
+            // underlying transport timed out, pass it on so that DTLS server can do its periodic work
+            idlePacket = packet;
+        } else {
+            switch (admission.admit(packet.getPeerAddress(), packet.getBuffer())) {
+                case ESTABLISHED:
+                    offer(establishedQueue, packet);
+                    break;
+                case HANDSHAKE:
+                    offer(handshakeQueue, packet);
+                    break;
+                case DEFERRED:
+                    offer(deferredQueue, packet);
+                    break;
+                default:
+                    dropped.increment();
+            }
+        }
+        notifyAll();
+    }
+
+    private void offer(ArrayDeque<Packet<ByteBuffer>> queue, Packet<ByteBuffer> packet) {
+        if (queue.size() < maxQueueSize) {
+            queue.add(packet);
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private Packet<ByteBuffer> next() {
+        if (!establishedQueue.isEmpty()) {
+            return establishedQueue.poll();
+        }
+        if (!handshakeQueue.isEmpty()) {
+            return handshakeQueue.poll();
+        }
+        while (!deferredQueue.isEmpty() && admission.canStartHandshake()) {
+            Packet<ByteBuffer> clientHello = deferredQueue.poll();
+            if (admission.admit(clientHello.getPeerAddress(), clientHello.getBuffer()) == DtlsHandshakeAdmission.Decision.REJECTED) {
+                dropped.increment();
+            } else {
+                return clientHello;
+            }
+        }
+        Packet<ByteBuffer> packet = idlePacket;
+        idlePacket = null;
+        return packet;
+    }
+
+    /**
+     * Returns next queued datagram, or timeout result of underlying transport when nothing is queued.
+     */
+    @Override
+    public synchronized CompletableFuture<Packet<ByteBuffer>> receive(Duration timeout) {
+        try {
+            while (isRunning) {
+                Packet<ByteBuffer> packet = next();
+                if (packet != null) {
+                    return completedFuture(packet);
+                }
+                // reader notifies at least every READ_TIMEOUT
+                wait(READ_TIMEOUT.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return failedFuture(new IOException("Transport closed"));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> send(Packet<ByteBuffer> packet) {
+        return transport.send(packet);
+    }
+
+    @Override
+    public int localPort() {
+        return transport.localPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        isRunning = false;
+        synchronized (this) {
+            notifyAll();
+        }
+        TransportExecutors.shutdown(readerExecutor);
+        transport.close();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public synchronized int queued() {
+        return establishedQueue.size() + handshakeQueue.size() + deferredQueue.size();
+    }
+}
@@ -17,47 +17,154 @@ package org.opencoap.transport.mbedtls;
 
 import com.mbed.coap.exception.CoapException;
 import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.packet.MessageType;
+import com.mbed.coap.packet.Opaque;
 import com.mbed.coap.transport.CoapReceiver;
 import com.mbed.coap.transport.CoapTransport;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import org.opencoap.ssl.SslConfig;
+import org.opencoap.ssl.SslSession;
 import org.opencoap.ssl.transport.DtlsTransmitter;
 import org.opencoap.ssl.transport.Packet;
 import org.opencoap.ssl.transport.Transport;
 import org.opencoap.ssl.transport.TransportKt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class MbedtlsCoapTransport implements CoapTransport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MbedtlsCoapTransport.class);
+    static final Duration DEFAULT_RESUME_TIMEOUT = Duration.ofSeconds(2);
     private final Transport<Packet<byte[]>> dtlsTransport;
+    private final DtlsTransmitter transmitter;
+    private final DtlsSessionStore sessionStore;
+    private final boolean sessionResumed;
 
     public MbedtlsCoapTransport(Transport<Packet<byte[]>> dtlsTransport) {
         this.dtlsTransport = dtlsTransport;
+        this.transmitter = null;
+        this.sessionStore = null;
+        this.sessionResumed = false;
     }
 
     public MbedtlsCoapTransport(DtlsTransmitter dtlsTransmitter) {
+        this(dtlsTransmitter, null, false);
+    }
+
+    private MbedtlsCoapTransport(DtlsTransmitter dtlsTransmitter, DtlsSessionStore sessionStore, boolean sessionResumed) {
         InetSocketAddress adr = dtlsTransmitter.getRemoteAddress();
 
         this.dtlsTransport = dtlsTransmitter.map(
                 bytes -> new Packet<>(bytes, adr),
                 Packet<byte[]>::getBuffer
         );
+        this.transmitter = dtlsTransmitter;
+        this.sessionStore = sessionStore;
+        this.sessionResumed = sessionResumed;
+    }
+
+    /**
+     * Creates client transport that resumes session from the store if one is found there, otherwise it makes a full
+     * handshake. Session is put back to the store, and store is flushed, when transport is stopped.
+     * <p/>
+     * Peer finds resumed session by connection id, or by client address when connection id was not negotiated, that
+     * is why a fixed listen port should be used then.
+     */
+    public static MbedtlsCoapTransport connect(InetSocketAddress destination, SslConfig config, DtlsSessionStore sessionStore) {
+        return connect(destination, config, 0, sessionStore);
+    }
+
+    public static MbedtlsCoapTransport connect(InetSocketAddress destination, SslConfig config, int listenPort, DtlsSessionStore sessionStore) {
+        return connect(destination, config, listenPort, sessionStore, DEFAULT_RESUME_TIMEOUT);
+    }
+
+    /**
+     * @param resumeTimeout time to wait for a peer to reply to ping over resumed session, when there is no reply, peer
+     * does not know the session anymore and a full handshake is made instead
+     */
+    static MbedtlsCoapTransport connect(InetSocketAddress destination, SslConfig config, int listenPort, DtlsSessionStore sessionStore, Duration resumeTimeout) {
+        Opaque key = sessionKey(destination);
+        DtlsTransmitter dtlsTransmitter = null;
+        byte[] storedSession = sessionStore.get(key);
+        if (storedSession != null) {
+            try {
+                SslSession session = config.loadSession(new byte[0], storedSession, destination);
+                dtlsTransmitter = DtlsTransmitter.create(destination, session, listenPort);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Could not resume DTLS session with {}: {}", destination, e.toString());
+            }
+            if (dtlsTransmitter != null && !isAlive(dtlsTransmitter, destination, resumeTimeout)) {
+                LOGGER.info("Peer {} does not know resumed DTLS session, making full handshake", destination);
+                closeQuietly(dtlsTransmitter);
+                dtlsTransmitter = null;
+            }
+        }
+        if (dtlsTransmitter != null) {
+            LOGGER.debug("Resumed DTLS session with {}", destination);
+            return new MbedtlsCoapTransport(dtlsTransmitter, sessionStore, true);
+        }
+
+        // new session starts its age from now
+        sessionStore.remove(key);
+        dtlsTransmitter = DtlsTransmitter.connect(destination, config, listenPort).join();
+        return new MbedtlsCoapTransport(dtlsTransmitter, sessionStore, false);
+    }
+
+    // CoAP ping (empty confirmable message), peer replies with reset only when it can decrypt it
+    private static boolean isAlive(DtlsTransmitter dtlsTransmitter, InetSocketAddress destination, Duration timeout) {
+        CoapPacket ping = new CoapPacket(null, MessageType.Confirmable, destination);
+        ping.setMessageId(ThreadLocalRandom.current().nextInt(0x10000));
+
+        dtlsTransmitter.send(ping.toByteArray());
+        return dtlsTransmitter.receive(timeout)
+                .handle((bytes, ex) -> ex == null && bytes.length > 0)
+                .join();
+    }
+
+    private static void closeQuietly(Transport<?> transport) {
+        try {
+            transport.close();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to close transport: {}", e.toString());
+        }
+    }
+
+    static Opaque sessionKey(InetSocketAddress address) {
+        return Opaque.of(address.getHostString() + ":" + address.getPort());
     }
 
     @Override
     public void start(CoapReceiver receiver) {
-        TransportKt.listen(dtlsTransport, packet -> {
-            try {
-                if (packet.getBuffer().length > 0) {
-                    receiver.handle(CoapPacket.read(packet.getPeerAddress(), packet.getBuffer()));
-                }
-            } catch (CoapException e) {
-                throw new RuntimeException(e);
+        TransportKt.listen(dtlsTransport, packet -> receive(receiver, packet));
+    }
+
+    static void receive(CoapReceiver receiver, Packet<byte[]> packet) {
+        try {
+            if (packet.getBuffer().length > 0) {
+                receiver.handle(CoapPacket.read(packet.getPeerAddress(), packet.getBuffer()));
             }
-        });
+        } catch (CoapException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    boolean isSessionResumed() {
+        return sessionResumed;
     }
 
     @Override
     public void stop() {
+        if (sessionStore != null) {
+            sessionStore.put(sessionKey(transmitter.getRemoteAddress()), transmitter.saveSession());
+            try {
+                sessionStore.flush();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to persist DTLS sessions: {}", e.toString());
+            }
+        }
         try {
             dtlsTransport.close();
         } catch (IOException e) {
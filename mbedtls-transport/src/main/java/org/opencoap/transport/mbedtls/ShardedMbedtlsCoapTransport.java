@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opencoap.transport.mbedtls;
+
+import static com.mbed.coap.utils.FutureHelpers.failedFuture;
+import static com.mbed.coap.utils.Validations.require;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.transport.CoapReceiver;
+import com.mbed.coap.transport.CoapTransport;
+import com.mbed.coap.utils.Timer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import org.opencoap.ssl.transport.Packet;
+import org.opencoap.ssl.transport.Transport;
+import org.opencoap.ssl.transport.TransportKt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DTLS transport that spreads sessions over several independent DTLS transports (shards). Each shard receives,
+ * decrypts and handles packets of its own peers on its own thread, so symmetric crypto is not bound to a single core.
+ * <p/>
+ * Limitation: DtlsServer (kotlin-mbedtls 1.6.0) binds its own socket and does not allow to set SO_REUSEPORT, so every
+ * shard listens on its own port and peers must be spread between those ports externally (for example by load balancer
+ * or DNS). {@link #getLocalSocketAddress()} returns port of the first shard.
+ * <p/>
+ * Outgoing packet is encrypted and sent by the shard that owns peer's session, that is the one that received from that
+ * peer. Owner is kept for as long as the session lives in its shard: it is forgotten when {@link #sessionClosed} is
+ * called, when the shard does not have the session anymore (send returns false), or when peer is silent for longer than
+ * session expiration of shards. Sending to a peer without owner fails, as no shard has a session with it.
+ */
+public class ShardedMbedtlsCoapTransport implements CoapTransport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardedMbedtlsCoapTransport.class);
+    public static final Duration DEFAULT_SESSION_EXPIRATION = Duration.ofMinutes(10);
+    private static final Timer SWEEP_TIMER = Timer.toTimer(Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "dtls-shard-owners");
+        thread.setDaemon(true);
+        return thread;
+    }));
+
+    private final List<Transport<Packet<byte[]>>> shards;
+    private final ConcurrentHashMap<InetSocketAddress, Owner> owners = new ConcurrentHashMap<>();
+    private final long sessionExpirationMillis;
+    private final Timer timer;
+    private volatile Runnable cancelSweep;
+
+    public ShardedMbedtlsCoapTransport(List<? extends Transport<Packet<byte[]>>> shards) {
+        this(shards, DEFAULT_SESSION_EXPIRATION);
+    }
+
+    /**
+     * @param shards DTLS transports, each listening on its own port
+     * @param sessionExpiration session expiration configured for shards, owner of a peer that was silent for that long
+     * is forgotten
+     */
+    public ShardedMbedtlsCoapTransport(List<? extends Transport<Packet<byte[]>>> shards, Duration sessionExpiration) {
+        this(shards, sessionExpiration, SWEEP_TIMER);
+    }
+
+    ShardedMbedtlsCoapTransport(List<? extends Transport<Packet<byte[]>>> shards, Duration sessionExpiration, Timer timer) {
+        require(!shards.isEmpty());
+        require(!sessionExpiration.isNegative() && !sessionExpiration.isZero());
+        this.shards = new ArrayList<>(shards);
+        this.sessionExpirationMillis = sessionExpiration.toMillis();
+        this.timer = timer;
+    }
+
+    @Override
+    public void start(CoapReceiver receiver) {
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            TransportKt.listen(shards.get(shard), packet -> {
+                updateOwner(packet.getPeerAddress(), shard, System.currentTimeMillis());
+                MbedtlsCoapTransport.receive(receiver, packet);
+            });
+        }
+        scheduleSweep();
+    }
+
+    void updateOwner(InetSocketAddress peer, int shard, long nowMillis) {
+        Owner owner = owners.get(peer);
+        if (owner == null || owner.shard != shard) {
+            owners.put(peer, new Owner(shard, nowMillis));
+        } else {
+            owner.lastSeenMillis = nowMillis;
+        }
+    }
+
+    private void scheduleSweep() {
+        cancelSweep = timer.schedule(Duration.ofMillis(sessionExpirationMillis / 2), () -> {
+            removeExpired(System.currentTimeMillis());
+            scheduleSweep();
+        });
+    }
+
+    /**
+     * Forgets owners of sessions that were silent for longer than session expiration, runs on timer thread.
+     */
+    void removeExpired(long nowMillis) {
+        long oldestAllowed = nowMillis - sessionExpirationMillis;
+        owners.values().removeIf(owner -> owner.lastSeenMillis < oldestAllowed);
+    }
+
+    /**
+     * Forgets peer's owner, should be called when peer's session is closed by its shard.
+     *
+     * @param peer peer address
+     */
+    public void sessionClosed(InetSocketAddress peer) {
+        owners.remove(peer);
+    }
+
+    int ownersCount() {
+        return owners.size();
+    }
+
+    @Override
+    public void stop() {
+        Runnable cancel = cancelSweep;
+        if (cancel != null) {
+            cancel.run();
+        }
+        for (Transport<Packet<byte[]>> shard : shards) {
+            try {
+                shard.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close DTLS shard: {}", e.toString());
+            }
+        }
+        owners.clear();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sendPacket(CoapPacket coapPacket) {
+        InetSocketAddress peer = coapPacket.getRemoteAddress();
+        Owner owner = owners.get(peer);
+        if (owner == null) {
+            return failedFuture(new IOException("No DTLS session with " + peer));
+        }
+        return shards.get(owner.shard).send(new Packet<>(coapPacket.toByteArray(), peer))
+                .whenComplete((sent, ex) -> {
+                    if (Boolean.FALSE.equals(sent)) {
+                        // shard does not have the session anymore
+                        owners.remove(peer, owner);
+                    }
+                });
+    }
+
+    @Override
+    public InetSocketAddress getLocalSocketAddress() {
+        return new InetSocketAddress("0.0." + "0.0", shards.get(0).localPort());
+    }
+
+    public int shardsCount() {
+        return shards.size();
+    }
+
+    private static class Owner {
+        private final int shard;
+        private volatile long lastSeenMillis;
+
+        Owner(int shard, long lastSeenMillis) {
+            this.shard = shard;
+            this.lastSeenMillis = lastSeenMillis;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opencoap.transport.mbedtls;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.opencoap.transport.mbedtls.DtlsHandshakeAdmission.Decision.*;
+import com.mbed.coap.packet.Opaque;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class DtlsHandshakeAdmissionTest {
+
+    private static final byte[] CLIENT_HELLO = clientHello(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+    private static final byte[] CLIENT_HELLO_NO_COOKIE = clientHello(new byte[0]);
+    private static final byte[] FINISHED = Opaque.decodeHex("16fefd00010000000000000010aabbccdd").getBytes();
+    private static final byte[] APP_DATA = Opaque.decodeHex("17fefd00010000000000010010aabbccdd").getBytes();
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long start = System.nanoTime();
+    private final DtlsHandshakeAdmission admission = new DtlsHandshakeAdmission(3, 2, 1, 2, Duration.ofSeconds(10), Duration.ofSeconds(60));
+
+    @Test
+    void shouldRecognizeClientHello() {
+        assertTrue(DtlsHandshakeAdmission.isClientHello(CLIENT_HELLO, 0, CLIENT_HELLO.length));
+        assertTrue(DtlsHandshakeAdmission.isClientHello(CLIENT_HELLO_NO_COOKIE, 0, CLIENT_HELLO_NO_COOKIE.length));
+        assertFalse(DtlsHandshakeAdmission.isClientHello(FINISHED, 0, FINISHED.length));
+        assertFalse(DtlsHandshakeAdmission.isClientHello(APP_DATA, 0, APP_DATA.length));
+        assertFalse(DtlsHandshakeAdmission.isClientHello(CLIENT_HELLO, 0, 5));
+
+        assertEquals(8, DtlsHandshakeAdmission.clientHelloCookieLength(ByteBuffer.wrap(CLIENT_HELLO)));
+        assertEquals(0, DtlsHandshakeAdmission.clientHelloCookieLength(ByteBuffer.wrap(CLIENT_HELLO_NO_COOKIE)));
+        assertEquals(-1, DtlsHandshakeAdmission.clientHelloCookieLength(ByteBuffer.wrap(APP_DATA)));
+    }
+
+    @Test
+    void shouldNotLimitClientHelloWithoutCookie() {
+        // spoofed flood of first flight
+        for (int i = 0; i < 100; i++) {
+            assertEquals(HANDSHAKE, admit(peer("10." + i + ".0.1"), CLIENT_HELLO_NO_COOKIE, 0));
+        }
+
+        assertEquals(0, admission.currentHandshakes());
+        assertEquals(HANDSHAKE, admit(peer("10.0.1.1"), CLIENT_HELLO, 0));
+    }
+
+    @Test
+    void shouldNotDemoteEstablishedSession_whenClientHelloArrives() {
+        admit(peer("10.0.1.1"), CLIENT_HELLO, 0);
+        assertEquals(ESTABLISHED, admit(peer("10.0.1.1"), APP_DATA, 0));
+
+        // spoofed
+        admit(peer("10.0.1.1"), CLIENT_HELLO_NO_COOKIE, 0);
+        admit(peer("10.0.1.1"), CLIENT_HELLO, 0);
+
+        assertEquals(ESTABLISHED, admit(peer("10.0.1.1"), APP_DATA, SECOND));
+    }
+
+    @Test
+    void shouldCapConcurrentHandshakes() {
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(HANDSHAKE, admit(peer("10.0." + i + ".1"), CLIENT_HELLO, 0));
+        }
+
+        assertEquals(DEFERRED, admit(peer("10.0.4.1"), CLIENT_HELLO, 0));
+        assertEquals(1, admission.deferredByConcurrency());
+        assertEquals(3, admission.currentHandshakes());
+        assertFalse(admission.canStartHandshake(start));
+
+        // retransmission of admitted handshake is not limited
+        assertEquals(HANDSHAKE, admit(peer("10.0.1.1"), CLIENT_HELLO, 0));
+        assertEquals(HANDSHAKE, admit(peer("10.0.1.1"), FINISHED, 0));
+
+        // finished handshake frees a slot
+        assertEquals(ESTABLISHED, admit(peer("10.0.1.1"), APP_DATA, 0));
+        assertTrue(admission.canStartHandshake(start));
+        assertEquals(HANDSHAKE, admit(peer("10.0.4.1"), CLIENT_HELLO, 0));
+        assertEquals(4, admission.admittedHandshakes());
+    }
+
+    @Test
+    void shouldExpireStaleHandshakes() {
+        for (int i = 1; i <= 3; i++) {
+            admit(peer("10.0." + i + ".1"), CLIENT_HELLO, 0);
+        }
+
+        assertEquals(HANDSHAKE, admit(peer("10.0.4.1"), CLIENT_HELLO, 11 * SECOND));
+        assertEquals(1, admission.currentHandshakes());
+    }
+
+    @Test
+    void shouldRateLimitHandshakesPerPrefix() {
+        DtlsHandshakeAdmission admission = new DtlsHandshakeAdmission(100, 100, 1, 2, Duration.ofSeconds(10), Duration.ofSeconds(60));
+
+        assertEquals(HANDSHAKE, admission.admit(peer("10.0.0.1"), ByteBuffer.wrap(CLIENT_HELLO), start));
+        assertEquals(HANDSHAKE, admission.admit(peer("10.0.0.2"), ByteBuffer.wrap(CLIENT_HELLO), start));
+        assertEquals(REJECTED, admission.admit(peer("10.0.0.3"), ByteBuffer.wrap(CLIENT_HELLO), start));
+        // other prefix
+        assertEquals(HANDSHAKE, admission.admit(peer("10.0.1.3"), ByteBuffer.wrap(CLIENT_HELLO), start));
+        // refilled
+        assertEquals(HANDSHAKE, admission.admit(peer("10.0.0.3"), ByteBuffer.wrap(CLIENT_HELLO), start + SECOND));
+
+        assertEquals(1, admission.rejectedByRate());
+    }
+
+    @Test
+    void shouldAlwaysAdmitEstablishedSessions() {
+        assertEquals(HANDSHAKE, admit(peer("10.0.0.1"), CLIENT_HELLO, 0));
+        assertEquals(ESTABLISHED, admit(peer("10.0.0.1"), APP_DATA, 0));
+
+        // handshake flood
+        for (int i = 0; i < 100; i++) {
+            admit(peer("10.1." + i + ".1"), CLIENT_HELLO, 0);
+        }
+
+        assertEquals(ESTABLISHED, admit(peer("10.0.0.1"), APP_DATA, SECOND));
+        assertEquals(ESTABLISHED, admit(peer("10.0.0.1"), FINISHED, SECOND));
+        assertEquals(1, admission.establishedSessions());
+        assertEquals(3, admission.establishedRecords());
+        assertEquals(97, admission.deferredByConcurrency());
+    }
+
+    @Test
+    void shouldForgetIdleAndClosedSessions() {
+        admit(peer("10.0.0.1"), CLIENT_HELLO, 0);
+        admit(peer("10.0.0.2"), CLIENT_HELLO, 0);
+        assertEquals(ESTABLISHED, admit(peer("10.0.0.1"), APP_DATA, 0));
+        assertEquals(ESTABLISHED, admit(peer("10.0.0.2"), APP_DATA, 0));
+
+        assertEquals(HANDSHAKE, admit(peer("10.0.0.1"), FINISHED, 61 * SECOND));
+
+        admission.sessionClosed(peer("10.0.0.2"));
+        assertEquals(HANDSHAKE, admit(peer("10.0.0.2"), FINISHED, SECOND));
+    }
+
+    @Test
+    void shouldNotTrustApplicationData_withoutAdmittedHandshake() {
+        // spoofed records
+        for (int i = 0; i < 100; i++) {
+            assertEquals(HANDSHAKE, admit(peer("10.2." + i + ".1"), APP_DATA, 0));
+        }
+
+        assertEquals(0, admission.establishedSessions());
+        assertEquals(0, admission.establishedRecords());
+    }
+
+    @Test
+    void shouldBoundEstablishedSessions() {
+        for (int i = 1; i <= 3; i++) {
+            admit(peer("10.0." + i + ".1"), CLIENT_HELLO, 0);
+        }
+        assertEquals(ESTABLISHED, admit(peer("10.0.1.1"), APP_DATA, 0));
+        assertEquals(ESTABLISHED, admit(peer("10.0.2.1"), APP_DATA, 0));
+
+        // over the limit, passed without priority
+        assertEquals(HANDSHAKE, admit(peer("10.0.3.1"), APP_DATA, 0));
+        assertEquals(2, admission.establishedSessions());
+    }
+
+    @Test
+    void shouldSweepIdleSessions_onEveryPath() {
+        admit(peer("10.0.1.1"), CLIENT_HELLO, 0);
+        admit(peer("10.0.1.1"), APP_DATA, 0);
+        assertEquals(1, admission.establishedSessions());
+
+        // only records of other sessions, no ClientHello
+        admit(peer("10.0.2.1"), FINISHED, 61 * SECOND);
+
+        assertEquals(0, admission.establishedSessions());
+    }
+
+    @Test
+    void shouldReadRecordHeaderFromByteBuffer() {
+        ByteBuffer buffer = ByteBuffer.wrap(CLIENT_HELLO);
+
+        assertEquals(HANDSHAKE, admission.admit(peer("10.0.1.1"), buffer));
+        assertEquals(0, buffer.position());
+        assertEquals(1, admission.currentHandshakes());
+    }
+
+    @Test
+    void shouldUsePrefixOfAddress() {
+        assertEquals(Opaque.ofBytes(10, 1, 2), DtlsHandshakeAdmission.prefixOf(peer("10.1.2.3")));
+        assertEquals(Opaque.decodeHex("20010db8000001"), DtlsHandshakeAdmission.prefixOf(peer("2001:db8:0:1ff::1")));
+    }
+
+    private DtlsHandshakeAdmission.Decision admit(InetSocketAddress peer, byte[] record, long offsetNanos) {
+        return admission.admit(peer, ByteBuffer.wrap(record), start + offsetNanos);
+    }
+
+    private static byte[] clientHello(byte[] cookie) {
+        int bodyLength = 2 + 32 + 1 + 1 + cookie.length + 4 + 2;
+        ByteBuffer buffer = ByteBuffer.allocate(13 + 12 + bodyLength);
+        // record header: handshake, DTLS 1.2, epoch 0, sequence 0
+        buffer.put((byte) 22).putShort((short) 0xfefd).putShort((short) 0).putShort((short) 0).putInt(0).putShort((short) (12 + bodyLength));
+        // handshake header: client_hello, length, message_seq, fragment_offset, fragment_length
+        buffer.put((byte) 1).put((byte) 0).putShort((short) bodyLength).putShort((short) 0).put((byte) 0).putShort((short) 0).put((byte) 0).putShort((short) bodyLength);
+        // client_version, random, session_id, cookie, cipher_suites, compression_methods
+        buffer.putShort((short) 0xfefd).put(new byte[32]).put((byte) 0).put((byte) cookie.length).put(cookie);
+        buffer.putShort((short) 2).putShort((short) 0xc0a8).put((byte) 1).put((byte) 0);
+        return buffer.array();
+    }
+
+    private static InetSocketAddress peer(String address) {
+        return new InetSocketAddress(address, 5684);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opencoap.transport.mbedtls;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import com.mbed.coap.packet.Opaque;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileDtlsSessionStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldReloadSessionsFromFile() throws IOException {
+        Path file = tempDir.resolve("sessions");
+        FileDtlsSessionStore store = new FileDtlsSessionStore(file, Duration.ofHours(1));
+        store.put(Opaque.of("dev-1"), new byte[]{1, 2, 3});
+        store.put(Opaque.of("dev-2"), new byte[300]);
+        store.flush();
+
+        FileDtlsSessionStore reloaded = new FileDtlsSessionStore(file, Duration.ofHours(1));
+
+        assertEquals(2, reloaded.size());
+        assertArrayEquals(new byte[]{1, 2, 3}, reloaded.get(Opaque.of("dev-1")));
+        assertArrayEquals(new byte[300], reloaded.get(Opaque.of("dev-2")));
+        assertNull(reloaded.get(Opaque.of("dev-3")));
+    }
+
+    @Test
+    void shouldDropExpiredSessions() throws IOException {
+        Path file = tempDir.resolve("sessions");
+        FileDtlsSessionStore store = new FileDtlsSessionStore(file, Duration.ofHours(1));
+        long now = System.currentTimeMillis();
+        store.put(Opaque.of("fresh"), new byte[]{1}, now - 1000);
+        store.put(Opaque.of("old"), new byte[]{2}, now - Duration.ofHours(2).toMillis());
+
+        assertNull(store.get(Opaque.of("old")));
+        store.put(Opaque.of("old-2"), new byte[]{3}, now - Duration.ofHours(2).toMillis());
+        assertEquals(1, store.evictExpired());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void shouldDropSessionsThatExpiredWhileStored() throws IOException {
+        Path file = tempDir.resolve("sessions");
+        FileDtlsSessionStore store = new FileDtlsSessionStore(file, Duration.ofHours(1));
+        long now = System.currentTimeMillis();
+        store.put(Opaque.of("fresh"), new byte[]{1}, now);
+        store.put(Opaque.of("almost-expired"), new byte[]{2}, now - Duration.ofMinutes(59).toMillis());
+        store.flush();
+
+        FileDtlsSessionStore reloaded = new FileDtlsSessionStore(file, Duration.ofMinutes(30));
+
+        assertEquals(1, reloaded.size());
+        assertNotNull(reloaded.get(Opaque.of("fresh")));
+    }
+
+    @Test
+    void shouldStartEmpty_whenFileIsMissingOrCorrupted() throws IOException {
+        Path file = tempDir.resolve("sessions");
+        assertEquals(0, new FileDtlsSessionStore(file, Duration.ofHours(1)).size());
+
+        Files.write(file, new byte[]{0x43, 0x4f, 0x44, 0x53, 0, 0, 0, 1, 0, 0});
+        assertEquals(0, new FileDtlsSessionStore(file, Duration.ofHours(1)).size());
+    }
+
+    @Test
+    void shouldKeepOriginalStoreTime_whenSessionIsPutAgain() throws IOException {
+        Path file = tempDir.resolve("sessions");
+        FileDtlsSessionStore store = new FileDtlsSessionStore(file, Duration.ofHours(1));
+        store.put(Opaque.of("dev-1"), new byte[]{1}, System.currentTimeMillis() - Duration.ofMinutes(50).toMillis());
+
+        // resumed session is stored again
+        store.put(Opaque.of("dev-1"), new byte[]{2});
+        store.flush();
+
+        FileDtlsSessionStore reloaded = new FileDtlsSessionStore(file, Duration.ofMinutes(30));
+        assertNull(reloaded.get(Opaque.of("dev-1")));
+        assertArrayEquals(new byte[]{2}, store.get(Opaque.of("dev-1")));
+    }
+
+    @Test
+    void shouldRemoveSession() {
+        FileDtlsSessionStore store = new FileDtlsSessionStore(tempDir.resolve("sessions"), Duration.ofHours(1));
+        store.put(Opaque.of("dev-1"), new byte[]{1});
+
+        store.remove(Opaque.of("dev-1"));
+
+        assertNull(store.get(Opaque.of("dev-1")));
+    }
+
+    @Test
+    void shouldFlushConcurrently() throws Exception {
+        Path file = tempDir.resolve("sessions");
+        FileDtlsSessionStore store1 = new FileDtlsSessionStore(file, Duration.ofHours(1));
+        FileDtlsSessionStore store2 = new FileDtlsSessionStore(file, Duration.ofHours(1));
+        store1.put(Opaque.of("dev-1"), new byte[1000]);
+        store2.put(Opaque.of("dev-1"), new byte[1000]);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            FileDtlsSessionStore store = (i % 2 == 0) ? store1 : store2;
+            results.add(executor.submit(() -> {
+                store.flush();
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        assertArrayEquals(new byte[1000], new FileDtlsSessionStore(file, Duration.ofHours(1)).get(Opaque.of("dev-1")));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void shouldCreateFileReadableByOwnerOnly() throws IOException {
+        Path file = tempDir.resolve("sessions");
+        assumeTrue(Files.getFileStore(tempDir).supportsFileAttributeView(PosixFileAttributeView.class));
+        FileDtlsSessionStore store = new FileDtlsSessionStore(file, Duration.ofHours(1));
+        store.put(Opaque.of("dev-1"), new byte[]{1});
+
+        store.flush();
+
+        assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(file));
+    }
+}
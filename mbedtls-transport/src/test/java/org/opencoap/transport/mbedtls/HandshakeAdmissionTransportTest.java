@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opencoap.transport.mbedtls;
+
+import static java.util.concurrent.CompletableFuture.*;
+import static org.junit.jupiter.api.Assertions.*;
+import com.mbed.coap.packet.Opaque;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.opencoap.ssl.transport.Packet;
+import org.opencoap.ssl.transport.Transport;
+
+class HandshakeAdmissionTransportTest {
+
+    // ClientHello with 1-byte cookie
+    private static final byte[] CLIENT_HELLO = Opaque.decodeHex("16fefd000000000000000000370100002b000000000000002bfefd"
+            + "0000000000000000000000000000000000000000000000000000000000000000" + "0001aa" + "0002c0a80100").getBytes();
+    private static final byte[] APP_DATA = Opaque.decodeHex("17fefd00010000000000010010aabbccdd").getBytes();
+
+    private final DtlsHandshakeAdmission admission = new DtlsHandshakeAdmission(2, 100, 1, 1, Duration.ofSeconds(10), Duration.ofSeconds(60));
+    private final HandshakeAdmissionTransport transport = HandshakeAdmissionTransport.create(new IdleTransport(), admission, 10);
+
+    @AfterEach
+    void tearDown() throws IOException {
+        transport.close();
+    }
+
+    @Test
+    void shouldPrioritizeEstablishedSessions_andQueueDeferredHandshakes() {
+        transport.enqueue(packet(CLIENT_HELLO, "10.0.1.1"));
+        assertEquals(peer("10.0.1.1"), receive().getPeerAddress());
+
+        transport.enqueue(packet(CLIENT_HELLO, "10.0.2.1"));
+        transport.enqueue(packet(CLIENT_HELLO, "10.0.3.1"));
+        transport.enqueue(packet(APP_DATA, "10.0.1.1"));
+
+        // established session first, even though it was received last
+        Packet<ByteBuffer> packet = receive();
+        assertEquals(peer("10.0.1.1"), packet.getPeerAddress());
+        assertEquals(APP_DATA.length, packet.getBuffer().remaining());
+        assertEquals(peer("10.0.2.1"), receive().getPeerAddress());
+        // deferred handshake, slot was freed by established session
+        assertEquals(peer("10.0.3.1"), receive().getPeerAddress());
+
+        assertEquals(1, admission.deferredByConcurrency());
+        assertEquals(0, transport.dropped());
+        assertEquals(0, transport.queued());
+    }
+
+    @Test
+    void shouldDropRateLimitedHandshakes() {
+        transport.enqueue(packet(CLIENT_HELLO, "10.0.1.1"));
+        transport.enqueue(packet(CLIENT_HELLO, "10.0.1.2"));
+
+        assertEquals(peer("10.0.1.1"), receive().getPeerAddress());
+        assertEquals(1, transport.dropped());
+        assertEquals(0, transport.queued());
+    }
+
+    @Test
+    void shouldPassIdleResultOfUnderlyingTransport() {
+        assertFalse(receive().getBuffer().hasRemaining());
+    }
+
+    private Packet<ByteBuffer> receive() {
+        return transport.receive(Duration.ofSeconds(1)).join();
+    }
+
+    private static Packet<ByteBuffer> packet(byte[] data, String address) {
+        return new Packet<>(ByteBuffer.wrap(data), peer(address));
+    }
+
+    private static InetSocketAddress peer(String address) {
+        return new InetSocketAddress(address, 5684);
+    }
+
+    private static class IdleTransport implements Transport<Packet<ByteBuffer>> {
+        @Override
+        public CompletableFuture<Packet<ByteBuffer>> receive(Duration timeout) {
+            try {
+                Thread.sleep(timeout.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return completedFuture(new Packet<>(ByteBuffer.allocate(0), new InetSocketAddress(0)));
+        }
+
+        @Override
+        public CompletableFuture<Boolean> send(Packet<ByteBuffer> packet) {
+            return completedFuture(true);
+        }
+
+        @Override
+        public int localPort() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -29,11 +29,15 @@ import com.mbed.coap.server.CoapServer;
 import com.mbed.coap.server.CoapServerBuilder;
 import com.mbed.coap.server.RouterService;
 import java.io.IOException;
+import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Collections;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.opencoap.ssl.SslConfig;
 import org.opencoap.ssl.transport.DtlsServer;
 import org.opencoap.ssl.transport.DtlsTransmitter;
@@ -104,4 +108,73 @@ class MbedtlsCoapTransportTest {
 
         coapClient.close();
     }
+
+    @Test
+    void shouldStoreSessionWhenStopped(@TempDir Path tempDir) throws IOException, CoapException {
+        // given
+        FileDtlsSessionStore sessionStore = new FileDtlsSessionStore(tempDir.resolve("sessions"), Duration.ofHours(1));
+        CoapClient coapClient = CoapClientBuilder.newBuilder(srvAddress)
+                .transport(MbedtlsCoapTransport.connect(srvAddress, clientConf, sessionStore))
+                .build();
+        assertEquals(ok("OK!"), coapClient.sendSync(get("/test")));
+
+        // when
+        coapClient.close();
+
+        // then
+        assertNotNull(sessionStore.get(MbedtlsCoapTransport.sessionKey(srvAddress)));
+    }
+
+    @Test
+    void shouldResumeStoredSession(@TempDir Path tempDir) throws IOException, CoapException {
+        // given, session stored by previous client run
+        Path file = tempDir.resolve("sessions");
+        int clientPort = freePort();
+        CoapClient coapClient = CoapClientBuilder.newBuilder(srvAddress)
+                .transport(MbedtlsCoapTransport.connect(srvAddress, clientConf, clientPort, new FileDtlsSessionStore(file, Duration.ofHours(1))))
+                .build();
+        assertEquals(ok("OK!"), coapClient.sendSync(get("/test")));
+        coapClient.close();
+
+        // when, client restarts
+        MbedtlsCoapTransport clientTrans = MbedtlsCoapTransport.connect(srvAddress, clientConf, clientPort, new FileDtlsSessionStore(file, Duration.ofHours(1)));
+        coapClient = CoapClientBuilder.newBuilder(srvAddress).transport(clientTrans).build();
+
+        // then
+        assertTrue(clientTrans.isSessionResumed());
+        assertEquals(ok("OK!"), coapClient.sendSync(get("/test")));
+        coapClient.close();
+    }
+
+    @Test
+    void shouldMakeFullHandshake_whenPeerDoesNotKnowStoredSession(@TempDir Path tempDir) throws IOException, CoapException {
+        // given, session of other server is stored for this one
+        DtlsServer otherDtlsServer = DtlsServer.create(serverConf);
+        CoapServer otherServer = CoapServerBuilder.newBuilder()
+                .transport(new MbedtlsCoapTransport(otherDtlsServer))
+                .route(new RouterService.RouteBuilder().get("/test", it -> completedFuture(ok("OTHER"))))
+                .build();
+        otherServer.start();
+        InetSocketAddress otherAddress = new InetSocketAddress("localhost", otherServer.getLocalSocketAddress().getPort());
+
+        DtlsTransmitter otherTransmitter = DtlsTransmitter.connect(otherAddress, clientConf).join();
+        FileDtlsSessionStore sessionStore = new FileDtlsSessionStore(tempDir.resolve("sessions"), Duration.ofHours(1));
+        sessionStore.put(MbedtlsCoapTransport.sessionKey(srvAddress), otherTransmitter.saveSession());
+        otherServer.stop();
+
+        // when
+        MbedtlsCoapTransport clientTrans = MbedtlsCoapTransport.connect(srvAddress, clientConf, 0, sessionStore, Duration.ofMillis(500));
+        CoapClient coapClient = CoapClientBuilder.newBuilder(srvAddress).transport(clientTrans).build();
+
+        // then
+        assertFalse(clientTrans.isSessionResumed());
+        assertEquals(ok("OK!"), coapClient.sendSync(get("/test")));
+        coapClient.close();
+    }
+
+    private static int freePort() throws IOException {
+        try (DatagramSocket socket = new DatagramSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
 }
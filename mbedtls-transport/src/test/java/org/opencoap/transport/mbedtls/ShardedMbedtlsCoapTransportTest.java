@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opencoap.transport.mbedtls;
+
+import static com.mbed.coap.packet.CoapRequest.*;
+import static com.mbed.coap.packet.CoapResponse.*;
+import static com.mbed.coap.packet.Opaque.of;
+import static java.util.concurrent.CompletableFuture.*;
+import static org.junit.jupiter.api.Assertions.*;
+import com.mbed.coap.client.CoapClient;
+import com.mbed.coap.client.CoapClientBuilder;
+import com.mbed.coap.exception.CoapException;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.packet.Code;
+import com.mbed.coap.packet.MessageType;
+import com.mbed.coap.server.CoapServer;
+import com.mbed.coap.server.CoapServerBuilder;
+import com.mbed.coap.server.RouterService;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opencoap.ssl.SslConfig;
+import org.opencoap.ssl.transport.DtlsServer;
+import org.opencoap.ssl.transport.DtlsTransmitter;
+import org.opencoap.ssl.transport.Packet;
+import org.opencoap.ssl.transport.Transport;
+
+class ShardedMbedtlsCoapTransportTest {
+
+    private SslConfig clientConf = SslConfig.client(of("test").getBytes(), of("secret").getBytes(), Collections.emptyList());
+    private SslConfig serverConf = SslConfig.server(of("test").getBytes(), of("secret").getBytes(), Collections.emptyList());
+
+    private DtlsServer shard0;
+    private DtlsServer shard1;
+    private ShardedMbedtlsCoapTransport transport;
+    private CoapServer coapServer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // every shard listens on its own port
+        shard0 = DtlsServer.create(serverConf);
+        shard1 = DtlsServer.create(serverConf);
+        transport = new ShardedMbedtlsCoapTransport(Arrays.asList(shard0, shard1));
+        coapServer = CoapServerBuilder.newBuilder()
+                .transport(transport)
+                .route(new RouterService.RouteBuilder()
+                        .get("/test", it -> completedFuture(ok("OK!")))
+                )
+                .build();
+        coapServer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        coapServer.stop();
+    }
+
+    @Test
+    void shouldRespondThroughShardThatOwnsSession() throws IOException, CoapException {
+        CoapClient client0 = connect(new InetSocketAddress("localhost", shard0.localPort()));
+        CoapClient client1 = connect(new InetSocketAddress("localhost", shard1.localPort()));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(ok("OK!"), client0.sendSync(get("/test")));
+            assertEquals(ok("OK!"), client1.sendSync(get("/test")));
+        }
+
+        client0.close();
+        client1.close();
+    }
+
+    @Test
+    void shouldFailSend_whenNoShardOwnsPeer() {
+        CoapPacket packet = new CoapPacket(Code.C205_CONTENT, MessageType.NonConfirmable, new InetSocketAddress("localhost", 5684));
+
+        CompletableFuture<Boolean> result = transport.sendPacket(packet);
+
+        assertTrue(result.isCompletedExceptionally());
+        assertThrows(CompletionException.class, result::join);
+    }
+
+    @Test
+    void shouldForgetOwner_whenShardDoesNotHaveSession() {
+        FakeShard shard = new FakeShard(false);
+        ShardedMbedtlsCoapTransport sharded = new ShardedMbedtlsCoapTransport(Arrays.asList(shard, shard), Duration.ofSeconds(60), (delay, task) -> () -> {
+        });
+        InetSocketAddress peer = new InetSocketAddress("localhost", 5684);
+        sharded.updateOwner(peer, 1, 1000);
+
+        assertFalse(sharded.sendPacket(new CoapPacket(Code.C205_CONTENT, MessageType.NonConfirmable, peer)).join());
+
+        assertEquals(0, sharded.ownersCount());
+    }
+
+    @Test
+    void shouldKeepOwner_whileSessionLives() {
+        FakeShard shard = new FakeShard(true);
+        ShardedMbedtlsCoapTransport sharded = new ShardedMbedtlsCoapTransport(Arrays.asList(shard, shard), Duration.ofSeconds(60), (delay, task) -> () -> {
+        });
+        InetSocketAddress peer1 = new InetSocketAddress("localhost", 5684);
+        InetSocketAddress peer2 = new InetSocketAddress("localhost", 5685);
+        sharded.updateOwner(peer1, 1, 1000);
+        sharded.updateOwner(peer2, 0, 50_000);
+
+        // expired only after session expiration
+        sharded.removeExpired(60_000);
+        assertEquals(2, sharded.ownersCount());
+        sharded.removeExpired(61_001);
+        assertEquals(1, sharded.ownersCount());
+
+        // closed by shard
+        sharded.sessionClosed(peer2);
+        assertEquals(0, sharded.ownersCount());
+    }
+
+    private static class FakeShard implements Transport<Packet<byte[]>> {
+        private final boolean hasSession;
+
+        FakeShard(boolean hasSession) {
+            this.hasSession = hasSession;
+        }
+
+        @Override
+        public CompletableFuture<Packet<byte[]>> receive(Duration timeout) {
+            return new CompletableFuture<>();
+        }
+
+        @Override
+        public CompletableFuture<Boolean> send(Packet<byte[]> packet) {
+            return completedFuture(hasSession);
+        }
+
+        @Override
+        public int localPort() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private CoapClient connect(InetSocketAddress address) throws IOException {
+        return CoapClientBuilder.newBuilder(address)
+                .transport(new MbedtlsCoapTransport(DtlsTransmitter.connect(address, clientConf).join()))
+                .build();
+    }
+}
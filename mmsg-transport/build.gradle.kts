@@ -0,0 +1,38 @@
+plugins {
+    id("java-library")
+}
+
+description = "mmsg-transport"
+
+// Foreign Function & Memory API is final since java 22
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(22))
+    }
+}
+
+dependencies {
+    api(project(":coap-core"))
+
+    testImplementation("org.junit.jupiter:junit-jupiter-api:5.9.1")
+    testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.9.1")
+    testImplementation("ch.qos.logback:logback-classic:1.3.0")
+}
+
+jacoco {
+    toolVersion = "0.8.12"
+}
+
+tasks {
+    withType<JavaCompile> {
+        options.release.set(22)
+    }
+
+    withType<Test> {
+        jvmArgs("--enable-native-access=ALL-UNNAMED")
+    }
+
+    // pmd and spotbugs versions used by this project do not support java 22 sources and classes
+    named("pmdMain").get().enabled = false
+    named("spotbugsMain").get().enabled = false
+}
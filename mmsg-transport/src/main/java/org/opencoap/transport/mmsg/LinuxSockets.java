@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opencoap.transport.mmsg;
+
+import static java.lang.foreign.ValueLayout.*;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteOrder;
+
+/**
+ * Bindings to Linux socket functions (LP64 ABI: x86_64, aarch64).
+ * Every call captures errno, failures are reported as {@link IOException}.
+ */
+final class LinuxSockets {
+    static final int AF_INET = 2;
+    static final int AF_INET6 = 10;
+    static final int SOCK_DGRAM = 2;
+    static final int SOL_SOCKET = 1;
+    static final int SO_REUSEADDR = 2;
+    static final int SO_RCVTIMEO = 20;
+    static final int IPPROTO_IPV6 = 41;
+    static final int IPV6_V6ONLY = 26;
+    static final int MSG_WAITFORONE = 0x10000;
+    static final int SHUT_RDWR = 2;
+    static final int EINTR = 4;
+    static final int EAGAIN = 11;
+
+    // struct sockaddr_in6 is big enough for both families
+    static final int SOCKADDR_SIZE = 28;
+    // struct iovec { void *iov_base; size_t iov_len; }
+    static final int IOVEC_SIZE = 16;
+    // struct mmsghdr { struct msghdr msg_hdr; unsigned int msg_len; }
+    static final int MMSGHDR_SIZE = 64;
+    static final int MSG_NAME_OFFSET = 0;
+    static final int MSG_NAMELEN_OFFSET = 8;
+    static final int MSG_IOV_OFFSET = 16;
+    static final int MSG_IOVLEN_OFFSET = 24;
+    static final int MSG_LEN_OFFSET = 56;
+
+    private static final ValueLayout.OfShort NETWORK_SHORT = JAVA_SHORT.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final byte[] IPV4_MAPPED_PREFIX = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xFF, (byte) 0xFF};
+
+    private static final Linker LINKER = Linker.nativeLinker();
+    private static final StructLayout CALL_STATE_LAYOUT = Linker.Option.captureStateLayout();
+    private static final long ERRNO_OFFSET = CALL_STATE_LAYOUT.byteOffset(MemoryLayout.PathElement.groupElement("errno"));
+
+    private static final MethodHandle SOCKET = downcall("socket", FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_INT, JAVA_INT));
+    private static final MethodHandle SETSOCKOPT = downcall("setsockopt", FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_INT, JAVA_INT, ADDRESS, JAVA_INT));
+    private static final MethodHandle BIND = downcall("bind", FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS, JAVA_INT));
+    private static final MethodHandle GETSOCKNAME = downcall("getsockname", FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS, ADDRESS));
+    private static final MethodHandle RECVMMSG = downcall("recvmmsg", FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, ADDRESS));
+    private static final MethodHandle SENDMMSG = downcall("sendmmsg", FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT));
+    private static final MethodHandle SHUTDOWN = downcall("shutdown", FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_INT));
+    private static final MethodHandle CLOSE = downcall("close", FunctionDescriptor.of(JAVA_INT, JAVA_INT));
+
+    private LinuxSockets() {
+    }
+
+    private static MethodHandle downcall(String name, FunctionDescriptor descriptor) {
+        MemorySegment symbol = LINKER.defaultLookup().find(name)
+                .orElseThrow(() -> new UnsatisfiedLinkError("Native function not found: " + name));
+        return LINKER.downcallHandle(symbol, descriptor, Linker.Option.captureCallState("errno"));
+    }
+
+    static boolean isSupported() {
+        String os = System.getProperty("os.name", "").toLowerCase();
+        String arch = System.getProperty("os.arch", "");
+        return os.startsWith("linux") && (arch.equals("amd64") || arch.equals("x86_64") || arch.equals("aarch64"));
+    }
+
+    static MemorySegment allocateCallState(Arena arena) {
+        return arena.allocate(CALL_STATE_LAYOUT);
+    }
+
+    static int errno(MemorySegment callState) {
+        return callState.get(JAVA_INT, ERRNO_OFFSET);
+    }
+
+    static int socket(MemorySegment callState, int domain) throws IOException {
+        return check(callState, "socket", invoke(() -> (int) SOCKET.invokeExact(callState, domain, SOCK_DGRAM, 0)));
+    }
+
+    static void setIntOption(Arena arena, MemorySegment callState, int fd, int level, int option, int value) throws IOException {
+        MemorySegment optionValue = arena.allocate(JAVA_INT);
+        optionValue.set(JAVA_INT, 0, value);
+        check(callState, "setsockopt", invoke(() -> (int) SETSOCKOPT.invokeExact(callState, fd, level, option, optionValue, 4)));
+    }
+
+    static void setReceiveTimeout(Arena arena, MemorySegment callState, int fd, long timeoutMillis) throws IOException {
+        // struct timeval { long tv_sec; long tv_usec; }
+        MemorySegment timeval = arena.allocate(16, 8);
+        timeval.set(JAVA_LONG, 0, timeoutMillis / 1000);
+        timeval.set(JAVA_LONG, 8, (timeoutMillis % 1000) * 1000);
+        check(callState, "setsockopt", invoke(() -> (int) SETSOCKOPT.invokeExact(callState, fd, SOL_SOCKET, SO_RCVTIMEO, timeval, 16)));
+    }
+
+    static void bind(Arena arena, MemorySegment callState, int fd, int family, InetSocketAddress address) throws IOException {
+        MemorySegment sockaddr = arena.allocate(SOCKADDR_SIZE, 8);
+        int len = writeSockaddr(sockaddr, family, address);
+        check(callState, "bind", invoke(() -> (int) BIND.invokeExact(callState, fd, sockaddr, len)));
+    }
+
+    static InetSocketAddress getSockName(Arena arena, MemorySegment callState, int fd) throws IOException {
+        MemorySegment sockaddr = arena.allocate(SOCKADDR_SIZE, 8);
+        MemorySegment len = arena.allocate(JAVA_INT);
+        len.set(JAVA_INT, 0, SOCKADDR_SIZE);
+        check(callState, "getsockname", invoke(() -> (int) GETSOCKNAME.invokeExact(callState, fd, sockaddr, len)));
+        return readSockaddr(sockaddr);
+    }
+
+    /**
+     * @return number of received messages, or -1 when timed out or interrupted
+     */
+    static int recvmmsg(MemorySegment callState, int fd, MemorySegment msgvec, int vlen) throws IOException {
+        int ret = invoke(() -> (int) RECVMMSG.invokeExact(callState, fd, msgvec, vlen, MSG_WAITFORONE, MemorySegment.NULL));
+        if (ret < 0 && (errno(callState) == EAGAIN || errno(callState) == EINTR)) {
+            return -1;
+        }
+        return check(callState, "recvmmsg", ret);
+    }
+
+    /**
+     * @return number of sent messages, or -1 when interrupted
+     */
+    static int sendmmsg(MemorySegment callState, int fd, MemorySegment msgvec, int vlen) throws IOException {
+        int ret = invoke(() -> (int) SENDMMSG.invokeExact(callState, fd, msgvec, vlen, 0));
+        if (ret < 0 && errno(callState) == EINTR) {
+            return -1;
+        }
+        return check(callState, "sendmmsg", ret);
+    }
+
+    static void shutdown(MemorySegment callState, int fd) {
+        // result is ignored, it is used only to wake up blocked reader
+        invoke(() -> (int) SHUTDOWN.invokeExact(callState, fd, SHUT_RDWR));
+    }
+
+    static void close(MemorySegment callState, int fd) throws IOException {
+        check(callState, "close", invoke(() -> (int) CLOSE.invokeExact(callState, fd)));
+    }
+
+    static int writeSockaddr(MemorySegment sockaddr, int family, InetSocketAddress address) {
+        byte[] ip = address.getAddress().getAddress();
+        sockaddr.fill((byte) 0);
+        if (family == AF_INET) {
+            if (ip.length != 4) {
+                throw new IllegalArgumentException("IPv6 address can not be used with IPv4 socket: " + address);
+            }
+            // struct sockaddr_in
+            sockaddr.set(JAVA_SHORT, 0, (short) AF_INET);
+            sockaddr.set(NETWORK_SHORT, 2, (short) address.getPort());
+            MemorySegment.copy(ip, 0, sockaddr, JAVA_BYTE, 4, 4);
+            return 16;
+        }
+
+        // struct sockaddr_in6, ipv4 addresses are mapped
+        sockaddr.set(JAVA_SHORT, 0, (short) AF_INET6);
+        sockaddr.set(NETWORK_SHORT, 2, (short) address.getPort());
+        if (ip.length == 4) {
+            MemorySegment.copy(IPV4_MAPPED_PREFIX, 0, sockaddr, JAVA_BYTE, 8, 12);
+            MemorySegment.copy(ip, 0, sockaddr, JAVA_BYTE, 20, 4);
+        } else {
+            MemorySegment.copy(ip, 0, sockaddr, JAVA_BYTE, 8, 16);
+        }
+        return SOCKADDR_SIZE;
+    }
+
+    static InetSocketAddress readSockaddr(MemorySegment sockaddr) throws IOException {
+        int family = sockaddr.get(JAVA_SHORT, 0);
+        int port = Short.toUnsignedInt(sockaddr.get(NETWORK_SHORT, 2));
+        byte[] ip;
+        if (family == AF_INET) {
+            ip = sockaddr.asSlice(4, 4).toArray(JAVA_BYTE);
+        } else if (family == AF_INET6) {
+            // ipv4 mapped addresses are converted by InetAddress to Inet4Address
+            ip = sockaddr.asSlice(8, 16).toArray(JAVA_BYTE);
+        } else {
+            throw new IOException("Unsupported address family: " + family);
+        }
+        try {
+            return new InetSocketAddress(InetAddress.getByAddress(ip), port);
+        } catch (UnknownHostException e) {
+            throw new IOException(e);
+        }
+    }
+
+    static int familyOf(InetSocketAddress address) {
+        return (address.getAddress() instanceof Inet4Address) ? AF_INET : AF_INET6;
+    }
+
+    private static int check(MemorySegment callState, String function, int ret) throws IOException {
+        if (ret < 0) {
+            throw new IOException(function + " failed, errno: " + errno(callState));
+        }
+        return ret;
+    }
+
+    private static int invoke(NativeCall call) {
+        try {
+            return call.invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface NativeCall {
+        int invoke() throws Throwable;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opencoap.transport.mmsg;
+
+import static java.lang.foreign.ValueLayout.*;
+import static org.opencoap.transport.mmsg.LinuxSockets.*;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.net.InetSocketAddress;
+
+/**
+ * Off-heap vector of messages ({@code struct mmsghdr}) for recvmmsg and sendmmsg, each message with single buffer
+ * and socket address. All structures are allocated and linked once.
+ */
+final class MessageBatch {
+    private final int size;
+    private final int maxMessageSize;
+    private final MemorySegment messages;
+    private final MemorySegment iovecs;
+    private final MemorySegment names;
+    private final MemorySegment buffers;
+
+    MessageBatch(Arena arena, int size, int maxMessageSize) {
+        this.size = size;
+        this.maxMessageSize = maxMessageSize;
+        this.messages = arena.allocate((long) MMSGHDR_SIZE * size, 8);
+        this.iovecs = arena.allocate((long) IOVEC_SIZE * size, 8);
+        this.names = arena.allocate((long) SOCKADDR_SIZE * size, 8);
+        this.buffers = arena.allocate((long) maxMessageSize * size, 8);
+
+        for (int i = 0; i < size; i++) {
+            MemorySegment iovec = iovecs.asSlice((long) IOVEC_SIZE * i, IOVEC_SIZE);
+            iovec.set(ADDRESS, 0, buffer(i));
+            iovec.set(JAVA_LONG, 8, maxMessageSize);
+
+            MemorySegment msg = message(i);
+            msg.set(ADDRESS, MSG_NAME_OFFSET, name(i));
+            msg.set(JAVA_INT, MSG_NAMELEN_OFFSET, SOCKADDR_SIZE);
+            msg.set(ADDRESS, MSG_IOV_OFFSET, iovec);
+            msg.set(JAVA_LONG, MSG_IOVLEN_OFFSET, 1);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    MemorySegment messages() {
+        return messages;
+    }
+
+    MemorySegment messagesFrom(int index) {
+        return messages.asSlice((long) MMSGHDR_SIZE * index);
+    }
+
+    private MemorySegment message(int index) {
+        return messages.asSlice((long) MMSGHDR_SIZE * index, MMSGHDR_SIZE);
+    }
+
+    private MemorySegment name(int index) {
+        return names.asSlice((long) SOCKADDR_SIZE * index, SOCKADDR_SIZE);
+    }
+
+    private MemorySegment buffer(int index) {
+        return buffers.asSlice((long) maxMessageSize * index, maxMessageSize);
+    }
+
+    // --- receiving ---
+
+    int receivedLength(int index) {
+        return message(index).get(JAVA_INT, MSG_LEN_OFFSET);
+    }
+
+    InetSocketAddress receivedFrom(int index) throws IOException {
+        return readSockaddr(name(index));
+    }
+
+    void copyReceived(int index, byte[] destination) {
+        MemorySegment.copy(buffer(index), JAVA_BYTE, 0, destination, 0, receivedLength(index));
+    }
+
+    void resetNameLengths(int count) {
+        for (int i = 0; i < count; i++) {
+            message(i).set(JAVA_INT, MSG_NAMELEN_OFFSET, SOCKADDR_SIZE);
+        }
+    }
+
+    // --- sending ---
+
+    void put(int index, int family, InetSocketAddress destination, byte[] data, int length) {
+        MemorySegment msg = message(index);
+        msg.set(JAVA_INT, MSG_NAMELEN_OFFSET, writeSockaddr(name(index), family, destination));
+        iovecs.set(JAVA_LONG, (long) IOVEC_SIZE * index + 8, length);
+        MemorySegment.copy(data, 0, buffer(index), JAVA_BYTE, 0, length);
+    }
+
+    int maxMessageSize() {
+        return maxMessageSize;
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opencoap.transport.mmsg;
+
+import static com.mbed.coap.utils.FutureHelpers.failedFuture;
+import static com.mbed.coap.utils.Validations.*;
+import com.mbed.coap.exception.CoapException;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.transport.BufferPool;
+import com.mbed.coap.transport.CoapReceiver;
+import com.mbed.coap.transport.CoapTransport;
+import com.mbed.coap.transport.TransportExecutors;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Linux UDP transport that receives and sends datagrams in batches with recvmmsg and sendmmsg,
+ * using Foreign Function &amp; Memory API. Up to batch size datagrams are moved by a single system call
+ * into (or from) off-heap buffers.
+ * <p>
+ * Outgoing packets are queued and sent by a dedicated writer, every sendmmsg call takes all packets waiting
+ * in the queue, up to batch size.
+ */
+public class MmsgDatagramTransport implements CoapTransport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MmsgDatagramTransport.class);
+    private static final int DEFAULT_BATCH_SIZE = 32;
+    private static final int DEFAULT_QUEUE_SIZE = 1024;
+    private static final int MAX_PACKET_SIZE = 2048;
+    private static final long TIMEOUT_MILLIS = 200;
+
+    private final InetSocketAddress bindAddress;
+    private final int batchSize;
+    private final BlockingQueue<OutboundPacket> queue;
+    private final Executor readingWorker;
+    private final Executor writingWorker;
+    private final byte[] readArray = new byte[MAX_PACKET_SIZE];
+    private final List<OutboundPacket> burst;
+    private final CountDownLatch workersStopped = new CountDownLatch(2);
+    private final AtomicBoolean releasePending = new AtomicBoolean();
+    private Arena arena;
+    private MemorySegment readCallState;
+    private MemorySegment writeCallState;
+    private MessageBatch receiveBatch;
+    private MessageBatch sendBatch;
+    private int family;
+    private int fd = -1;
+    private InetSocketAddress localAddress;
+    private volatile boolean isRunning;
+
+    public static boolean isSupported() {
+        return LinuxSockets.isSupported();
+    }
+
+    public MmsgDatagramTransport(int localPort) {
+        this(new InetSocketAddress(localPort), DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_SIZE);
+    }
+
+    public MmsgDatagramTransport(InetSocketAddress bindAddress, int batchSize, int maxQueueSize) {
+        this(bindAddress, batchSize, maxQueueSize, TransportExecutors.newWorker("mmsg-reader"), TransportExecutors.newWorker("mmsg-writer"));
+    }
+
+    public MmsgDatagramTransport(InetSocketAddress bindAddress, int batchSize, int maxQueueSize, Executor readingWorker, Executor writingWorker) {
+        require(batchSize > 0 && batchSize <= 1024);
+        require(maxQueueSize > 0);
+        this.bindAddress = bindAddress;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(maxQueueSize);
+        this.burst = new ArrayList<>(batchSize);
+        this.readingWorker = readingWorker;
+        this.writingWorker = writingWorker;
+    }
+
+    @Override
+    public void start(CoapReceiver coapReceiver) throws IOException {
+        assume(isSupported(), "recvmmsg/sendmmsg transport is supported only on Linux x86_64 and aarch64");
+        assume(arena == null, "Transport can be started only once");
+
+        arena = Arena.ofShared();
+        try {
+            MemorySegment callState = LinuxSockets.allocateCallState(arena);
+            family = LinuxSockets.familyOf(bindAddress);
+            fd = LinuxSockets.socket(callState, family);
+            if (family == LinuxSockets.AF_INET6) {
+                // dual stack
+                LinuxSockets.setIntOption(arena, callState, fd, LinuxSockets.IPPROTO_IPV6, LinuxSockets.IPV6_V6ONLY, 0);
+            }
+            LinuxSockets.setIntOption(arena, callState, fd, LinuxSockets.SOL_SOCKET, LinuxSockets.SO_REUSEADDR, 1);
+            LinuxSockets.setReceiveTimeout(arena, callState, fd, TIMEOUT_MILLIS);
+            LinuxSockets.bind(arena, callState, fd, family, bindAddress);
+            localAddress = LinuxSockets.getSockName(arena, callState, fd);
+        } catch (IOException | RuntimeException ex) {
+            releaseResources();
+            throw ex;
+        }
+
+        readCallState = LinuxSockets.allocateCallState(arena);
+        writeCallState = LinuxSockets.allocateCallState(arena);
+        receiveBatch = new MessageBatch(arena, batchSize, MAX_PACKET_SIZE);
+        sendBatch = new MessageBatch(arena, batchSize, MAX_PACKET_SIZE);
+        isRunning = true;
+
+        TransportExecutors.loop(readingWorker, () -> readingLoop(coapReceiver));
+        TransportExecutors.loop(writingWorker, this::writingLoop);
+    }
+
+    @Override
+    public void stop() {
+        if (!isRunning) {
+            return;
+        }
+        isRunning = false;
+        LinuxSockets.shutdown(LinuxSockets.allocateCallState(arena), fd);
+        try {
+            // workers exit within poll timeout
+            if (!workersStopped.await(TIMEOUT_MILLIS * 5, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Transport workers did not stop in time, resources are released when they exit");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        TransportExecutors.shutdown(readingWorker);
+        TransportExecutors.shutdown(writingWorker);
+
+        OutboundPacket outboundPacket;
+        while ((outboundPacket = queue.poll()) != null) {
+            outboundPacket.promise.completeExceptionally(new IOException("Transport stopped"));
+        }
+
+        // native memory must not be released while a worker may still use it
+        releasePending.set(true);
+        releaseIfWorkersStopped();
+    }
+
+    private void workerStopped() {
+        workersStopped.countDown();
+        releaseIfWorkersStopped();
+    }
+
+    private void releaseIfWorkersStopped() {
+        if (workersStopped.getCount() == 0 && releasePending.compareAndSet(true, false)) {
+            releaseResources();
+        }
+    }
+
+    private void releaseResources() {
+        try {
+            if (fd >= 0) {
+                LinuxSockets.close(LinuxSockets.allocateCallState(arena), fd);
+            }
+        } catch (IOException e) {
+            LOGGER.warn(e.getMessage());
+        } finally {
+            fd = -1;
+            arena.close();
+        }
+    }
+
+    boolean readingLoop(CoapReceiver coapReceiver) {
+        if (!isRunning) {
+            workerStopped();
+            return false;
+        }
+
+        try {
+            int received = LinuxSockets.recvmmsg(readCallState, fd, receiveBatch.messages(), receiveBatch.size());
+            for (int i = 0; i < received; i++) {
+                receive(coapReceiver, i);
+            }
+            if (received > 0) {
+                receiveBatch.resetNameLengths(received);
+            }
+        } catch (IOException ex) {
+            if (isRunning) {
+                LOGGER.warn(ex.getMessage());
+            }
+        } catch (Exception ex) {
+            LOGGER.warn(ex.getMessage(), ex);
+        }
+        return true;
+    }
+
+    private void receive(CoapReceiver coapReceiver, int index) {
+        try {
+            int length = receiveBatch.receivedLength(index);
+            receiveBatch.copyReceived(index, readArray);
+            coapReceiver.handle(CoapPacket.read(receiveBatch.receivedFrom(index), readArray, length));
+        } catch (CoapException | IOException e) {
+            LOGGER.warn(e.getMessage());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sendPacket(CoapPacket coapPacket) {
+        if (!isRunning) {
+            return failedFuture(new IllegalStateException("Transport is not running"));
+        }
+
+        OutboundPacket outboundPacket = new OutboundPacket(coapPacket);
+        if (!queue.offer(outboundPacket)) {
+            return failedFuture(new IOException("Outbound queue is full"));
+        }
+        return outboundPacket.promise;
+    }
+
+    boolean writingLoop() {
+        if (!isRunning) {
+            workerStopped();
+            return false;
+        }
+
+        try {
+            OutboundPacket first = queue.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            if (first != null) {
+                burst.add(first);
+                queue.drainTo(burst, batchSize - 1);
+                writeBurst();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workerStopped();
+            return false;
+        } finally {
+            burst.clear();
+        }
+        return true;
+    }
+
+    private void writeBurst() {
+        // stage packets, burst entries that could not be serialized are replaced with null
+        int staged = 0;
+        for (int i = 0; i < burst.size(); i++) {
+            OutboundPacket outboundPacket = burst.get(i);
+            try (BufferPool.PooledOutputStream outputStream = BufferPool.DEFAULT.outputStream()) {
+                outboundPacket.packet.writeTo(outputStream);
+                if (outputStream.size() > sendBatch.maxMessageSize()) {
+                    throw new IOException("Packet too large: " + outputStream.size());
+                }
+                sendBatch.put(staged, family, outboundPacket.packet.getRemoteAddress(), outputStream.buffer(), outputStream.size());
+                burst.set(staged++, outboundPacket);
+            } catch (Exception ex) {
+                outboundPacket.promise.completeExceptionally(ex);
+            }
+        }
+
+        int sent = 0;
+        while (sent < staged) {
+            int ret;
+            try {
+                ret = LinuxSockets.sendmmsg(writeCallState, fd, sendBatch.messagesFrom(sent), staged - sent);
+            } catch (IOException ex) {
+                // sendmmsg fails only when the first message could not be sent, others are retried
+                burst.get(sent++).promise.completeExceptionally(ex);
+                continue;
+            }
+            for (int i = sent; i < sent + Math.max(ret, 0); i++) {
+                burst.get(i).promise.complete(true);
+            }
+            sent += Math.max(ret, 0);
+        }
+    }
+
+    @Override
+    public InetSocketAddress getLocalSocketAddress() {
+        return localAddress;
+    }
+
+    public int queueSize() {
+        return queue.size();
+    }
+
+    private static class OutboundPacket {
+        private final CoapPacket packet;
+        private final CompletableFuture<Boolean> promise = new CompletableFuture<>();
+
+        OutboundPacket(CoapPacket packet) {
+            this.packet = packet;
+        }
+    }
+}
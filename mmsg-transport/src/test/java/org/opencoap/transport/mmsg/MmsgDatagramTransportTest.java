@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2022 java-coap contributors (https://github.com/open-coap/java-coap)
+ * SPDX-License-Identifier: Apache-2.0
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opencoap.transport.mmsg;
+
+import static com.mbed.coap.packet.CoapResponse.*;
+import static java.util.concurrent.CompletableFuture.*;
+import static org.junit.jupiter.api.Assertions.*;
+import com.mbed.coap.client.CoapClient;
+import com.mbed.coap.client.CoapClientBuilder;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.packet.CoapRequest;
+import com.mbed.coap.packet.MessageType;
+import com.mbed.coap.packet.Method;
+import com.mbed.coap.server.CoapServer;
+import com.mbed.coap.server.CoapServerBuilder;
+import com.mbed.coap.server.RouterService;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+@EnabledOnOs(OS.LINUX)
+class MmsgDatagramTransportTest {
+
+    private final MmsgDatagramTransport transport = new MmsgDatagramTransport(new InetSocketAddress("127.0.0.1", 0), 16, 1000);
+    private DatagramSocket socket;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        socket.setReceiveBufferSize(1 << 20);
+        socket.setSoTimeout(1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.stop();
+        socket.close();
+    }
+
+    @Test
+    void shouldSendPacketsInBatches() throws Exception {
+        transport.start(packet -> {
+        });
+        InetSocketAddress destination = (InetSocketAddress) socket.getLocalSocketAddress();
+
+        // when
+        List<CompletableFuture<Boolean>> promises = new ArrayList<>();
+        for (int mid = 0; mid < 100; mid++) {
+            promises.add(transport.sendPacket(newPacket(destination, mid)));
+        }
+
+        // then
+        for (CompletableFuture<Boolean> promise : promises) {
+            assertTrue(promise.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(100, receiveAll());
+    }
+
+    @Test
+    void shouldReceivePackets() throws Exception {
+        List<CoapPacket> received = new ArrayList<>();
+        transport.start(received::add);
+        InetSocketAddress transportAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), transport.getLocalSocketAddress().getPort());
+
+        // when
+        for (int mid = 0; mid < 50; mid++) {
+            byte[] data = newPacket(transportAddress, mid).toByteArray();
+            socket.send(new DatagramPacket(data, data.length, transportAddress));
+        }
+
+        // then
+        long deadline = System.currentTimeMillis() + 5000;
+        while (received.size() < 50 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(50, received.size());
+        assertEquals(socket.getLocalSocketAddress(), received.get(0).getRemoteAddress());
+        assertEquals("/test", received.get(0).headers().getUriPath());
+    }
+
+    @Test
+    void shouldFailOnlyPacketsThatCouldNotBeSent() throws Exception {
+        transport.start(packet -> {
+        });
+        InetSocketAddress destination = (InetSocketAddress) socket.getLocalSocketAddress();
+
+        // when
+        CompletableFuture<Boolean> resp1 = transport.sendPacket(newPacket(destination, 1));
+        CompletableFuture<Boolean> resp2 = transport.sendPacket(newPacket(new InetSocketAddress("::1", 5683), 2));
+        CompletableFuture<Boolean> resp3 = transport.sendPacket(newPacket(new InetSocketAddress(destination.getAddress(), 0), 3));
+        CompletableFuture<Boolean> resp4 = transport.sendPacket(newPacket(destination, 4));
+
+        // then
+        assertTrue(resp1.get(5, TimeUnit.SECONDS));
+        ExecutionException ipv6Failure = assertThrows(ExecutionException.class, () -> resp2.get(5, TimeUnit.SECONDS));
+        assertTrue(ipv6Failure.getCause() instanceof IllegalArgumentException);
+        ExecutionException portFailure = assertThrows(ExecutionException.class, () -> resp3.get(5, TimeUnit.SECONDS));
+        assertTrue(portFailure.getCause() instanceof IOException);
+        assertTrue(resp4.get(5, TimeUnit.SECONDS));
+        assertEquals(2, receiveAll());
+    }
+
+    @Test
+    void shouldFailToSend_whenStopped() throws Exception {
+        transport.start(packet -> {
+        });
+        transport.stop();
+
+        assertTrue(transport.sendPacket(newPacket((InetSocketAddress) socket.getLocalSocketAddress(), 1)).isCompletedExceptionally());
+    }
+
+    @Test
+    void shouldServeCoapRequests() throws Exception {
+        CoapServer server = CoapServerBuilder.newBuilder()
+                .transport(new MmsgDatagramTransport(0))
+                .route(RouterService.builder()
+                        .get("/test", req -> completedFuture(ok("OK!")))
+                        .build()
+                )
+                .build().start();
+        CoapClient client = CoapClientBuilder.newBuilder(new InetSocketAddress("127.0.0.1", server.getLocalSocketAddress().getPort())).build();
+
+        assertEquals(ok("OK!"), client.sendSync(CoapRequest.get("/test")));
+
+        client.close();
+        server.stop();
+    }
+
+    private static CoapPacket newPacket(InetSocketAddress address, int mid) {
+        CoapPacket packet = new CoapPacket(Method.GET, MessageType.NonConfirmable, "/test", address);
+        packet.setMessageId(mid);
+        return packet;
+    }
+
+    private int receiveAll() throws IOException {
+        int count = 0;
+        byte[] buffer = new byte[2048];
+        try {
+            while (true) {
+                socket.receive(new DatagramPacket(buffer, buffer.length));
+                count++;
+            }
+        } catch (SocketTimeoutException e) {
+            return count;
+        }
+    }
+}
@@ -3,3 +3,8 @@ include(":coap-tcp")
 include(":mbedtls-transport")
 include(":lwm2m")
 include(":example-client")
+
+// requires JDK 22 toolchain, opt-in with: -PmmsgTransport
+if (providers.gradleProperty("mmsgTransport").isPresent) {
+    include(":mmsg-transport")
+}